@@ -0,0 +1,142 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that allocation rates are
+ * reported next to the scores, writes the results as CSV, and optionally
+ * compares them with the results of an earlier run.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.github.alex1304.ultimategdbot.core.BenchmarkRunner \
+ *     [--include regex] [--output target/results.csv] [--baseline earlier-results.csv]
+ * </pre>
+ *
+ * Scores depend on the machine, so no baseline is kept in the repository. To
+ * get one, run without --baseline on the machine the comparison will run on
+ * and keep the output file.
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		var include = ".*";
+		var output = Paths.get("target", "results.csv");
+		Path baseline = null;
+		for (var i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+				case "--include":
+					include = args[i + 1];
+					break;
+				case "--output":
+					output = Paths.get(args[i + 1]);
+					break;
+				case "--baseline":
+					baseline = Paths.get(args[i + 1]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if (output.getParent() != null) {
+			Files.createDirectories(output.getParent());
+		}
+		new Runner(new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.CSV)
+				.result(output.toString())
+				.build()).run();
+		if (baseline != null) {
+			compare(readScores(baseline), readScores(output));
+		}
+	}
+
+	private static void compare(Map<String, Double> baseline, Map<String, Double> current) {
+		System.out.println();
+		System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+		current.forEach((name, score) -> {
+			var before = baseline.get(name);
+			if (before == null) {
+				System.out.printf("%-90s %14s %14.3f %9s%n", name, "-", score, "new");
+			} else {
+				var change = before == 0 ? 0 : (score - before) / before * 100;
+				System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%n", name, before, score, change);
+			}
+		});
+		baseline.keySet().stream()
+				.filter(name -> !current.containsKey(name))
+				.forEach(name -> System.out.printf("%-90s %14.3f %14s %9s%n", name, baseline.get(name), "-", "gone"));
+	}
+
+	/**
+	 * Reads the scores of a CSV result file, keyed by benchmark name followed by
+	 * its parameters. Secondary metrics such as the allocation rate have their
+	 * own entries, their name being suffixed by the metric.
+	 */
+	private static Map<String, Double> readScores(Path file) throws IOException {
+		var lines = Files.readAllLines(file);
+		var scores = new LinkedHashMap<String, Double>();
+		if (lines.isEmpty()) {
+			return scores;
+		}
+		var header = splitCsv(lines.get(0));
+		var scoreIndex = header.indexOf("Score");
+		var paramStart = 0;
+		while (paramStart < header.size() && !header.get(paramStart).startsWith("Param: ")) {
+			paramStart++;
+		}
+		for (var line : lines.subList(1, lines.size())) {
+			var columns = splitCsv(line);
+			if (columns.size() <= scoreIndex) {
+				continue;
+			}
+			var key = new StringBuilder(columns.get(0));
+			for (var i = paramStart; i < columns.size() && i < header.size(); i++) {
+				if (!columns.get(i).isEmpty()) {
+					key.append(' ').append(header.get(i).substring("Param: ".length())).append('=').append(columns.get(i));
+				}
+			}
+			try {
+				scores.put(key.toString(), Double.parseDouble(columns.get(scoreIndex)));
+			} catch (NumberFormatException e) {
+				// NaN or empty scores cannot be compared
+			}
+		}
+		return scores;
+	}
+
+	private static List<String> splitCsv(String line) {
+		var columns = new ArrayList<String>();
+		var sb = new StringBuilder();
+		var quoted = false;
+		for (var i = 0; i < line.length(); i++) {
+			var c = line.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == ',' && !quoted) {
+				columns.add(sb.toString());
+				sb.setLength(0);
+			} else {
+				sb.append(c);
+			}
+		}
+		columns.add(sb.toString());
+		return columns;
+	}
+}
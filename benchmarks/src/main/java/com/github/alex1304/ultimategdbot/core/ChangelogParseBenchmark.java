@@ -0,0 +1,75 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import discord4j.discordjson.json.EmbedData;
+
+/**
+ * Parses changelogs up to the Discord embed limits, and one far beyond them
+ * that the parser is expected to reject early.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangelogParseBenchmark {
+
+	private static final Instant TIMESTAMP = Instant.parse("2020-11-01T00:00:00Z");
+
+	@Param({ "1", "10", "25" })
+	private int fieldCount;
+
+	private List<String> lines;
+	private List<String> oversizedLines;
+
+	@Setup
+	public void setup() {
+		// About 5000 characters of content in total, under the 6000 of an embed and the 1024 of a field
+		lines = changelog(fieldCount, Math.min(900, 5000 / fieldCount));
+		oversizedLines = changelog(1000, 200);
+	}
+
+	@Benchmark
+	public Optional<EmbedData> parse() {
+		return ChangelogCommand.parse(lines, "UltimateGDBot", "https://example.com/icon.png", TIMESTAMP);
+	}
+
+	@Benchmark
+	public Optional<EmbedData> parseOversized() {
+		return ChangelogCommand.parse(oversizedLines, "UltimateGDBot", "https://example.com/icon.png", TIMESTAMP);
+	}
+
+	private static List<String> changelog(int fieldCount, int fieldLength) {
+		var lines = new ArrayList<String>();
+		lines.add("Version 6.0.3 changelog");
+		for (var i = 0; i < fieldCount; i++) {
+			lines.add("");
+			lines.add("Section " + i);
+			var remaining = fieldLength;
+			while (remaining > 0) {
+				var length = Math.min(remaining, 40);
+				lines.add("-" + "x".repeat(length - 1));
+				remaining -= length;
+			}
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,68 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.alex1304.ultimategdbot.core.database.CoreConfigData;
+import com.github.alex1304.ultimategdbot.core.database.ImmutableCoreConfigData;
+
+import discord4j.common.util.Snowflake;
+
+/**
+ * Builds and copies guild configurations the way the DAO mappers and the
+ * value setters of the configurator do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoreConfigDataBenchmark {
+
+	private Snowflake guildId;
+	private CoreConfigData data;
+
+	@Setup
+	public void setup() {
+		guildId = Snowflake.of(357655011296002049L);
+		data = build();
+	}
+
+	@Benchmark
+	public CoreConfigData build() {
+		return ImmutableCoreConfigData.builder()
+				.guildId(guildId)
+				.prefix("gd!")
+				.channelChangelogId(Snowflake.of(357655011296002050L))
+				.locale("fr-FR")
+				.build();
+	}
+
+	@Benchmark
+	public CoreConfigData copyWithPrefix() {
+		return ImmutableCoreConfigData.builder()
+				.from(data)
+				.prefix(Optional.of("!"))
+				.build();
+	}
+
+	@Benchmark
+	public boolean roundTripEquals() {
+		return ImmutableCoreConfigData.builder()
+				.from(data)
+				.build()
+				.equals(data);
+	}
+}
@@ -0,0 +1,62 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the compiled CoreStrings tables against the ResourceBundle lookup
+ * followed by String.format that translations used to go through.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoreStringsBenchmark {
+
+	@Param({ "en", "fr-FR", "ru-RU" })
+	private String languageTag;
+
+	private Locale locale;
+	private int shardIndex;
+
+	@Setup
+	public void setup() {
+		locale = Locale.forLanguageTag(languageTag);
+		shardIndex = 3;
+	}
+
+	@Benchmark
+	public String resourceBundleNoArgs() {
+		return String.format(ResourceBundle.getBundle("CoreStrings", locale).getString("channels"));
+	}
+
+	@Benchmark
+	public String compiledNoArgs() {
+		return CoreStrings.translate(locale, CoreStringsKey.CHANNELS);
+	}
+
+	@Benchmark
+	public String resourceBundleWithArgs() {
+		return String.format(ResourceBundle.getBundle("CoreStrings", locale).getString("shard_index"), shardIndex);
+	}
+
+	@Benchmark
+	public String compiledWithArgs() {
+		return CoreStrings.translate(locale, CoreStringsKey.SHARD_INDEX, shardIndex);
+	}
+}
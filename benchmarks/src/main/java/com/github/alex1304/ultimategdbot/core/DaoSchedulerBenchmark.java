@@ -0,0 +1,84 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Compares the schedulers {@link DaoExecutor} can run DAO calls on. Each
+ * operation is a burst of concurrent calls that block for a fixed time, like
+ * queries waiting on a database round trip, and completes when the slowest
+ * call does. Throughput is in bursts per millisecond, and the sample time
+ * percentiles are those of the slowest call of each burst, queueing included,
+ * which is the tail latency seen by a burst of commands.
+ *
+ * <p>
+ * Bounded elastic is measured with several thread caps, the real one being ten
+ * times the number of cores. Virtual threads are only available when the plugin
+ * and the benchmarks are built with -Pjava21; otherwise, the trials for them
+ * fail at setup and the others still run.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoSchedulerBenchmark {
+
+	@Param({ "bounded_elastic:16", "bounded_elastic:64", "bounded_elastic:256", "virtual" })
+	private String scheduler;
+
+	@Param({ "100", "1000" })
+	private int burstSize;
+
+	@Param({ "2" })
+	private int latencyMillis;
+
+	private Scheduler executor;
+
+	@Setup
+	public void setup() {
+		if (scheduler.equals("virtual")) {
+			executor = DaoExecutor.virtualThreadScheduler().orElseThrow(() -> new IllegalStateException(
+					"Virtual threads need the plugin and the benchmarks built with -Pjava21"));
+		} else {
+			var threadCap = Integer.parseInt(scheduler.substring(scheduler.indexOf(':') + 1));
+			executor = Schedulers.newBoundedElastic(threadCap, Integer.MAX_VALUE, "dao-benchmark");
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.dispose();
+	}
+
+	@Benchmark
+	public Long burst() {
+		return Flux.range(0, burstSize)
+				.flatMap(i -> Mono.fromCallable(this::call).subscribeOn(executor), burstSize)
+				.count()
+				.block();
+	}
+
+	private long call() throws InterruptedException {
+		Thread.sleep(latencyMillis);
+		return latencyMillis;
+	}
+}
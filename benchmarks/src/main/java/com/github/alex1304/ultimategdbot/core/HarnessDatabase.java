@@ -0,0 +1,202 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.argument.AbstractArgumentFactory;
+import org.jdbi.v3.core.argument.Argument;
+import org.jdbi.v3.core.config.ConfigRegistry;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+
+import com.github.alex1304.ultimategdbot.api.Translator;
+import com.github.alex1304.ultimategdbot.api.database.DatabaseService;
+import com.github.alex1304.ultimategdbot.api.database.guildconfig.GuildConfigDao;
+import com.github.alex1304.ultimategdbot.core.LoadHarness.CommandStats;
+
+import discord4j.common.util.Snowflake;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * File-backed H2 database for the load harness, created from the init script
+ * of the plugin and seeded with guild configurations, bot admins and
+ * blacklisted IDs. It is exposed to the plugin through a stubbed
+ * {@link DatabaseService} that runs extensions on the bounded elastic
+ * scheduler, like the real one, and counts them. A call is attributed to the
+ * command it runs for through the {@link CommandStats} found in the subscriber
+ * context. A plugin built with the java21 profile bypasses the service for its
+ * own DAOs, set database.scheduler to bounded_elastic in the harness config to
+ * count them.
+ */
+final class HarnessDatabase {
+
+	static final long FIRST_GUILD_ID = 100_000_000_000_000_000L;
+	static final long FIRST_USER_ID = 200_000_000_000_000_000L;
+	private static final int SEED_BATCH_SIZE = 10_000;
+
+	private final Jdbi jdbi;
+	private final LongAdder unattributedCalls = new LongAdder();
+	private final LongAdder failedCalls = new LongAdder();
+	private final Map<Class<?>, BiFunction<Object, Translator, Object>> configurators = new ConcurrentHashMap<>();
+
+	HarnessDatabase(Path file) {
+		this.jdbi = Jdbi.create("jdbc:h2:file:" + file.toAbsolutePath() + ";MODE=MySQL;DB_CLOSE_DELAY=-1")
+				.installPlugin(new SqlObjectPlugin());
+		// The API registers the same mappings on the Jdbi instance of the bot
+		jdbi.registerColumnMapper(Snowflake.class, (rs, col, ctx) -> {
+			var value = rs.getLong(col);
+			return rs.wasNull() ? null : Snowflake.of(value);
+		});
+		jdbi.registerArgument(new AbstractArgumentFactory<Snowflake>(Types.BIGINT) {
+			@Override
+			protected Argument build(Snowflake value, ConfigRegistry config) {
+				return (position, statement, ctx) -> statement.setLong(position, value.asLong());
+			}
+		});
+	}
+
+	/**
+	 * Creates the tables and seeds them, unless the file already holds the same
+	 * number of rows from a previous run.
+	 */
+	void prepare(Path schema, int guilds, int admins, int blacklisted) throws IOException {
+		var seeded = jdbi.withHandle(h -> {
+			try {
+				return h.select("SELECT COUNT(*) FROM core_config").mapTo(Long.class).one() == guilds
+						&& h.select("SELECT COUNT(*) FROM bot_admin").mapTo(Long.class).one() == admins
+						&& h.select("SELECT COUNT(*) FROM blacklisted_id").mapTo(Long.class).one() == blacklisted;
+			} catch (RuntimeException e) {
+				return false;
+			}
+		});
+		if (seeded) {
+			System.out.printf("Reusing seeded database: %d guilds, %d admins, %d blacklisted IDs%n", guilds, admins,
+					blacklisted);
+			return;
+		}
+		var script = Files.readAllLines(schema).stream()
+				.filter(line -> !line.startsWith("--"))
+				.collect(Collectors.joining("\n"));
+		jdbi.useHandle(h -> {
+			for (var statement : script.split(";")) {
+				var sql = statement.strip();
+				// The whole script runs in a single transaction already
+				if (!sql.isEmpty() && !sql.equalsIgnoreCase("BEGIN") && !sql.equalsIgnoreCase("COMMIT")) {
+					h.execute(sql);
+				}
+			}
+		});
+		seed("INSERT INTO core_config(guild_id, prefix, locale) VALUES (?, ?, ?)", guilds, (batch, i) -> batch
+				.bind(0, FIRST_GUILD_ID + i)
+				// One guild out of ten has a custom prefix, one out of twenty a custom locale
+				.bind(1, i % 10 == 0 ? "g" + (i % 7) + "!" : null)
+				.bind(2, i % 20 == 0 ? "fr-FR" : null));
+		seed("INSERT INTO bot_admin(user_id) VALUES (?)", admins, (batch, i) -> batch.bind(0, FIRST_USER_ID + i));
+		seed("INSERT INTO blacklisted_id(id) VALUES (?)", blacklisted,
+				(batch, i) -> batch.bind(0, FIRST_USER_ID - 1 - i));
+	}
+
+	private void seed(String sql, int count, BatchBinder binder) {
+		var start = System.nanoTime();
+		for (var from = 0; from < count; from += SEED_BATCH_SIZE) {
+			var to = Math.min(count, from + SEED_BATCH_SIZE);
+			var first = from;
+			jdbi.useTransaction(h -> {
+				var batch = h.prepareBatch(sql);
+				for (var i = first; i < to; i++) {
+					binder.bind(batch, i);
+					batch.add();
+				}
+				batch.execute();
+			});
+		}
+		System.out.printf("Seeded %d rows in %d ms: %s%n", count, (System.nanoTime() - start) / 1_000_000, sql);
+	}
+
+	/**
+	 * Creates the stubbed database service backed by this database.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	DatabaseService service() {
+		var service = StubBot.stub(DatabaseService.class);
+		doAnswer(inv -> {
+			var extensionType = (Class<Object>) inv.getArgument(0);
+			var callback = (Function<Object, Object>) inv.getArgument(1);
+			return count(Mono.fromCallable(() -> jdbi.withExtension(extensionType, callback::apply)));
+		}).when(service).withExtension(any(), any());
+		doAnswer(inv -> {
+			((Consumer<Jdbi>) inv.getArgument(0)).accept(jdbi);
+			return null;
+		}).when(service).configureJdbi(any());
+		doAnswer(inv -> {
+			configurators.put(inv.getArgument(0), (BiFunction) inv.getArgument(1));
+			return null;
+		}).when(service).addGuildConfigurator(any(), any());
+		doAnswer(inv -> {
+			Translator tr = inv.getArgument(0);
+			Snowflake guildId = inv.getArgument(1);
+			return Flux.fromIterable(configurators.entrySet())
+					.flatMap(entry -> count(Mono.fromCallable(() -> jdbi.withExtension(
+									(Class<GuildConfigDao>) entry.getKey(), dao -> {
+										var data = dao.get(guildId.asLong());
+										if (data.isEmpty()) {
+											dao.create(guildId.asLong());
+											data = dao.get(guildId.asLong());
+										}
+										return data.orElseThrow();
+									})))
+							.map(data -> entry.getValue().apply(data, tr)));
+		}).when(service).configureGuild(any(), any());
+		return service;
+	}
+
+	private <T> Mono<T> count(Mono<T> call) {
+		return Mono.subscriberContext()
+				.flatMap(ctx -> {
+					var stats = ctx.<CommandStats>getOrEmpty(CommandStats.class);
+					if (stats.isPresent()) {
+						stats.get().dbCalls.increment();
+					} else {
+						unattributedCalls.increment();
+					}
+					return call.subscribeOn(Schedulers.boundedElastic());
+				})
+				.doOnError(e -> failedCalls.increment());
+	}
+
+	/**
+	 * Gives direct access to the database, for the checks that need to hold a
+	 * transaction open.
+	 */
+	Jdbi jdbi() {
+		return jdbi;
+	}
+
+	long unattributedCalls() {
+		return unattributedCalls.sum();
+	}
+
+	long failedCalls() {
+		return failedCalls.sum();
+	}
+
+	@FunctionalInterface
+	private interface BatchBinder {
+		void bind(PreparedBatch batch, int index);
+	}
+}
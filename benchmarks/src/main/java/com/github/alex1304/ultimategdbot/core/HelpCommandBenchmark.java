@@ -0,0 +1,101 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.alex1304.ultimategdbot.api.Translator;
+import com.github.alex1304.ultimategdbot.api.command.Command;
+import com.github.alex1304.ultimategdbot.api.command.CommandDocumentation;
+import com.github.alex1304.ultimategdbot.api.command.CommandDocumentationEntry;
+import com.github.alex1304.ultimategdbot.api.command.FlagInformation;
+
+/**
+ * Formats the documentation page of a command with several subcommands and
+ * flags, as shown by the help command.
+ *
+ * <p>
+ * The command and the translator are dynamic proxies answering only the
+ * methods the help command calls.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HelpCommandBenchmark {
+
+	private Translator tr;
+	private Command cmd;
+	private String description;
+
+	@Setup
+	public void setup() {
+		var flags = new LinkedHashMap<String, FlagInformation>();
+		flags.put("page", new FlagInformation("number", "The page to open directly."));
+		flags.put("all", new FlagInformation("", "Shows the hidden entries too."));
+		var entries = new LinkedHashMap<String, CommandDocumentationEntry>();
+		entries.put("", new CommandDocumentationEntry("[command] [subcommand]",
+				"Displays the list of commands. Specify a command to get its documentation.", flags));
+		for (var i = 0; i < 8; i++) {
+			entries.put("sub" + i, new CommandDocumentationEntry("<arg" + i + ">",
+					"Runs the subcommand number " + i + ". Extra details follow in a second sentence.", Map.of()));
+		}
+		var doc = new CommandDocumentation("Displays the documentation of commands.", entries, false);
+		description = entries.get("sub0").getDescription();
+		cmd = (Command) Proxy.newProxyInstance(Command.class.getClassLoader(), new Class<?>[] { Command.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getAliases":
+							return Set.of("help", "manual", "man", "h");
+						case "getDocumentation":
+							return doc;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		var bundle = ResourceBundle.getBundle("CoreStrings", Locale.ENGLISH);
+		tr = (Translator) Proxy.newProxyInstance(Translator.class.getClassLoader(), new Class<?>[] { Translator.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getLocale":
+							return Locale.ENGLISH;
+						case "translate":
+							return String.format(bundle.getString((String) args[1]), (Object[]) args[2]);
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Benchmark
+	public String formatDoc() {
+		return HelpCommand.formatDoc(tr, cmd, "!", "--", "help", "");
+	}
+
+	@Benchmark
+	public String joinAliases() {
+		return HelpCommand.joinAliases(cmd);
+	}
+
+	@Benchmark
+	public String extractFirstSentence() {
+		return HelpCommand.extractFirstSentence(description);
+	}
+}
@@ -0,0 +1,96 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs two invalidation buses on the same embedded database, as two processes
+ * of a deployment would, and checks that each one receives the changes of the
+ * other and not its own. It also commits a change log row after a newer one,
+ * to check that the older row is still delivered.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.github.alex1304.ultimategdbot.core.InvalidationCheck \
+ *     [--schema ../sql/init/core_v6.0.3.sql]
+ * </pre>
+ *
+ * Exits with status 1 if any check fails.
+ */
+public final class InvalidationCheck {
+
+	private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+	private static final Duration DELIVERY_TIMEOUT = Duration.ofSeconds(5);
+
+	private InvalidationCheck() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		var schema = args.length == 2 && args[0].equals("--schema") ? args[1] : "../sql/init/core_v6.0.3.sql";
+		var database = new HarnessDatabase(Files.createTempDirectory("invalidation-check").resolve("core"));
+		database.prepare(Paths.get(schema), 0, 0, 0);
+		var first = new Instance(database);
+		var second = new Instance(database);
+
+		var failures = 0;
+		first.bus.publish(Invalidation.Kind.GUILD_CONFIG, 1);
+		failures += check("first to second", second.await(Invalidation.of(Invalidation.Kind.GUILD_CONFIG, 1)));
+		second.bus.publish(Invalidation.Kind.BLACKLIST, 2);
+		failures += check("second to first", first.await(Invalidation.of(Invalidation.Kind.BLACKLIST, 2)));
+		try (var handle = database.jdbi().open()) {
+			// Takes a sequence number now but only becomes visible on commit
+			handle.begin();
+			handle.execute("INSERT INTO core_change_log(origin, kind, target_id) VALUES (?, ?, ?)", "other",
+					Invalidation.Kind.BOT_ADMIN.name(), 3);
+			first.bus.publish(Invalidation.Kind.BOT_ADMIN, 4);
+			failures += check("newer row committed first", second.await(Invalidation.of(Invalidation.Kind.BOT_ADMIN, 4)));
+			handle.commit();
+		}
+		failures += check("older row committed last", second.await(Invalidation.of(Invalidation.Kind.BOT_ADMIN, 3)));
+		failures += check("own changes not received",
+				!first.received.contains(Invalidation.of(Invalidation.Kind.GUILD_CONFIG, 1))
+						&& !second.received.contains(Invalidation.of(Invalidation.Kind.BLACKLIST, 2)));
+
+		first.bus.close().block(DELIVERY_TIMEOUT);
+		second.bus.close().block(DELIVERY_TIMEOUT);
+		System.out.printf("%d check(s) failed%n", failures);
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	private static int check(String name, boolean passed) {
+		System.out.printf("%-28s %s%n", name, passed ? "OK" : "FAILED");
+		return passed ? 0 : 1;
+	}
+
+	/**
+	 * One process of the deployment, recording what it receives.
+	 */
+	private static final class Instance {
+
+		final InvalidationBus bus;
+		final Set<Invalidation> received = ConcurrentHashMap.newKeySet();
+
+		Instance(HarnessDatabase database) {
+			var transport = new DatabaseInvalidationTransport(database.service(), InvalidationBus.newOrigin(),
+					POLL_INTERVAL, 100, Duration.ofDays(1), Duration.ofSeconds(30));
+			this.bus = new InvalidationBus(transport, 100, Duration.ofMillis(50));
+			bus.markStart().block(DELIVERY_TIMEOUT);
+			bus.start(invalidation -> Mono.fromRunnable(() -> received.add(invalidation)));
+		}
+
+		boolean await(Invalidation invalidation) throws InterruptedException {
+			var deadline = System.nanoTime() + DELIVERY_TIMEOUT.toNanos();
+			while (!received.contains(invalidation)) {
+				if (System.nanoTime() - deadline > 0) {
+					return false;
+				}
+				Thread.sleep(POLL_INTERVAL.toMillis() / 2);
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import com.github.alex1304.ultimategdbot.api.command.CommandFailedException;
+import com.github.alex1304.ultimategdbot.api.command.Context;
+import com.github.alex1304.ultimategdbot.api.service.Root;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Boots the plugin against a {@link StubBot} and a seeded
+ * {@link HarnessDatabase}, then sends it a mix of commands at a fixed rate and
+ * reports throughput, latency percentiles, database calls per command and
+ * heap usage after GC.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.github.alex1304.ultimategdbot.core.LoadHarness \
+ *     [--guilds 100000] [--admins 1000] [--blacklisted 10000] [--users 10000] \
+ *     [--rate 500] [--warmup 10] [--duration 60] \
+ *     [--mix help=30,ping=30,runtime=15,setup=15,about=10] \
+ *     [--db target/loadtest/core] [--schema ../sql/init/core_v6.0.3.sql] [--config core.properties]
+ * </pre>
+ *
+ * The API dispatches commands through a gateway connection that the harness
+ * does not have, so commands are invoked directly on their instances,
+ * skipping the prefix parsing and permission checks done by the API. Latencies are measured from the time
+ * each command was due to be sent, so a harness falling behind shows up in
+ * the percentiles instead of being hidden.
+ */
+public final class LoadHarness {
+
+	private static final int MAX_RECORDED_LATENCIES = 2_000_000;
+
+	private LoadHarness() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		var options = new LinkedHashMap<String, String>();
+		options.put("guilds", "100000");
+		options.put("admins", "1000");
+		options.put("blacklisted", "10000");
+		options.put("users", "10000");
+		options.put("rate", "500");
+		options.put("warmup", "10");
+		options.put("duration", "60");
+		options.put("mix", "help=30,ping=30,runtime=15,setup=15,about=10");
+		options.put("db", "target/loadtest/core");
+		options.put("schema", "../sql/init/core_v6.0.3.sql");
+		options.put("config", "");
+		for (var i = 0; i + 1 < args.length; i += 2) {
+			if (!args[i].startsWith("--") || !options.containsKey(args[i].substring(2))) {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+			options.put(args[i].substring(2), args[i + 1]);
+		}
+		var guilds = Integer.parseInt(options.get("guilds"));
+		var users = Integer.parseInt(options.get("users"));
+		var rate = Integer.parseInt(options.get("rate"));
+
+		var dbFile = Paths.get(options.get("db"));
+		Files.createDirectories(dbFile.toAbsolutePath().getParent());
+		var database = new HarnessDatabase(dbFile);
+		database.prepare(Paths.get(options.get("schema")), guilds, Integer.parseInt(options.get("admins")),
+				Integer.parseInt(options.get("blacklisted")));
+
+		var stubBot = new StubBot(database, coreConfig(options.get("config")));
+		var startupStart = System.nanoTime();
+		var core = CoreService.create(stubBot.service(), "{bot_name} is owned by {bot_owner}.\n{version_info}")
+				.block(Duration.ofMinutes(30));
+		System.out.printf("Startup took %d ms%n", (System.nanoTime() - startupStart) / 1_000_000);
+		core.startupProfiler().phases().forEach(phase -> System.out.println("  " + phase));
+
+		var commands = commands(core);
+		var mix = mix(options.get("mix"), commands.keySet());
+		System.out.printf("Building %d synthetic contexts...%n", users);
+		var contexts = new Context[users];
+		for (var i = 0; i < users; i++) {
+			// Spreads users over the seeded guilds without walking them in order
+			var guildIndex = (int) ((i * 7919L) % guilds);
+			contexts[i] = stubBot.context(HarnessDatabase.FIRST_USER_ID + 1 + i,
+					HarnessDatabase.FIRST_GUILD_ID + guildIndex);
+		}
+
+		var heapBefore = heapAfterGc();
+		System.out.printf("Warming up for %s s...%n", options.get("warmup"));
+		run(commands, mix, contexts, rate, Duration.ofSeconds(Long.parseLong(options.get("warmup"))));
+		System.out.printf("Measuring for %s s at %d commands/s...%n", options.get("duration"), rate);
+		var duration = Duration.ofSeconds(Long.parseLong(options.get("duration")));
+		var stats = run(commands, mix, contexts, rate, duration);
+		report(stats, duration);
+		// The recorded latencies take up to 16 MB per command and would be counted as retained by the plugin
+		stats.values().forEach(s -> s.latencies.release());
+		var heapAfter = heapAfterGc();
+
+		System.out.printf("%nDB calls outside of commands: %d, failed DB calls: %d%n", database.unattributedCalls(),
+				database.failedCalls());
+		System.out.printf("Rate limiter: %d rejections, %d escalations%n", core.rateLimiter().rejectionCount(),
+				core.rateLimiter().escalationCount());
+		System.out.printf("Heap after GC: %s before load, %s after load%n", SystemUnit.format(heapBefore),
+				SystemUnit.format(heapAfter));
+
+		core.shutdown().block(Duration.ofMinutes(2));
+		System.exit(0);
+	}
+
+	private static Properties coreConfig(String file) throws IOException {
+		var props = new Properties();
+		// Keeps the working directory clean unless asked otherwise
+		props.setProperty("snapshot.enabled", "false");
+		if (!file.isEmpty()) {
+			try (Reader reader = Files.newBufferedReader(Path.of(file))) {
+				props.load(reader);
+			}
+		}
+		return props;
+	}
+
+	private static Map<String, Function<Context, Mono<Void>>> commands(CoreService core) throws ReflectiveOperationException {
+		var help = inject(new HelpCommand(), core);
+		var runtime = inject(new RuntimeCommand(), core);
+		var setup = inject(new SetupCommand(), core);
+		var about = inject(new AboutCommand(), core);
+		var ping = inject(new PingCommand(), core);
+		var commands = new LinkedHashMap<String, Function<Context, Mono<Void>>>();
+		commands.put("help", ctx -> help.run(ctx, null, null));
+		commands.put("ping", ping::run);
+		commands.put("runtime", runtime::run);
+		commands.put("setup", setup::run);
+		commands.put("about", about::run);
+		return commands;
+	}
+
+	/**
+	 * Sets the fields annotated with {@link Root}, as the API does when it
+	 * instantiates commands.
+	 */
+	private static <T> T inject(T command, CoreService core) throws ReflectiveOperationException {
+		for (var field : command.getClass().getDeclaredFields()) {
+			if (field.isAnnotationPresent(Root.class)) {
+				field.setAccessible(true);
+				field.set(command, core);
+			}
+		}
+		return command;
+	}
+
+	/**
+	 * Expands weights such as help=30,ping=70 into a table of command names to
+	 * pick from uniformly.
+	 */
+	private static String[] mix(String spec, Iterable<String> known) {
+		var table = new ArrayList<String>();
+		for (var part : spec.split(",")) {
+			var kv = part.split("=");
+			var found = false;
+			for (var name : known) {
+				found |= name.equals(kv[0].strip());
+			}
+			if (!found) {
+				throw new IllegalArgumentException("Unknown command in mix: " + kv[0]);
+			}
+			for (var i = 0; i < Integer.parseInt(kv[1].strip()); i++) {
+				table.add(kv[0].strip());
+			}
+		}
+		if (table.isEmpty()) {
+			throw new IllegalArgumentException("Empty command mix");
+		}
+		return table.toArray(String[]::new);
+	}
+
+	private static Map<String, CommandStats> run(Map<String, Function<Context, Mono<Void>>> commands, String[] mix,
+			Context[] contexts, int rate, Duration duration) throws InterruptedException {
+		var expected = (int) Math.min(MAX_RECORDED_LATENCIES, rate * duration.toSeconds() + 1);
+		var stats = new LinkedHashMap<String, CommandStats>();
+		commands.keySet().forEach(name -> stats.put(name, new CommandStats(expected)));
+		var inFlight = new AtomicInteger();
+		var intervalNanos = 1_000_000_000L / rate;
+		var start = System.nanoTime();
+		var end = start + duration.toNanos();
+		var sent = 0L;
+		var random = new SplittableRandom(42);
+		for (var now = start; now < end; now = System.nanoTime()) {
+			for (var due = start + sent * intervalNanos; due <= now && due < end; due = start + sent * intervalNanos) {
+				var name = mix[random.nextInt(mix.length)];
+				var ctx = contexts[random.nextInt(contexts.length)];
+				var commandStats = stats.get(name);
+				var dueTime = due;
+				inFlight.incrementAndGet();
+				commandStats.sent.increment();
+				Mono.defer(() -> commands.get(name).apply(ctx))
+						.subscriberContext(reactor.util.context.Context.of(CommandStats.class, commandStats))
+						.subscribe(null, e -> {
+							if (e instanceof CommandFailedException) {
+								commandStats.rejected.increment();
+							} else {
+								commandStats.errors.increment();
+								commandStats.lastError = e;
+							}
+							commandStats.latencies.record(System.nanoTime() - dueTime);
+							inFlight.decrementAndGet();
+						}, () -> {
+							commandStats.completed.increment();
+							commandStats.latencies.record(System.nanoTime() - dueTime);
+							inFlight.decrementAndGet();
+						});
+				sent++;
+			}
+			LockSupport.parkNanos(Math.min(intervalNanos, 1_000_000));
+		}
+		var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+		while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		if (inFlight.get() > 0) {
+			System.out.printf("%d commands still running after 30 s, they are left out%n", inFlight.get());
+		}
+		return stats;
+	}
+
+	private static void report(Map<String, CommandStats> stats, Duration duration) {
+		System.out.println();
+		System.out.printf("%-8s %8s %8s %8s %7s %10s %9s %9s %9s %9s %9s %9s%n", "command", "sent", "done",
+				"rejected", "errors", "cmd/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "db/cmd");
+		var totalSent = 0L;
+		var totalDone = 0L;
+		for (var entry : stats.entrySet()) {
+			var s = entry.getValue();
+			var done = s.completed.sum() + s.rejected.sum();
+			var percentiles = s.latencies.percentiles(50, 90, 99, 99.9, 100);
+			System.out.printf("%-8s %8d %8d %8d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(),
+					s.sent.sum(), s.completed.sum(), s.rejected.sum(), s.errors.sum(),
+					done / (double) duration.toSeconds(),
+					percentiles[0], percentiles[1], percentiles[2], percentiles[3], percentiles[4],
+					done == 0 ? 0 : s.dbCalls.sum() / (double) done);
+			totalSent += s.sent.sum();
+			totalDone += done;
+			if (s.lastError != null) {
+				System.out.println("  last error: " + s.lastError);
+			}
+		}
+		System.out.printf("%nTotal: %d sent, %d answered, %.1f commands/s%n", totalSent, totalDone,
+				totalDone / (double) duration.toSeconds());
+	}
+
+	private static long heapAfterGc() throws InterruptedException {
+		for (var i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * What happened to the commands of one kind during a run. Also put in the
+	 * subscriber context of the commands so that the database can attribute its
+	 * calls.
+	 */
+	static final class CommandStats {
+
+		final LongAdder sent = new LongAdder();
+		final LongAdder completed = new LongAdder();
+		final LongAdder rejected = new LongAdder();
+		final LongAdder errors = new LongAdder();
+		final LongAdder dbCalls = new LongAdder();
+		final LatencyRecorder latencies;
+		volatile Throwable lastError;
+
+		CommandStats(int expected) {
+			this.latencies = new LatencyRecorder(expected);
+		}
+	}
+
+	/**
+	 * Keeps every latency up to a fixed capacity, so that percentiles are exact
+	 * rather than estimated from buckets.
+	 */
+	static final class LatencyRecorder {
+
+		private long[] values;
+		private final AtomicInteger count = new AtomicInteger();
+
+		LatencyRecorder(int capacity) {
+			this.values = new long[capacity];
+		}
+
+		void record(long nanos) {
+			var values = this.values;
+			var i = count.getAndIncrement();
+			if (i < values.length) {
+				values[i] = nanos;
+			}
+		}
+
+		/**
+		 * @return the requested percentiles in milliseconds
+		 */
+		double[] percentiles(double... percentiles) {
+			var n = Math.min(count.get(), values.length);
+			var sorted = Arrays.copyOf(values, n);
+			Arrays.sort(sorted);
+			var result = new double[percentiles.length];
+			for (var i = 0; i < percentiles.length; i++) {
+				if (n > 0) {
+					var index = (int) Math.min(n - 1, Math.ceil(percentiles[i] / 100 * n) - 1);
+					result[i] = sorted[Math.max(0, index)] / 1_000_000.0;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Drops the recorded latencies so that they no longer take heap space.
+		 * Latencies recorded afterwards are ignored.
+		 */
+		void release() {
+			values = new long[0];
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.alex1304.ultimategdbot.api.command.CommandService;
+import com.github.alex1304.ultimategdbot.api.command.Context;
+import com.github.alex1304.ultimategdbot.api.command.PermissionChecker;
+import com.github.alex1304.ultimategdbot.api.command.PermissionLevel;
+import com.github.alex1304.ultimategdbot.api.database.DatabaseService;
+import com.github.alex1304.ultimategdbot.core.database.BotAdminDao;
+
+import discord4j.common.util.Snowflake;
+import discord4j.core.event.domain.message.MessageCreateEvent;
+import discord4j.core.object.entity.Guild;
+import discord4j.core.object.entity.Message;
+import discord4j.core.object.entity.User;
+import discord4j.core.object.entity.channel.TextChannel;
+import discord4j.rest.util.Permission;
+import discord4j.rest.util.PermissionSet;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs the permission checks registered by the plugin against a stubbed
+ * context in which every check passes. Everything the checks would fetch from
+ * Discord or from the database is already resolved, so this measures the
+ * overhead of the checks themselves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionCheckerBenchmark {
+
+	@Param({ "BOT_OWNER", "BOT_ADMIN", "GUILD_OWNER", "GUILD_ADMIN" })
+	private String level;
+
+	private PermissionLevel permissionLevel;
+	private PermissionChecker permissionChecker;
+	private Context ctx;
+
+	/**
+	 * The checks call the mocks millions of times, recording those invocations
+	 * would fill the heap.
+	 */
+	private static <T> T stub(Class<T> type) {
+		return mock(type, withSettings().stubOnly());
+	}
+
+	@Setup
+	public void setup() {
+		permissionLevel = PermissionLevel.valueOf(level);
+		var userId = Snowflake.of(272872694473687041L);
+		var user = stub(User.class);
+		when(user.getId()).thenReturn(userId);
+		var guild = stub(Guild.class);
+		when(guild.getOwnerId()).thenReturn(userId);
+		var channel = stub(TextChannel.class);
+		when(channel.getEffectivePermissions(userId)).thenReturn(Mono.just(PermissionSet.of(Permission.ADMINISTRATOR)));
+		var message = stub(Message.class);
+		when(message.getChannel()).thenReturn(Mono.just(channel));
+		var event = stub(MessageCreateEvent.class);
+		when(event.getGuild()).thenReturn(Mono.just(guild));
+		when(event.getMessage()).thenReturn(message);
+		ctx = stub(Context.class);
+		when(ctx.author()).thenReturn(user);
+		when(ctx.event()).thenReturn(event);
+		var database = stub(DatabaseService.class);
+		doReturn(Mono.just(Optional.of(userId.asLong()))).when(database).withExtension(eq(BotAdminDao.class), any());
+		permissionChecker = new PermissionChecker();
+		var commandService = stub(CommandService.class);
+		when(commandService.getPermissionChecker()).thenReturn(permissionChecker);
+		CoreService.initCommandProvider(Mono.just(user), new DaoExecutor(database, null), commandService);
+	}
+
+	@Benchmark
+	public Boolean isGranted() {
+		return permissionChecker.isGranted(permissionLevel, ctx).block();
+	}
+}
@@ -0,0 +1,172 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.ResourceBundle;
+import java.util.function.Consumer;
+
+import org.mockito.stubbing.Answer;
+
+import com.github.alex1304.ultimategdbot.api.command.CommandService;
+import com.github.alex1304.ultimategdbot.api.command.Context;
+import com.github.alex1304.ultimategdbot.api.command.PermissionChecker;
+import com.github.alex1304.ultimategdbot.api.command.menu.InteractiveMenu;
+import com.github.alex1304.ultimategdbot.api.command.menu.InteractiveMenuService;
+import com.github.alex1304.ultimategdbot.api.localization.LocalizationService;
+import com.github.alex1304.ultimategdbot.api.service.BotService;
+import com.github.alex1304.ultimategdbot.api.util.PropertyReader;
+
+import discord4j.common.util.Snowflake;
+import discord4j.core.GatewayDiscordClient;
+import discord4j.core.GatewayResources;
+import discord4j.core.event.domain.message.MessageCreateEvent;
+import discord4j.core.object.entity.ApplicationInfo;
+import discord4j.core.object.entity.Message;
+import discord4j.core.object.entity.User;
+import discord4j.core.object.entity.channel.TextChannel;
+import discord4j.core.shard.ShardInfo;
+import discord4j.core.state.StateView;
+import discord4j.store.api.Store;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link BotService} that is not connected to Discord, for the load harness.
+ * The database is real, everything else answers immediately: replies and menus
+ * complete without sending anything, and the gateway cache reports fixed
+ * sizes. Messages are synthetic {@link MessageCreateEvent}s wrapped in command
+ * contexts, built once and reused so that mocking does not weigh on the
+ * measurements.
+ */
+final class StubBot {
+
+	private static final String PREFIX = "!";
+
+	private final BotService bot;
+	private final GatewayDiscordClient gateway;
+
+	StubBot(HarnessDatabase database, Properties coreConfig) {
+		var owner = user(HarnessDatabase.FIRST_USER_ID);
+		var applicationInfo = stub(ApplicationInfo.class);
+		when(applicationInfo.getOwner()).thenReturn(Mono.just(owner));
+		gateway = stub(GatewayDiscordClient.class);
+		when(gateway.getApplicationInfo()).thenReturn(Mono.just(applicationInfo));
+		when(gateway.onDisconnect()).thenReturn(Mono.never());
+		when(gateway.getGuilds()).thenReturn(Flux.empty());
+		when(gateway.getSelf()).thenReturn(Mono.just(user(1)));
+		var store = stub(Store.class);
+		when(store.count()).thenReturn(Mono.just(1000L));
+		var stateView = stub(StateView.class, inv -> store);
+		var resources = stub(GatewayResources.class);
+		when(resources.getStateView()).thenReturn(stateView);
+		when(gateway.getGatewayResources()).thenReturn(resources);
+
+		var localization = stub(LocalizationService.class);
+		when(localization.getLocale()).thenReturn(Locale.ENGLISH);
+		doAnswer(translate(Locale.ENGLISH)).when(localization).translate(anyString(), anyString(), any());
+
+		var command = stub(CommandService.class);
+		when(command.getCommandPrefix()).thenReturn(PREFIX);
+		when(command.getFlagPrefix()).thenReturn("--");
+		when(command.getPermissionChecker()).thenReturn(new PermissionChecker());
+
+		var menu = stub(InteractiveMenu.class, RETURNS_SELF);
+		when(menu.open(any())).thenReturn(Mono.empty());
+		// Every way of creating a menu gives one that completes as soon as it is opened
+		var menuService = stub(InteractiveMenuService.class, inv -> inv.getMethod().getReturnType() == InteractiveMenu.class
+				? menu
+				: RETURNS_DEEP_STUBS.answer(inv));
+
+		bot = stub(BotService.class, RETURNS_DEEP_STUBS);
+		when(bot.config().resource("core")).thenReturn(PropertyReader.fromProperties(coreConfig));
+		when(bot.database()).thenReturn(database.service());
+		when(bot.command()).thenReturn(command);
+		when(bot.localization()).thenReturn(localization);
+		when(bot.gateway()).thenReturn(gateway);
+		when(bot.logging().log(any())).thenReturn(Mono.empty());
+		when(bot.interactiveMenu()).thenReturn(menuService);
+	}
+
+	BotService service() {
+		return bot;
+	}
+
+	/**
+	 * Builds the context of a synthetic message sent in a guild.
+	 *
+	 * @param userId  the author of the message
+	 * @param guildId the guild the message is sent in
+	 * @return the context
+	 */
+	Context context(long userId, long guildId) {
+		var author = user(userId);
+		var sent = stub(Message.class);
+		when(sent.edit(any())).thenReturn(Mono.just(sent));
+		var channel = stub(TextChannel.class);
+		when(channel.typeUntil(any())).thenAnswer(inv -> Flux.from(inv.getArgument(0)));
+		when(channel.getEffectivePermissions(any())).thenReturn(Mono.empty());
+		var message = stub(Message.class);
+		when(message.getChannel()).thenReturn(Mono.just(channel));
+		var event = stub(MessageCreateEvent.class);
+		when(event.getMessage()).thenReturn(message);
+		when(event.getGuildId()).thenReturn(Optional.of(Snowflake.of(guildId)));
+		when(event.getGuild()).thenReturn(Mono.empty());
+		when(event.getClient()).thenReturn(gateway);
+		when(event.getShardInfo()).thenReturn(ShardInfo.create(0, 1));
+		var ctx = stub(Context.class);
+		when(ctx.author()).thenReturn(author);
+		when(ctx.event()).thenReturn(event);
+		when(ctx.channel()).thenReturn(channel);
+		when(ctx.prefixUsed()).thenReturn(PREFIX);
+		when(ctx.getLocale()).thenReturn(Locale.ENGLISH);
+		when(ctx.reply(anyString())).thenReturn(Mono.just(sent));
+		when(ctx.reply(any(Consumer.class))).thenReturn(Mono.just(sent));
+		doAnswer(translate(Locale.ENGLISH)).when(ctx).translate(anyString(), anyString(), any());
+		return ctx;
+	}
+
+	private static User user(long id) {
+		var user = stub(User.class);
+		when(user.getId()).thenReturn(Snowflake.of(id));
+		when(user.getUsername()).thenReturn("user" + id);
+		when(user.getTag()).thenReturn("user" + id + "#0001");
+		return user;
+	}
+
+	static <T> T stub(Class<T> type) {
+		return stub(type, RETURNS_DEFAULTS);
+	}
+
+	/**
+	 * Creates a mock that does not record its invocations, otherwise they would
+	 * pile up for the whole run.
+	 */
+	static <T> T stub(Class<T> type, Answer<?> defaultAnswer) {
+		return mock(type, withSettings().stubOnly().defaultAnswer(defaultAnswer));
+	}
+
+	private static Answer<String> translate(Locale locale) {
+		return inv -> {
+			var args = inv.getArguments();
+			var bundle = ResourceBundle.getBundle((String) args[0], locale);
+			var formatArgs = Arrays.copyOfRange(args, 2, args.length);
+			// Varargs may reach the answer either expanded or as a single array
+			if (formatArgs.length == 1 && formatArgs[0] instanceof Object[]) {
+				formatArgs = (Object[]) formatArgs[0];
+			}
+			return String.format(bundle.getString((String) args[1]), formatArgs);
+		};
+	}
+}
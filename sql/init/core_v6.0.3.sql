@@ -0,0 +1,60 @@
+-- v6.0.3 init --
+BEGIN;
+
+DROP TABLE IF EXISTS core_config;
+CREATE TABLE core_config(
+	guild_id BIGINT PRIMARY KEY,
+	prefix VARCHAR(64),
+	channel_changelog_id BIGINT,
+	locale VARCHAR(64),
+	stale_since TIMESTAMP NULL
+);
+CREATE INDEX core_config_stale_since ON core_config(stale_since);
+
+DROP TABLE IF EXISTS bot_admin;
+CREATE TABLE bot_admin(
+	user_id BIGINT PRIMARY KEY
+);
+
+DROP TABLE IF EXISTS blacklisted_id;
+CREATE TABLE blacklisted_id(
+	id BIGINT PRIMARY KEY
+);
+
+DROP TABLE IF EXISTS core_change_log;
+CREATE TABLE core_change_log(
+	seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+	origin VARCHAR(64) NOT NULL,
+	kind VARCHAR(32) NOT NULL,
+	target_id BIGINT NOT NULL,
+	created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX core_change_log_created_at ON core_change_log(created_at);
+
+DROP TABLE IF EXISTS core_changelog_delivery;
+DROP TABLE IF EXISTS core_changelog_job;
+CREATE TABLE core_changelog_job(
+	id BIGINT AUTO_INCREMENT PRIMARY KEY,
+	payload TEXT NOT NULL,
+	author_name VARCHAR(128) NOT NULL,
+	author_icon_url VARCHAR(512) NOT NULL,
+	created_at TIMESTAMP NOT NULL,
+	status VARCHAR(16) NOT NULL,
+	finished_at TIMESTAMP NULL
+);
+CREATE INDEX core_changelog_job_finished_at ON core_changelog_job(finished_at);
+
+CREATE TABLE core_changelog_delivery(
+	job_id BIGINT NOT NULL,
+	channel_id BIGINT NOT NULL,
+	state VARCHAR(16) NOT NULL,
+	attempts INT NOT NULL DEFAULT 0,
+	claimed_by VARCHAR(64),
+	claimed_at TIMESTAMP NULL,
+	claim_token VARCHAR(64),
+	PRIMARY KEY (job_id, channel_id),
+	FOREIGN KEY (job_id) REFERENCES core_changelog_job(id) ON DELETE CASCADE
+);
+CREATE INDEX core_changelog_delivery_state ON core_changelog_delivery(job_id, state);
+
+COMMIT;
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the CoreStrings bundles into a key enum and a table of string
+ * constants, so that the plugin can look up translations without going through
+ * ResourceBundle at runtime. Launched as a single-file source program during
+ * the generate-sources phase:
+ *
+ * <pre>
+ * java CoreStringsGenerator.java &lt;resources dir&gt; &lt;output dir&gt;
+ * </pre>
+ */
+public class CoreStringsGenerator {
+
+	private static final String BUNDLE = "CoreStrings";
+	private static final String PACKAGE = "com.github.alex1304.ultimategdbot.core";
+	private static final Pattern BUNDLE_FILE = Pattern.compile(BUNDLE + "(_[a-zA-Z]{2,3})?(_[a-zA-Z]{2})?\\.properties");
+	private static final Pattern KEY = Pattern.compile("[a-z][a-z0-9_]*");
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java CoreStringsGenerator.java <resources dir> <output dir>");
+			System.exit(1);
+		}
+		var resources = Paths.get(args[0]);
+		var output = Paths.get(args[1]).resolve(PACKAGE.replace('.', '/'));
+		var bundles = new TreeMap<String, Properties>();
+		try (var files = Files.list(resources)) {
+			for (var file : files.collect(Collectors.toList())) {
+				var matcher = BUNDLE_FILE.matcher(file.getFileName().toString());
+				if (!matcher.matches()) {
+					continue;
+				}
+				var tag = new Locale(strip(matcher.group(1)), strip(matcher.group(2))).toLanguageTag();
+				var props = new Properties();
+				try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+					props.load(reader);
+				}
+				bundles.put(matcher.group(1) == null ? "" : tag, props);
+			}
+		}
+		var base = bundles.get("");
+		if (base == null) {
+			throw new IllegalStateException("Base bundle " + BUNDLE + ".properties not found in " + resources);
+		}
+		var keys = new ArrayList<>(new TreeMap<>(base).keySet().stream().map(Object::toString)
+				.collect(Collectors.toList()));
+		for (var key : keys) {
+			if (!KEY.matcher(key).matches()) {
+				throw new IllegalStateException("Key '" + key + "' cannot be turned into an enum constant");
+			}
+		}
+		bundles.forEach((tag, props) -> props.stringPropertyNames().stream()
+				.filter(key -> !base.containsKey(key))
+				.forEach(key -> System.err.println("[WARNING] " + BUNDLE + " (" + tag
+						+ "): key '" + key + "' is not in the base bundle and will be ignored")));
+		Files.createDirectories(output);
+		writeKeyEnum(output.resolve(BUNDLE + "Key.java"), keys);
+		writeTable(output.resolve(BUNDLE + "Table.java"), keys, bundles);
+	}
+
+	private static String strip(String group) {
+		return group == null ? "" : group.substring(1);
+	}
+
+	private static void writeKeyEnum(Path file, List<String> keys) throws IOException {
+		try (var out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			out.println("package " + PACKAGE + ";");
+			out.println();
+			out.println("/**");
+			out.println(" * Keys of the " + BUNDLE + " bundle. Generated by CoreStringsGenerator, do not edit.");
+			out.println(" */");
+			out.println("public enum " + BUNDLE + "Key {");
+			for (var i = 0; i < keys.size(); i++) {
+				var key = keys.get(i);
+				out.println("\t" + key.toUpperCase(Locale.ROOT) + "(\"" + key + "\")"
+						+ (i == keys.size() - 1 ? ";" : ","));
+			}
+			out.println();
+			out.println("\tprivate final String key;");
+			out.println();
+			out.println("\t" + BUNDLE + "Key(String key) {");
+			out.println("\t\tthis.key = key;");
+			out.println("\t}");
+			out.println();
+			out.println("\t/**");
+			out.println("\t * Gets the key as written in the properties files.");
+			out.println("\t * ");
+			out.println("\t * @return the key");
+			out.println("\t */");
+			out.println("\tpublic String key() {");
+			out.println("\t\treturn key;");
+			out.println("\t}");
+			out.println("}");
+		}
+	}
+
+	private static void writeTable(Path file, List<String> keys, TreeMap<String, Properties> bundles)
+			throws IOException {
+		try (var out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			out.println("package " + PACKAGE + ";");
+			out.println();
+			out.println("import java.util.Locale;");
+			out.println();
+			out.println("/**");
+			out.println(" * Contents of the " + BUNDLE + " bundles, indexed by locale then by key ordinal. A");
+			out.println(" * null value means that the key is not translated in that locale. Generated by");
+			out.println(" * CoreStringsGenerator, do not edit.");
+			out.println(" */");
+			out.println("final class " + BUNDLE + "Table {");
+			out.println();
+			out.println("\tstatic final Locale[] LOCALES = {");
+			for (var tag : bundles.keySet()) {
+				out.println("\t\t" + (tag.isEmpty() ? "Locale.ROOT" : "Locale.forLanguageTag(\"" + tag + "\")") + ",");
+			}
+			out.println("\t};");
+			out.println();
+			out.println("\tstatic final String[][] VALUES = {");
+			for (var tag : bundles.keySet()) {
+				out.println("\t\t" + methodName(tag) + "(),");
+			}
+			out.println("\t};");
+			// One method per locale keeps each method well under the bytecode size limit
+			for (var entry : bundles.entrySet()) {
+				out.println();
+				out.println("\tprivate static String[] " + methodName(entry.getKey()) + "() {");
+				out.println("\t\treturn new String[] {");
+				for (var key : keys) {
+					var value = entry.getValue().getProperty(key);
+					out.println("\t\t\t" + (value == null ? "null" : quote(value)) + ",");
+				}
+				out.println("\t\t};");
+				out.println("\t}");
+			}
+			out.println();
+			out.println("\tprivate " + BUNDLE + "Table() {");
+			out.println("\t}");
+			out.println("}");
+		}
+	}
+
+	private static String methodName(String tag) {
+		return tag.isEmpty() ? "root" : tag.replace('-', '_');
+	}
+
+	private static String quote(String value) {
+		var sb = new StringBuilder("\"");
+		for (var c : value.toCharArray()) {
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20 || c > 0x7e) {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -3,11 +3,14 @@ package com.github.alex1304.ultimategdbot.core;
 import static com.github.alex1304.ultimategdbot.api.util.VersionUtils.API_GIT_RESOURCE;
 import static reactor.function.TupleUtils.function;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
-import com.github.alex1304.ultimategdbot.api.Translator;
 import com.github.alex1304.ultimategdbot.api.command.Context;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandAction;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDescriptor;
@@ -27,6 +30,9 @@ import reactor.core.scheduler.Schedulers;
 public final class AboutCommand {
 
 	private static final Mono<Properties> D4J_PROPS = Mono.fromCallable(GitProperties::getProperties).cache();
+	private static final Duration FOREVER = Duration.ofMillis(Long.MAX_VALUE);
+	
+	private final Map<Locale, Mono<String>> versionInfo = new ConcurrentHashMap<>();
 	
 	@Root
 	private CoreService core;
@@ -34,18 +40,39 @@ public final class AboutCommand {
 	@CommandAction
 	@CommandDoc("tr:CoreStrings/about_run")
 	public Mono<Void> run(Context ctx) {
-		return Mono.zip(D4J_PROPS.map(PropertyReader::fromProperties).transform(props -> version(ctx, props)),
-						VersionUtils.getGitProperties(API_GIT_RESOURCE).transform(props -> version(ctx, props)),
+		var stateView = ctx.event().getClient().getGatewayResources().getStateView();
+		return core.runCommand(ctx, "about", Mono.zip(versionInfo.computeIfAbsent(ctx.getLocale(), this::versionInfo),
 						core.botOwner(),
 						ctx.event().getClient().getSelf(),
-						ctx.event().getClient().getGuilds().count())
-				.flatMap(function((d4jVersion, apiVersion, botOwner, self, guildCount) -> {
+						stateView.getGuildStore().count())
+				.flatMap(function((versionInfo, botOwner, self, guildCount) -> {
+					var vars = new HashMap<String, String>();
+					vars.put("bot_name", self.getUsername());
+					vars.put("bot_owner", botOwner.getTag());
+					vars.put("server_count", "" + guildCount);
+					vars.put("version_info", versionInfo);
+					return Tracer.span("menu", core.bot().interactiveMenu()
+							.createPaginated(core.aboutTemplate().render(vars), 1990)
+							.open(ctx));
+				}))
+				.then());
+	}
+	
+	/**
+	 * The versions and the list of plugins never change after startup, so this
+	 * is computed only once per locale. A failure is not cached, the next
+	 * invocation tries again.
+	 */
+	private Mono<String> versionInfo(Locale locale) {
+		return Mono.zip(D4J_PROPS.map(PropertyReader::fromProperties).transform(props -> version(locale, props)),
+						VersionUtils.getGitProperties(API_GIT_RESOURCE).transform(props -> version(locale, props)))
+				.map(function((d4jVersion, apiVersion) -> {
 					var versionInfoBuilder = new StringBuilder("**")
-							.append(ctx.translate("CoreStrings", "ugdb_api_version"))
+							.append(CoreStrings.translate(locale, CoreStringsKey.UGDB_API_VERSION))
 							.append("** ");
 					versionInfoBuilder.append(apiVersion).append("\n");
 					versionInfoBuilder.append("**");
-					versionInfoBuilder.append(ctx.translate("CoreStrings", "d4j_version"));
+					versionInfoBuilder.append(CoreStrings.translate(locale, CoreStringsKey.D4J_VERSION));
 					versionInfoBuilder.append("** ")
 							.append(d4jVersion)
 							.append("\n");
@@ -53,22 +80,22 @@ public final class AboutCommand {
 						versionInfoBuilder.append("**")
 								.append(pluginMetadata.getName())
 								.append(' ')
-								.append(ctx.translate("CoreStrings", "plugin"))
+								.append(CoreStrings.translate(locale, CoreStringsKey.PLUGIN))
 								.append("**\n")
 								.append("> **")
-								.append(ctx.translate("CoreStrings", "version"))
+								.append(CoreStrings.translate(locale, CoreStringsKey.VERSION))
 								.append("** ")
-								.append(pluginMetadata.getVersion().orElse("*" + ctx.translate("CoreStrings", "unknown") + "*"))
+								.append(pluginMetadata.getVersion().orElse("*" + CoreStrings.translate(locale, CoreStringsKey.UNKNOWN) + "*"))
 								.append(pluginMetadata.getDescription()
-										.map(s -> "\n> **" + ctx.translate("CoreStrings", "description") + "** " + s)
+										.map(s -> "\n> **" + CoreStrings.translate(locale, CoreStringsKey.DESCRIPTION) + "** " + s)
 										.orElse(""));
 						if (!pluginMetadata.getDevelopers().isEmpty()) {
 							versionInfoBuilder.append(pluginMetadata.getDevelopers().stream()
-									.collect(Collectors.joining(", ", "\n> **" + ctx.translate("CoreStrings", "developers") + "** ", "")));
+									.collect(Collectors.joining(", ", "\n> **" + CoreStrings.translate(locale, CoreStringsKey.DEVELOPERS) + "** ", "")));
 						}
 						versionInfoBuilder
 								.append(pluginMetadata.getUrl()
-										.map(s -> "\n> **" + ctx.translate("CoreStrings", "url") + "** <" + s + ">")
+										.map(s -> "\n> **" + CoreStrings.translate(locale, CoreStringsKey.URL) + "** <" + s + ">")
 										.orElse(""))
 								.append('\n');
 					}
@@ -76,24 +103,15 @@ public final class AboutCommand {
 					if (!core.bot().pluginMetadata().all().isEmpty()) {
 						versionInfoBuilder.deleteCharAt(versionInfoBuilder.length() - 1);
 					}
-					var vars = new HashMap<String, String>();
-					vars.put("bot_name", self.getUsername());
-					vars.put("bot_owner", botOwner.getTag());
-					vars.put("server_count", "" + guildCount);
-					vars.put("version_info", versionInfoBuilder.toString());
-					var box = new Object() { private String text = core.aboutText(); };
-					vars.forEach((k, v) -> box.text = box.text.replaceAll("\\{\\{ *" + k + " *\\}\\}", "" + v));
-					return core.bot().interactiveMenu()
-							.createPaginated(box.text, 1990)
-							.open(ctx);
+					return versionInfoBuilder.toString();
 				}))
 				.subscribeOn(Schedulers.boundedElastic())
-				.then();
+				.cache(value -> FOREVER, error -> Duration.ZERO, () -> Duration.ZERO);
 	}
 	
-	private static Mono<String> version(Translator tr, Mono<PropertyReader> props) {
+	private static Mono<String> version(Locale locale, Mono<PropertyReader> props) {
 		return props.map(p -> p.readOptional(GitProperties.APPLICATION_VERSION)
-						.orElse("*" + tr.translate("CoreStrings", "unknown") + "*"))
-				.defaultIfEmpty("*" + tr.translate("CoreStrings", "unknown") + "*");
+						.orElse("*" + CoreStrings.translate(locale, CoreStringsKey.UNKNOWN) + "*"))
+				.defaultIfEmpty("*" + CoreStrings.translate(locale, CoreStringsKey.UNKNOWN) + "*");
 	}
 }
@@ -0,0 +1,79 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Text with <code>{{ variable }}</code> placeholders, parsed once into literal
+ * segments and variable slots so that rendering is a sequence of appends.
+ */
+public final class AboutTemplate {
+	
+	private static final Pattern VARIABLE = Pattern.compile("\\{\\{ *(\\w+) *\\}\\}");
+	
+	private final String[] literals;
+	private final String[] variables;
+	private final String[] placeholders;
+	private final int literalLength;
+	
+	private AboutTemplate(String[] literals, String[] variables, String[] placeholders) {
+		this.literals = literals;
+		this.variables = variables;
+		this.placeholders = placeholders;
+		var length = 0;
+		for (var literal : literals) {
+			length += literal.length();
+		}
+		this.literalLength = length;
+	}
+	
+	/**
+	 * Parses the given text into a template.
+	 * 
+	 * @param text the text to parse
+	 * @return the compiled template
+	 */
+	public static AboutTemplate compile(String text) {
+		var literals = new ArrayList<String>();
+		var variables = new ArrayList<String>();
+		var placeholders = new ArrayList<String>();
+		var matcher = VARIABLE.matcher(text);
+		var last = 0;
+		while (matcher.find()) {
+			literals.add(text.substring(last, matcher.start()));
+			variables.add(matcher.group(1));
+			placeholders.add(matcher.group());
+			last = matcher.end();
+		}
+		literals.add(text.substring(last));
+		return new AboutTemplate(literals.toArray(String[]::new), variables.toArray(String[]::new),
+				placeholders.toArray(String[]::new));
+	}
+	
+	/**
+	 * Renders the template. Placeholders of variables that have no value are
+	 * left as is.
+	 * 
+	 * @param values the value of each variable
+	 * @return the rendered text
+	 */
+	public String render(Map<String, String> values) {
+		var sb = new StringBuilder(literalLength + 64 * variables.length);
+		for (var i = 0 ; i < variables.length ; i++) {
+			sb.append(literals[i]);
+			var value = values.get(variables[i]);
+			sb.append(value != null ? value : placeholders[i]);
+		}
+		return sb.append(literals[literals.length - 1]).toString();
+	}
+	
+	/**
+	 * @return the names of the variables used in this template, in order of
+	 *         appearance
+	 */
+	public List<String> variables() {
+		return List.of(variables);
+	}
+}
@@ -27,26 +27,34 @@ public final class BlacklistCommand {
 	@CommandAction("add")
 	@CommandDoc("tr:CoreStrings/blacklist_run_add")
 	public Mono<Void> runAdd(Context ctx, long id) {
-		return core.bot().database()
+		return core.runCommand(ctx, "blacklist", core.daoExecutor()
 				.withExtension(BlacklistedIdDao.class, dao -> dao.insertIfNotExists(id))
 				.filter(isEqual(true))
-				.switchIfEmpty(Mono.error(new CommandFailedException(ctx.translate("CoreStrings", "error_already_blacklisted"))))
-				.then(Mono.fromRunnable(() -> core.bot().command().blacklist(id)))
-				.then(ctx.reply(ctx.translate("CoreStrings", "blacklist_success", id))
-						.and(core.bot().logging().log(core.bot().localization()
-								.translate("CoreStrings", "blacklist_log") + ": " + id)));
+				.switchIfEmpty(Mono.error(new CommandFailedException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_ALREADY_BLACKLISTED))))
+				.then(Mono.fromRunnable(() -> {
+					core.bot().command().blacklist(id);
+					core.invalidationBus().publish(Invalidation.Kind.BLACKLIST, id);
+				}))
+				.then(ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.BLACKLIST_SUCCESS, id))
+						.and(core.logSink().log(CoreStrings.translate(core.bot().localization().getLocale(),
+								CoreStringsKey.BLACKLIST_LOG) + ": " + id))));
 	}
 
 	@CommandAction("remove")
 	@CommandDoc("tr:CoreStrings/blacklist_run_remove")
 	public Mono<Void> runRemove(Context ctx, long id) {
-		return core.bot().database()
+		return core.runCommand(ctx, "blacklist", core.daoExecutor()
 				.withExtension(BlacklistedIdDao.class, dao -> dao.delete(id))
+				// Also ends a blacklist given by the rate limiter, along with its pending lift
+				.map(deleted -> core.rateLimiter().liftTemporaryBlacklist(id) || deleted)
 				.filter(isEqual(true))
-				.switchIfEmpty(Mono.error(new CommandFailedException(ctx.translate("CoreStrings", "error_already_not_blacklisted"))))
-				.then(Mono.fromRunnable(() -> core.bot().command().unblacklist(id)))
-				.then(ctx.reply(ctx.translate("CoreStrings", "unblacklist_success", id))
-						.and(core.bot().logging().log(core.bot().localization()
-								.translate("CoreStrings", "unblacklist_log") + ": " + id)));
+				.switchIfEmpty(Mono.error(new CommandFailedException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_ALREADY_NOT_BLACKLISTED))))
+				.then(Mono.fromRunnable(() -> {
+					core.bot().command().unblacklist(id);
+					core.invalidationBus().publish(Invalidation.Kind.BLACKLIST, id);
+				}))
+				.then(ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.UNBLACKLIST_SUCCESS, id))
+						.and(core.logSink().log(CoreStrings.translate(core.bot().localization().getLocale(),
+								CoreStringsKey.UNBLACKLIST_LOG) + ": " + id))));
 	}
 }
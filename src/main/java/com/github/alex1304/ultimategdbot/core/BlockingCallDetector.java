@@ -0,0 +1,238 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Finds blocking calls made on threads that must never block, such as the
+ * Reactor parallel scheduler and the Netty event loops. The stacks of those
+ * threads are sampled at a fixed interval. A sample counts as a blocking call
+ * if the thread is waiting for a monitor, is parked or sleeping outside of
+ * the idle wait of its pool, or is running one of the known blocking I/O
+ * methods. Identical stacks are merged and counted.
+ *
+ * <p>
+ * Only the matching threads are dumped, which keeps each sample cheap. A
+ * blocking call shorter than the interval is only caught now and then, so a
+ * long interval suits production while a short one finds everything during
+ * testing.
+ */
+public final class BlockingCallDetector {
+
+	private static final Logger LOGGER = Loggers.getLogger(BlockingCallDetector.class);
+
+	/**
+	 * Frames in which a thread sits on a blocking native call while still being
+	 * reported as runnable.
+	 */
+	private static final List<String> BLOCKING_FRAMES = List.of(
+			"java.io.FileInputStream.read",
+			"java.io.FileOutputStream.write",
+			"java.io.RandomAccessFile.read",
+			"java.io.RandomAccessFile.write",
+			"java.io.UnixFileSystem.",
+			"java.io.WinNTFileSystem.",
+			"java.net.SocketInputStream.socketRead",
+			"java.net.SocketOutputStream.socketWrite",
+			"java.net.PlainSocketImpl.socketConnect",
+			"java.net.Inet6AddressImpl.lookupAllHostAddr",
+			"java.net.Inet4AddressImpl.lookupAllHostAddr",
+			"sun.nio.ch.FileDispatcherImpl.",
+			"sun.nio.fs.UnixNativeDispatcher.",
+			"sun.nio.fs.WindowsNativeDispatcher.");
+
+	/**
+	 * Frames in which an idle pool thread waits for its next task.
+	 */
+	private static final List<String> IDLE_FRAMES = List.of(
+			"java.util.concurrent.ThreadPoolExecutor.getTask",
+			"java.util.concurrent.ForkJoinPool.awaitWork");
+
+	private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+	private final Duration interval;
+	private final Pattern threadNames;
+	private final int maxDepth;
+	private final int maxStacks;
+	private final Map<Long, Boolean> monitoredThreads = new ConcurrentHashMap<>();
+	private final Map<List<StackTraceElement>, BlockingCall> calls = new ConcurrentHashMap<>();
+	private final LongAdder samples = new LongAdder();
+	private final LongAdder droppedCalls = new LongAdder();
+
+	public BlockingCallDetector(Duration interval, Pattern threadNames, int maxDepth, int maxStacks) {
+		this.interval = interval;
+		this.threadNames = threadNames;
+		this.maxDepth = maxDepth;
+		this.maxStacks = maxStacks;
+	}
+
+	/**
+	 * Starts sampling on a dedicated thread, which is not itself monitored.
+	 *
+	 * @return a Disposable that stops sampling
+	 */
+	public Disposable start() {
+		var scheduler = Schedulers.newSingle("blocking-call-detector", true);
+		var sampling = Flux.interval(interval, interval, scheduler)
+				.doOnNext(tick -> sample())
+				.onErrorContinue((e, tick) -> LOGGER.error("Failed to sample non-blocking threads", e))
+				.subscribe();
+		LOGGER.info("Detecting blocking calls on threads matching '{}' every {} ms", threadNames,
+				interval.toMillis());
+		return Disposables.composite(sampling, scheduler);
+	}
+
+	void sample() {
+		var allIds = threadMXBean.getAllThreadIds();
+		if (monitoredThreads.size() > 2 * allIds.length) {
+			// Forget the threads that died, bounded elastic workers come and go
+			var live = Arrays.stream(allIds).boxed().collect(Collectors.toSet());
+			monitoredThreads.keySet().retainAll(live);
+		}
+		var ids = Arrays.stream(allIds)
+				.filter(this::isMonitored)
+				.toArray();
+		if (ids.length == 0) {
+			return;
+		}
+		samples.increment();
+		for (var info : threadMXBean.getThreadInfo(ids, maxDepth)) {
+			if (info == null) {
+				continue;
+			}
+			var reason = blockingReason(info);
+			if (reason == null) {
+				continue;
+			}
+			var stack = List.of(info.getStackTrace());
+			var call = calls.get(stack);
+			if (call == null) {
+				if (calls.size() >= maxStacks) {
+					droppedCalls.increment();
+					continue;
+				}
+				call = calls.computeIfAbsent(stack,
+						k -> new BlockingCall(StackProfiler.poolName(info.getThreadName()), reason, k));
+			}
+			call.count.increment();
+		}
+	}
+
+	private boolean isMonitored(long threadId) {
+		// Thread ids are never reused, so a name only needs to be checked once
+		return monitoredThreads.computeIfAbsent(threadId, id -> {
+			var info = threadMXBean.getThreadInfo(id, 0);
+			return info != null && threadNames.matcher(info.getThreadName()).matches();
+		});
+	}
+
+	/**
+	 * @return why the thread is considered blocked, or null if it is not
+	 */
+	static String blockingReason(ThreadInfo info) {
+		var stack = info.getStackTrace();
+		switch (info.getThreadState()) {
+			case BLOCKED:
+				return "monitor " + info.getLockName();
+			case WAITING:
+			case TIMED_WAITING:
+				return Arrays.stream(stack).anyMatch(frame -> matches(frame, IDLE_FRAMES))
+						? null
+						: "waiting" + (info.getLockName() == null ? "" : " on " + info.getLockName());
+			case RUNNABLE:
+				return stack.length > 0 && matches(stack[0], BLOCKING_FRAMES) ? "I/O" : null;
+			default:
+				return null;
+		}
+	}
+
+	private static boolean matches(StackTraceElement frame, List<String> prefixes) {
+		var name = frame.getClassName() + '.' + frame.getMethodName();
+		for (var prefix : prefixes) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the blocking calls seen so far, the most frequent first
+	 */
+	public List<BlockingCall> calls() {
+		return calls.values().stream()
+				.sorted(Comparator.comparingLong(BlockingCall::count).reversed())
+				.collect(Collectors.toUnmodifiableList());
+	}
+
+	public long samples() {
+		return samples.sum();
+	}
+
+	/**
+	 * @return how many blocking calls were not recorded because too many
+	 *         distinct stacks were already
+	 */
+	public long droppedCalls() {
+		return droppedCalls.sum();
+	}
+
+	public Duration interval() {
+		return interval;
+	}
+
+	public void reset() {
+		calls.clear();
+		samples.reset();
+		droppedCalls.reset();
+	}
+
+	public static final class BlockingCall {
+
+		private final String pool;
+		private final String reason;
+		private final List<StackTraceElement> stack;
+		private final LongAdder count = new LongAdder();
+
+		private BlockingCall(String pool, String reason, List<StackTraceElement> stack) {
+			this.pool = pool;
+			this.reason = reason;
+			this.stack = stack;
+		}
+
+		public String pool() {
+			return pool;
+		}
+
+		public String reason() {
+			return reason;
+		}
+
+		/**
+		 * @return the stack of the blocked thread, innermost frame first
+		 */
+		public List<StackTraceElement> stack() {
+			return stack;
+		}
+
+		public long count() {
+			return count.sum();
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.github.alex1304.ultimategdbot.core;
 
 import static java.util.function.Predicate.isEqual;
+import static reactor.function.TupleUtils.function;
 
 import com.github.alex1304.ultimategdbot.api.command.CommandFailedException;
 import com.github.alex1304.ultimategdbot.api.command.Context;
@@ -12,9 +13,7 @@ import com.github.alex1304.ultimategdbot.api.command.annotated.CommandPermission
 import com.github.alex1304.ultimategdbot.api.service.Root;
 import com.github.alex1304.ultimategdbot.core.database.BotAdminDao;
 
-import discord4j.common.util.Snowflake;
 import discord4j.core.object.entity.User;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @CommandDescriptor(
@@ -30,48 +29,53 @@ public final class BotAdminsCommand {
 	@CommandAction
 	@CommandDoc("tr:CoreStrings/botadmins_run")
 	public Mono<Void> run(Context ctx) {
-		return core.bot().database()
+		return core.runCommand(ctx, "botadmins", core.daoExecutor()
 				.withExtension(BotAdminDao.class, BotAdminDao::getAll)
-				.flatMapMany(Flux::fromIterable)
-				.flatMap(adminId -> ctx.event().getClient()
-						.getUserById(Snowflake.of(adminId)))
-				.map(User::getTag)
+				.flatMapMany(core.userTagResolver()::resolve)
+				.map(function((adminId, tag) -> tag.isEmpty()
+						? "*" + CoreStrings.translate(ctx, CoreStringsKey.UNKNOWN) + "* (" + adminId + ")"
+						: tag))
 				.collectSortedList(String.CASE_INSENSITIVE_ORDER)
 				.map(adminList -> {
-					var sb = new StringBuilder("__**" + ctx.translate("CoreStrings", "list") + ":**__\n\n");
+					var sb = new StringBuilder("__**" + CoreStrings.translate(ctx, CoreStringsKey.LIST) + ":**__\n\n");
 					adminList.forEach(admin -> sb.append(admin).append("\n"));
 					if (adminList.isEmpty()) {
-						sb.append("*(" + ctx.translate("CoreStrings", "no_data") + ")*\n");
+						sb.append("*(" + CoreStrings.translate(ctx, CoreStringsKey.NO_DATA) + ")*\n");
 					}
-					return sb.toString().substring(0, Math.min(sb.toString().length(), 800));
+					return sb.toString();
 				})
-				.flatMap(ctx::reply)
-				.then();
+				.flatMap(content -> core.bot().interactiveMenu()
+						.createPaginated(content, 800)
+						.open(ctx)));
 	}
 	
 	@CommandAction("grant")
 	@CommandDoc("tr:CoreStrings/botadmins_run_grant")
 	public Mono<Void> runGrant(Context ctx, User user) {
-		return core.bot().database()
+		return core.runCommand(ctx, "botadmins", core.daoExecutor()
 				.withExtension(BotAdminDao.class, dao -> dao.insertIfNotExists(user.getId().asLong()))
 				.filter(isEqual(true))
-				.switchIfEmpty(Mono.error(new CommandFailedException(ctx.translate("CoreStrings", "error_already_admin"))))
-				.then(ctx.reply(ctx.translate("CoreStrings", "admin_grant_success", user.getTag()))
-						.and(core.bot().logging().log(core.bot().localization()
-								.translate("CoreStrings", "admin_grant_log") + ": **" 
-										+ user.getTag() + "** (" + user.getId().asString() + ")")));
+				.switchIfEmpty(Mono.error(new CommandFailedException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_ALREADY_ADMIN))))
+				.then(Mono.fromRunnable(() -> core.invalidationBus()
+						.publish(Invalidation.Kind.BOT_ADMIN, user.getId().asLong())))
+				.then(ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.ADMIN_GRANT_SUCCESS, user.getTag()))
+						.and(core.logSink().log(CoreStrings.translate(core.bot().localization().getLocale(),
+								CoreStringsKey.ADMIN_GRANT_LOG) + ": **" 
+										+ user.getTag() + "** (" + user.getId().asString() + ")"))));
 	}
 	
 	@CommandAction("revoke")
 	@CommandDoc("tr:CoreStrings/botadmins_run_revoke")
 	public Mono<Void> runRevoke(Context ctx, User user) {
-		return core.bot().database()
+		return core.runCommand(ctx, "botadmins", core.daoExecutor()
 				.withExtension(BotAdminDao.class, dao -> dao.delete(user.getId().asLong()))
 				.filter(isEqual(true))
-				.switchIfEmpty(Mono.error(new CommandFailedException(ctx.translate("CoreStrings", "error_already_not_admin"))))
-				.then(ctx.reply(ctx.translate("CoreStrings", "admin_revoke_success", user.getTag()))
-						.and(core.bot().logging().log(core.bot().localization()
-								.translate("CoreStrings", "admin_revoke_log") + ": **" 
-										+ user.getTag() + "** (" + user.getId().asString() + ")")));
+				.switchIfEmpty(Mono.error(new CommandFailedException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_ALREADY_NOT_ADMIN))))
+				.then(Mono.fromRunnable(() -> core.invalidationBus()
+						.publish(Invalidation.Kind.BOT_ADMIN, user.getId().asLong())))
+				.then(ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.ADMIN_REVOKE_SUCCESS, user.getTag()))
+						.and(core.logSink().log(CoreStrings.translate(core.bot().localization().getLocale(),
+								CoreStringsKey.ADMIN_REVOKE_LOG) + ": **" 
+										+ user.getTag() + "** (" + user.getId().asString() + ")"))));
 	}
 }
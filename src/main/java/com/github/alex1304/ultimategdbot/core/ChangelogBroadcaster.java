@@ -0,0 +1,144 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import com.github.alex1304.ultimategdbot.core.database.CoreConfigDao;
+
+import discord4j.common.util.Snowflake;
+import discord4j.discordjson.json.EmbedData;
+import discord4j.discordjson.json.ImmutableMessageCreateRequest;
+import discord4j.discordjson.possible.Possible;
+import discord4j.rest.RestClient;
+import discord4j.rest.http.client.ClientException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.retry.Retry;
+
+/**
+ * Sends changelog announcements to the subscribed channels. Transient failures
+ * (rate limits, server errors, network errors) are retried with backoff, other
+ * failures are classified so that channels that no longer exist can be removed
+ * from the configuration.
+ */
+public final class ChangelogBroadcaster {
+	
+	private static final Logger LOGGER = Loggers.getLogger(ChangelogBroadcaster.class);
+	
+	public enum Outcome {
+		/**
+		 * The message has been sent.
+		 */
+		DELIVERED,
+		/**
+		 * The message could not be sent, but the channel may accept it later.
+		 */
+		FAILED,
+		/**
+		 * The bot lacks the permission to send messages in the channel.
+		 */
+		FORBIDDEN,
+		/**
+		 * The channel does not exist anymore.
+		 */
+		GONE
+	}
+	
+	private final DaoExecutor daoExecutor;
+	private final int maxRetries;
+	
+	public ChangelogBroadcaster(DaoExecutor daoExecutor, int maxRetries) {
+		this.daoExecutor = daoExecutor;
+		this.maxRetries = maxRetries;
+	}
+	
+	/**
+	 * Sends the embed to one channel and classifies the result. This Mono never
+	 * errors.
+	 * 
+	 * @param rest      the REST client
+	 * @param channelId the ID of the target channel
+	 * @param embed     the embed to send
+	 * @return a Mono emitting the outcome of the delivery
+	 */
+	public Mono<Outcome> deliver(RestClient rest, Snowflake channelId, EmbedData embed) {
+		if (!new CoreEvents.ChangelogSendEvent().isEnabled()) {
+			return deliver(rest, channelId, embed, () -> {});
+		}
+		return Mono.defer(() -> {
+			var event = new CoreEvents.ChangelogSendEvent();
+			event.begin();
+			return deliver(rest, channelId, embed, () -> event.attempts++)
+					.doOnNext(outcome -> {
+						event.end();
+						if (event.shouldCommit()) {
+							event.channelId = channelId.asLong();
+							event.outcome = outcome.name();
+							event.commit();
+						}
+					});
+		});
+	}
+	
+	private Mono<Outcome> deliver(RestClient rest, Snowflake channelId, EmbedData embed, Runnable onAttempt) {
+		return rest.getChannelById(channelId)
+				.createMessage(ImmutableMessageCreateRequest.builder()
+						.embed(Possible.of(embed))
+						.build())
+				.doOnSubscribe(subscription -> onAttempt.run())
+				.retryWhen(Retry.backoff(maxRetries, Duration.ofSeconds(1))
+						.maxBackoff(Duration.ofSeconds(30))
+						.filter(ChangelogBroadcaster::isTransient))
+				.thenReturn(Outcome.DELIVERED)
+				.onErrorResume(e -> {
+					var cause = Exceptions.isRetryExhausted(e) && e.getCause() != null ? e.getCause() : e;
+					var outcome = classify(cause);
+					if (outcome == Outcome.FAILED) {
+						LOGGER.warn("Failed to deliver changelog to channel " + channelId.asString(), e);
+					}
+					return Mono.just(outcome);
+				});
+	}
+	
+	/**
+	 * Removes the given channels from the changelog configuration of all guilds.
+	 * 
+	 * @param channelIds the IDs of the channels to remove
+	 * @return a Mono completing when done
+	 */
+	public Mono<Void> prune(List<Snowflake> channelIds) {
+		if (channelIds.isEmpty()) {
+			return Mono.empty();
+		}
+		var ids = channelIds.stream().map(Snowflake::asLong).collect(Collectors.toList());
+		return daoExecutor.withExtension(CoreConfigDao.class, dao -> dao.clearChangelogChannels(ids))
+				.doOnNext(count -> LOGGER.info("Removed {} changelog channel(s) that no longer exist", count))
+				.then();
+	}
+	
+	private static boolean isTransient(Throwable t) {
+		if (t instanceof ClientException) {
+			var status = ((ClientException) t).getStatus().code();
+			return status == 429 || status / 100 == 5;
+		}
+		return t instanceof IOException || t instanceof TimeoutException;
+	}
+	
+	private static Outcome classify(Throwable t) {
+		if (t instanceof ClientException) {
+			var status = ((ClientException) t).getStatus().code();
+			if (status == 403) {
+				return Outcome.FORBIDDEN;
+			}
+			if (status == 404) {
+				return Outcome.GONE;
+			}
+		}
+		return Outcome.FAILED;
+	}
+}
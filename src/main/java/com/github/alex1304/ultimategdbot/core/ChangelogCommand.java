@@ -1,11 +1,14 @@
 package com.github.alex1304.ultimategdbot.core;
 
+import static java.util.function.Predicate.isEqual;
+
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import com.github.alex1304.ultimategdbot.api.Translator;
 import com.github.alex1304.ultimategdbot.api.command.CommandFailedException;
@@ -16,19 +19,12 @@ import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDescriptor
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDoc;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandPermission;
 import com.github.alex1304.ultimategdbot.api.service.Root;
+import com.github.alex1304.ultimategdbot.core.ChangelogParser.MalformedChangelogException;
 import com.github.alex1304.ultimategdbot.core.database.CoreConfigDao;
 
 import discord4j.core.object.entity.Attachment;
-import discord4j.core.object.entity.User;
 import discord4j.discordjson.json.EmbedData;
-import discord4j.discordjson.json.EmbedFieldData;
-import discord4j.discordjson.json.ImmutableEmbedAuthorData;
-import discord4j.discordjson.json.ImmutableEmbedData;
-import discord4j.discordjson.json.ImmutableEmbedFieldData;
-import discord4j.discordjson.json.ImmutableMessageCreateRequest;
-import discord4j.discordjson.possible.Possible;
 import discord4j.rest.util.Color;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 import reactor.util.retry.Retry;
@@ -49,16 +45,12 @@ public final class ChangelogCommand {
 	@CommandDoc("tr:CoreStrings/changelog_run")
 	public Mono<Void> run(Context ctx) {
 		if (ctx.event().getMessage().getAttachments().size() != 1) {
-			return Mono.error(new CommandFailedException(ctx.translate("CoreStrings", "error_attachment")));
+			return Mono.error(new CommandFailedException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_ATTACHMENT)));
 		}
-		return getFileContent(ctx, ctx.event().getMessage().getAttachments().stream().findAny().orElseThrow())
-				.map(String::lines)
-				.flatMapMany(Flux::fromStream)
-				.filter(l -> !l.startsWith("#"))
-				.collectList()
-				.map(lines -> parse(ctx, ctx.author(), lines))
+		var attachment = ctx.event().getMessage().getAttachments().stream().findAny().orElseThrow();
+		return core.runCommand(ctx, "changelog", ingest(ctx, attachment)
 				.flatMap(embedData -> core.bot().interactiveMenu().create(m -> {
-							m.setContent(ctx.translate("CoreStrings", "confirm"));
+							m.setContent(CoreStrings.translate(ctx, CoreStringsKey.CONFIRM));
 							m.setEmbed(embed -> {
 								embed.setTitle(embedData.title().get());
 								embed.setColor(Color.of(embedData.color().get()));
@@ -66,96 +58,124 @@ public final class ChangelogCommand {
 										embed.addField(fieldData.name(), fieldData.value(), fieldData.inline().get()));
 							});
 						})
-						.addReactionItem("success", interaction -> ctx.reply(ctx.translate("CoreStrings", "wait"))
-								.then(core.bot().database()
-										.withExtension(CoreConfigDao.class, CoreConfigDao::getAllChangelogChannels)
-										.flatMapMany(Flux::fromIterable)
-										.map(ctx.event().getClient().rest()::getChannelById)
-										.flatMap(channel -> channel.createMessage(ImmutableMessageCreateRequest.builder()
-												.embed(Possible.of(embedData))
-												.build())
-												.onErrorResume(e -> Mono.empty()))
-										.then(ctx.reply(ctx.translate("CoreStrings", "done"))))
+						.addReactionItem("success", interaction -> core.daoExecutor()
+								.withExtension(CoreConfigDao.class, CoreConfigDao::getAllChangelogChannels)
+								.flatMap(channelIds -> core.changelogQueue().enqueue(embedData, channelIds))
+								.flatMap(jobId -> ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.CHANGELOG_QUEUED, jobId))
+										.flatMap(progressMessage -> core.changelogQueue()
+												.watch(jobId, core.config().readDuration("changelog.progress_interval",
+														Duration.ofSeconds(5)))
+												.concatMap(progress -> progressMessage.edit(spec -> spec.setContent(
+														formatProgress(ctx, progress)))
+														.onErrorResume(e -> Mono.empty())
+														.thenReturn(progress))
+												.last()))
+								.flatMap(progress -> ctx.reply(formatProgress(ctx, progress)))
 								.then())
 						.addReactionItem("cross", interaction -> Mono.fromRunnable(interaction::closeMenu))
 						.deleteMenuOnClose(true)
 						.open(ctx))
-				.then();
+				.then());
 	}
 	
-	private static EmbedData parse(Translator tr, User author, List<String> lines) {
-		final var expectingFieldName = 1;
-		final var expectingFieldContent = 2;
-		var state = 0;
-		String title = null;
-		var fieldNames = new ArrayList<String>();
-		var fieldContents = new ArrayList<String>();
-		for (var l : lines) {
-			if (title == null) {
-				title = l;
-				state = expectingFieldName;
-			} else {
-				if (state == expectingFieldName) {
-					if (!l.isBlank()) {
-						fieldNames.add(l);
-						state = expectingFieldContent;
-					}
-				} else {
-					if (fieldContents.size() < fieldNames.size()) {
-						if (!l.isBlank()) {
-							fieldContents.add(l);
-						}
-					} else {
-						if (l.isBlank()) {
-							state = expectingFieldName;
-						} else {
-							var lastIndex = fieldContents.size() - 1;
-							var newL = fieldContents.get(lastIndex) + "\n" + l;
-							fieldContents.set(lastIndex, newL);
-						}
-					}
-				}
-			}
-		}
-		if (title == null || fieldNames.size() != fieldContents.size()) {
-			throw new CommandFailedException(tr.translate("CoreStrings", "error_malformed"));
+	@CommandAction("jobs")
+	@CommandDoc("tr:CoreStrings/changelog_run_jobs")
+	public Mono<Void> runJobs(Context ctx) {
+		return core.runCommand(ctx, "changelog", core.changelogQueue().runningJobs()
+				.map(jobs -> jobs.isEmpty()
+						? CoreStrings.translate(ctx, CoreStringsKey.CHANGELOG_NO_JOBS)
+						: jobs.stream()
+								.map(progress -> formatProgress(ctx, progress))
+								.collect(Collectors.joining("\n\n")))
+				.flatMap(ctx::reply)
+				.then());
+	}
+	
+	@CommandAction("cancel")
+	@CommandDoc("tr:CoreStrings/changelog_run_cancel")
+	public Mono<Void> runCancel(Context ctx, long jobId) {
+		return core.runCommand(ctx, "changelog", core.changelogQueue().cancel(jobId)
+				.filter(isEqual(true))
+				.switchIfEmpty(Mono.error(new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_JOB_NOT_RUNNING, jobId))))
+				.then(ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.CHANGELOG_CANCEL_SUCCESS, jobId)))
+				.then());
+	}
+	
+	private static String formatProgress(Translator tr, ChangelogQueue.JobProgress progress) {
+		return CoreStrings.translate(tr, CoreStringsKey.CHANGELOG_JOB_PROGRESS, progress.jobId(), progress.title(),
+				progress.status(), progress.processed(), progress.total(), progress.delivered(), progress.failed(),
+				progress.forbidden(), progress.gone());
+	}
+	
+	/**
+	 * Builds the announcement embed from the lines of a changelog file.
+	 * 
+	 * @param lines         the lines of the file, comments excluded
+	 * @param authorName    the name to display as author of the announcement
+	 * @param authorIconUrl the icon to display next to the author name
+	 * @param timestamp     the timestamp of the announcement
+	 * @return the embed, or empty if the content is malformed
+	 */
+	static Optional<EmbedData> parse(List<String> lines, String authorName, String authorIconUrl, Instant timestamp) {
+		var parser = new ChangelogParser();
+		try {
+			lines.forEach(parser::accept);
+			return Optional.of(parser.build(authorName, authorIconUrl, timestamp));
+		} catch (MalformedChangelogException e) {
+			return Optional.empty();
 		}
-		var fTitle = title;
-		var fields = new ArrayList<EmbedFieldData>();
-		for (var i = 0 ; i < fieldNames.size() ; i++) {
-			var name = fieldNames.get(i);
-			var content = fieldContents.get(i);
-			fields.add(ImmutableEmbedFieldData.builder()
-					.name(name)
-					.value(content)
-					.inline(Possible.of(false))
-					.build());
+	}
+	
+	/**
+	 * Formats the title and fields of an announcement embed back to the changelog
+	 * file format, such that {@link #parse(List, String, String, Instant)} gives
+	 * the same title and fields.
+	 * 
+	 * @param embed the embed
+	 * @return the changelog text
+	 */
+	static String format(EmbedData embed) {
+		var sb = new StringBuilder(embed.title().toOptional().orElse("")).append('\n');
+		for (var field : embed.fields().toOptional().orElse(List.of())) {
+			sb.append('\n').append(field.name()).append('\n').append(field.value()).append('\n');
 		}
-		return ImmutableEmbedData.builder()
-				.title(Possible.of(fTitle))
-				.color(Possible.of(0x0000FF))
-				.timestamp(Possible.of(DateTimeFormatter.ISO_INSTANT.format(Instant.now())))
-				.author(Possible.of(ImmutableEmbedAuthorData.builder()
-						.name(Possible.of(author.getTag()))
-						.iconUrl(Possible.of(author.getAvatarUrl()))
-						.build()))
-				.fields(Possible.of(fields))
-				.build();
+		return sb.toString();
 	}
 	
-	private Mono<String> getFileContent(Translator tr, Attachment attachment) {
-		return fileClient.get()
-				.uri(attachment.getUrl())
-				.responseSingle((response, content) -> {
-					if (response.status().code() / 100 != 2) {
-						return Mono.error(new CommandFailedException(
-								tr.translate("CoreStrings", "error_cdn", response.status().toString())));
-					}
-					return content.asString();
+	private Mono<EmbedData> ingest(Context ctx, Attachment attachment) {
+		var maxBytes = core.config().readLong("changelog.max_file_size", 64 * 1024);
+		if (attachment.getSize() > maxBytes) {
+			return Mono.error(new CommandFailedException(
+					CoreStrings.translate(ctx, CoreStringsKey.ERROR_CHANGELOG_FILE_TOO_LARGE, maxBytes)));
+		}
+		return Mono.defer(() -> {
+					var parser = new ChangelogParser();
+					var splitter = new ChangelogParser.LineSplitter(maxBytes);
+					Consumer<String> lineAction = line -> {
+						if (!line.startsWith("#")) {
+							parser.accept(line);
+						}
+					};
+					return fileClient.get()
+							.uri(attachment.getUrl())
+							.response((response, content) -> {
+								if (response.status().code() / 100 != 2) {
+									return Mono.<Void>error(new CommandFailedException(
+											CoreStrings.translate(ctx, CoreStringsKey.ERROR_CDN, response.status().toString())));
+								}
+								return content.doOnNext(chunk -> splitter.feed(chunk, lineAction))
+										.then(Mono.fromRunnable(() -> splitter.finish(lineAction)));
+							})
+							.then(Mono.fromCallable(() -> parser.build(ctx.author().getTag(), ctx.author().getAvatarUrl(),
+									Instant.now())));
 				})
-				.retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
-						.maxBackoff(Duration.ofMinutes(1))
+				.onErrorMap(MalformedChangelogException.class, e -> new CommandFailedException(
+						CoreStrings.translate(ctx, e.translationKey(), e.args())))
+				.retryWhen(Retry.backoff(core.config().readInt("changelog.download_retries", 3), Duration.ofSeconds(1))
+						.maxBackoff(Duration.ofSeconds(10))
 						.filter(IOException.class::isInstance))
-				.timeout(Duration.ofMinutes(2), Mono.error(new CommandFailedException(tr.translate("CoreStrings", "error_timeout"))));
+				.timeout(core.config().readDuration("changelog.download_timeout", Duration.ofSeconds(30)),
+						Mono.error(new CommandFailedException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_TIMEOUT))));
 	}
 }
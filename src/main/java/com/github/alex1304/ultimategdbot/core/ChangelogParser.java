@@ -0,0 +1,230 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import discord4j.discordjson.json.EmbedData;
+import discord4j.discordjson.json.EmbedFieldData;
+import discord4j.discordjson.json.ImmutableEmbedAuthorData;
+import discord4j.discordjson.json.ImmutableEmbedData;
+import discord4j.discordjson.json.ImmutableEmbedFieldData;
+import discord4j.discordjson.possible.Possible;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Incremental parser for the changelog file format. Lines are fed one by one,
+ * either directly or from raw bytes through a {@link LineSplitter}, and the
+ * Discord embed limits are enforced as soon as a line would exceed them, so
+ * that an oversized file is rejected without being read entirely.
+ */
+final class ChangelogParser {
+	
+	static final int MAX_TITLE_LENGTH = 256;
+	static final int MAX_FIELD_COUNT = 25;
+	static final int MAX_FIELD_NAME_LENGTH = 256;
+	static final int MAX_FIELD_VALUE_LENGTH = 1024;
+	static final int MAX_TOTAL_LENGTH = 6000;
+	
+	private enum State { EXPECTING_TITLE, EXPECTING_FIELD_NAME, EXPECTING_FIELD_CONTENT, IN_FIELD_CONTENT }
+	
+	private State state = State.EXPECTING_TITLE;
+	private String title;
+	private final ArrayList<String> fieldNames = new ArrayList<>();
+	private final ArrayList<StringBuilder> fieldContents = new ArrayList<>();
+	private int totalLength;
+	
+	/**
+	 * Feeds the next line of the file.
+	 * 
+	 * @param line the line, without its line terminator
+	 * @throws MalformedChangelogException if the line makes the announcement
+	 *                                     exceed a Discord embed limit
+	 */
+	void accept(String line) {
+		switch (state) {
+			case EXPECTING_TITLE:
+				checkLimit(line.length(), MAX_TITLE_LENGTH, CoreStringsKey.ERROR_CHANGELOG_TITLE_TOO_LONG);
+				title = line;
+				addToTotal(line.length());
+				state = State.EXPECTING_FIELD_NAME;
+				break;
+			case EXPECTING_FIELD_NAME:
+				if (!line.isBlank()) {
+					checkLimit(fieldNames.size() + 1, MAX_FIELD_COUNT, CoreStringsKey.ERROR_CHANGELOG_TOO_MANY_FIELDS);
+					checkLimit(line.length(), MAX_FIELD_NAME_LENGTH, CoreStringsKey.ERROR_CHANGELOG_FIELD_NAME_TOO_LONG);
+					fieldNames.add(line);
+					addToTotal(line.length());
+					state = State.EXPECTING_FIELD_CONTENT;
+				}
+				break;
+			case EXPECTING_FIELD_CONTENT:
+				if (!line.isBlank()) {
+					checkLimit(line.length(), MAX_FIELD_VALUE_LENGTH, CoreStringsKey.ERROR_CHANGELOG_FIELD_VALUE_TOO_LONG);
+					fieldContents.add(new StringBuilder(line));
+					addToTotal(line.length());
+					state = State.IN_FIELD_CONTENT;
+				}
+				break;
+			default:
+				if (line.isBlank()) {
+					state = State.EXPECTING_FIELD_NAME;
+				} else {
+					var content = fieldContents.get(fieldContents.size() - 1);
+					checkLimit(content.length() + 1 + line.length(), MAX_FIELD_VALUE_LENGTH,
+							CoreStringsKey.ERROR_CHANGELOG_FIELD_VALUE_TOO_LONG);
+					content.append('\n').append(line);
+					addToTotal(1 + line.length());
+				}
+		}
+	}
+	
+	/**
+	 * Builds the announcement embed from the lines fed so far.
+	 * 
+	 * @param authorName    the name to display as author of the announcement
+	 * @param authorIconUrl the icon to display next to the author name
+	 * @param timestamp     the timestamp of the announcement
+	 * @return the embed
+	 * @throws MalformedChangelogException if the content is incomplete
+	 */
+	EmbedData build(String authorName, String authorIconUrl, Instant timestamp) {
+		if (title == null || fieldNames.size() != fieldContents.size()) {
+			throw new MalformedChangelogException(CoreStringsKey.ERROR_MALFORMED);
+		}
+		checkLimit(totalLength + authorName.length(), MAX_TOTAL_LENGTH, CoreStringsKey.ERROR_CHANGELOG_TOO_LONG);
+		var fields = new ArrayList<EmbedFieldData>(fieldNames.size());
+		for (var i = 0 ; i < fieldNames.size() ; i++) {
+			fields.add(ImmutableEmbedFieldData.builder()
+					.name(fieldNames.get(i))
+					.value(fieldContents.get(i).toString())
+					.inline(Possible.of(false))
+					.build());
+		}
+		return ImmutableEmbedData.builder()
+				.title(Possible.of(title))
+				.color(Possible.of(0x0000FF))
+				.timestamp(Possible.of(DateTimeFormatter.ISO_INSTANT.format(timestamp)))
+				.author(Possible.of(ImmutableEmbedAuthorData.builder()
+						.name(Possible.of(authorName))
+						.iconUrl(Possible.of(authorIconUrl))
+						.build()))
+				.fields(Possible.of(fields))
+				.build();
+	}
+	
+	private void addToTotal(int length) {
+		totalLength += length;
+		checkLimit(totalLength, MAX_TOTAL_LENGTH, CoreStringsKey.ERROR_CHANGELOG_TOO_LONG);
+	}
+	
+	private static void checkLimit(int value, int limit, CoreStringsKey errorKey) {
+		if (value > limit) {
+			throw new MalformedChangelogException(errorKey, limit);
+		}
+	}
+	
+	/**
+	 * Splits a stream of UTF-8 bytes into lines. A line feed byte can never be
+	 * part of a multi-byte UTF-8 sequence, so lines are delimited on raw bytes
+	 * and each line is decoded once complete. Only the bytes of the current
+	 * incomplete line are kept between two chunks.
+	 */
+	static final class LineSplitter {
+		
+		private final long maxBytes;
+		private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+		private long totalBytes;
+		
+		LineSplitter(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+		
+		/**
+		 * Feeds the next chunk of bytes, emitting each line it completes.
+		 * 
+		 * @param chunk      the bytes
+		 * @param lineAction the action to run on each complete line
+		 * @throws MalformedChangelogException if the byte cap is exceeded
+		 */
+		void feed(ByteBuf chunk, Consumer<String> lineAction) {
+			totalBytes += chunk.readableBytes();
+			if (totalBytes > maxBytes) {
+				throw new MalformedChangelogException(CoreStringsKey.ERROR_CHANGELOG_FILE_TOO_LARGE, maxBytes);
+			}
+			var start = chunk.readerIndex();
+			var end = chunk.writerIndex();
+			int lf;
+			while ((lf = chunk.indexOf(start, end, (byte) '\n')) >= 0) {
+				if (partialLine.size() == 0) {
+					lineAction.accept(stripCr(chunk.toString(start, lf - start, UTF_8)));
+				} else {
+					appendPartial(chunk, start, lf - start);
+					lineAction.accept(stripCr(partialLine.toString(UTF_8)));
+					partialLine.reset();
+				}
+				start = lf + 1;
+			}
+			if (start < end) {
+				appendPartial(chunk, start, end - start);
+			}
+		}
+		
+		/**
+		 * Emits the last line if the stream did not end with a line feed.
+		 * 
+		 * @param lineAction the action to run on the last line
+		 */
+		void finish(Consumer<String> lineAction) {
+			if (partialLine.size() > 0) {
+				lineAction.accept(stripCr(partialLine.toString(UTF_8)));
+				partialLine.reset();
+			}
+		}
+		
+		private void appendPartial(ByteBuf chunk, int index, int length) {
+			try {
+				chunk.getBytes(index, partialLine, length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		private static String stripCr(String line) {
+			return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+		}
+	}
+	
+	/**
+	 * Thrown when the changelog content is malformed or exceeds a limit. The
+	 * message is a key of CoreStrings, and the arguments are the values to
+	 * format it with.
+	 */
+	static final class MalformedChangelogException extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final CoreStringsKey translationKey;
+		private final Object[] args;
+		
+		MalformedChangelogException(CoreStringsKey translationKey, Object... args) {
+			super(translationKey.key(), null, false, false);
+			this.translationKey = translationKey;
+			this.args = args;
+		}
+		
+		CoreStringsKey translationKey() {
+			return translationKey;
+		}
+		
+		Object[] args() {
+			return args;
+		}
+	}
+}
@@ -0,0 +1,379 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static java.util.stream.Collectors.toList;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.github.alex1304.ultimategdbot.api.service.BotService;
+import com.github.alex1304.ultimategdbot.core.database.ChangelogJob;
+import com.github.alex1304.ultimategdbot.core.database.ChangelogJobDao;
+import com.github.alex1304.ultimategdbot.core.database.DeliveryCount;
+
+import discord4j.common.util.Snowflake;
+import discord4j.discordjson.json.EmbedData;
+import discord4j.discordjson.json.MessageData;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Durable queue of changelog broadcasts. A broadcast is persisted as a job
+ * holding the announcement, plus one delivery row per target channel. A
+ * background worker claims pending deliveries in batches, sends them and
+ * records the outcome of each one, so that a broadcast interrupted by a
+ * restart resumes where it stopped without posting twice in the same channel.
+ * 
+ * <p>
+ * A delivery is marked as sending before the message is sent. If the process
+ * dies before recording the outcome, the delivery stays in that state until
+ * the claim times out; the worker then checks the recent messages of the
+ * channel to find out whether the announcement made it before sending it
+ * again.
+ * 
+ * <p>
+ * Finished jobs are kept for the retention period so that their results can
+ * still be looked up, then deleted along with their deliveries.
+ */
+public final class ChangelogQueue {
+	
+	private static final Logger LOGGER = Loggers.getLogger(ChangelogQueue.class);
+	private static final Duration SWEEP_INTERVAL = Duration.ofHours(1);
+	
+	private final BotService bot;
+	private final LogSink logSink;
+	private final ChangelogBroadcaster broadcaster;
+	private final String origin;
+	private final int batchSize;
+	private final int concurrency;
+	private final Duration pollInterval;
+	private final Duration claimTimeout;
+	private final Duration jobRetention;
+	private volatile Disposable worker;
+	private volatile Mono<Void> workerDone = Mono.empty();
+	private final CompletionSignal stopSignal = new CompletionSignal();
+	private volatile boolean stopping;
+	
+	public ChangelogQueue(BotService bot, LogSink logSink, ChangelogBroadcaster broadcaster, String origin,
+			int batchSize, int concurrency, Duration pollInterval, Duration claimTimeout, Duration jobRetention) {
+		this.bot = bot;
+		this.logSink = logSink;
+		this.broadcaster = broadcaster;
+		this.origin = origin;
+		this.batchSize = batchSize;
+		this.concurrency = concurrency;
+		this.pollInterval = pollInterval;
+		this.claimTimeout = claimTimeout;
+		this.jobRetention = jobRetention;
+	}
+	
+	/**
+	 * Persists a new broadcast job. It will be picked up by the worker of one of
+	 * the processes at its next poll.
+	 * 
+	 * @param embed      the announcement
+	 * @param channelIds the target channels
+	 * @return a Mono emitting the ID of the created job
+	 */
+	public Mono<Long> enqueue(EmbedData embed, List<Snowflake> channelIds) {
+		var ids = channelIds.stream().map(Snowflake::asLong).distinct().collect(toList());
+		var author = embed.author().toOptional();
+		return bot.database().withExtension(ChangelogJobDao.class, dao -> dao.createJob(
+				ChangelogCommand.format(embed),
+				author.flatMap(a -> a.name().toOptional()).orElse(""),
+				author.flatMap(a -> a.iconUrl().toOptional()).orElse(""),
+				Timestamp.from(embed.timestamp().toOptional().map(Instant::parse).orElseGet(Instant::now)),
+				ids));
+	}
+	
+	/**
+	 * Cancels a running job. Deliveries already sent are kept as is, and the
+	 * remaining ones are left pending.
+	 * 
+	 * @param jobId the job ID
+	 * @return a Mono emitting true if the job was running and is now cancelled
+	 */
+	public Mono<Boolean> cancel(long jobId) {
+		return bot.database().withExtension(ChangelogJobDao.class,
+				dao -> dao.closeJob(jobId, ChangelogJobDao.STATUS_CANCELLED));
+	}
+	
+	/**
+	 * Gets the progress of a job.
+	 * 
+	 * @param jobId the job ID
+	 * @return a Mono emitting the progress, or empty if the job does not exist
+	 */
+	public Mono<JobProgress> progress(long jobId) {
+		return bot.database().withExtension(ChangelogJobDao.class, dao -> dao.getJob(jobId)
+						.map(job -> new JobProgress(job, dao.countDeliveries(jobId))))
+				.flatMap(Mono::justOrEmpty);
+	}
+	
+	/**
+	 * Gets the progress of all running jobs.
+	 * 
+	 * @return a Mono emitting the progress of running jobs
+	 */
+	public Mono<List<JobProgress>> runningJobs() {
+		return bot.database().withExtension(ChangelogJobDao.class, dao -> dao
+				.getJobsByStatus(ChangelogJobDao.STATUS_RUNNING)
+				.stream()
+				.map(job -> new JobProgress(job, dao.countDeliveries(job.id())))
+				.collect(toList()));
+	}
+	
+	/**
+	 * Polls the progress of a job until it is no longer running.
+	 * 
+	 * @param jobId    the job ID
+	 * @param interval the polling interval
+	 * @return a Flux emitting the progress periodically, the last one being the
+	 *         final state of the job
+	 */
+	public Flux<JobProgress> watch(long jobId, Duration interval) {
+		return Flux.interval(interval)
+				.onBackpressureDrop()
+				.concatMap(tick -> progress(jobId))
+				.takeUntil(progress -> !progress.isRunning());
+	}
+	
+	/**
+	 * Deletes the jobs that finished longer ago than the retention period.
+	 * 
+	 * @return a Mono emitting the number of deleted jobs
+	 */
+	public Mono<Integer> sweep() {
+		return bot.database().withExtension(ChangelogJobDao.class,
+				dao -> dao.deleteFinishedBefore(Timestamp.from(Instant.now().minus(jobRetention))));
+	}
+	
+	/**
+	 * Starts the background worker.
+	 */
+	public void start() {
+		var polls = Flux.interval(pollInterval)
+				.onBackpressureDrop()
+				// Completing the ticks lets the batch in progress finish
+				.takeUntilOther(stopSignal.asMono())
+				.concatMap(tick -> bot.database()
+						.withExtension(ChangelogJobDao.class, dao -> dao.getJobsByStatus(ChangelogJobDao.STATUS_RUNNING))
+						.flatMapMany(Flux::fromIterable)
+						.concatMap(this::drain)
+						.onErrorResume(e -> {
+							LOGGER.error("Changelog worker failed", e);
+							return Mono.empty();
+						}));
+		var sweeps = Flux.interval(Duration.ZERO, SWEEP_INTERVAL)
+				.onBackpressureDrop()
+				.takeUntilOther(stopSignal.asMono())
+				.concatMap(tick -> sweep()
+						.doOnNext(count -> LOGGER.debug("Deleted {} finished changelog job(s)", count))
+						.onErrorResume(e -> {
+							LOGGER.warn("Failed to delete finished changelog jobs", e);
+							return Mono.empty();
+						}));
+		var done = Flux.merge(polls, sweeps)
+				.then()
+				.cache();
+		workerDone = done;
+		worker = done.subscribe();
+	}
+	
+	/**
+	 * Lets the worker finish the batch it is sending, then stops it. Deliveries
+	 * not claimed yet stay pending and are resumed at the next start.
+	 * 
+	 * @return a Mono completing when the worker has stopped
+	 */
+	public Mono<Void> shutdown() {
+		return Mono.fromRunnable(() -> {
+					stopping = true;
+					stopSignal.fire();
+				})
+				.then(Mono.defer(() -> workerDone));
+	}
+	
+	/**
+	 * Stops the background worker. Deliveries being sent are interrupted and
+	 * will be recovered once their claim times out.
+	 */
+	public void stop() {
+		var worker = this.worker;
+		if (worker != null) {
+			worker.dispose();
+		}
+	}
+	
+	private Mono<Void> drain(ChangelogJob job) {
+		var embed = ChangelogCommand.parse(List.of(job.payload().split("\n", -1)), job.authorName(),
+				job.authorIconUrl(), job.createdAt());
+		if (embed.isEmpty()) {
+			LOGGER.error("Cancelling changelog job {} because its payload is malformed", job.id());
+			return cancel(job.id()).then();
+		}
+		return recoverStale(job, embed.get())
+				// The next batch is only claimed once the previous one is sent, so that
+				// the rest stays pending for shutdown and for the other processes
+				.then(Mono.defer(() -> claimBatch(job))
+						.flatMap(batch -> Flux.fromIterable(batch)
+								.flatMap(channelId -> sendAndRecord(job, embed.get(), channelId), concurrency)
+								.then(Mono.just(!batch.isEmpty())))
+						.repeat(() -> !stopping)
+						.takeWhile(sent -> sent)
+						.then())
+				.then(complete(job));
+	}
+	
+	private Mono<List<Long>> claimBatch(ChangelogJob job) {
+		return bot.database().withExtension(ChangelogJobDao.class,
+				dao -> dao.claimPending(job.id(), origin, Timestamp.from(Instant.now()), batchSize));
+	}
+	
+	private Mono<Void> recoverStale(ChangelogJob job, EmbedData embed) {
+		var now = Instant.now();
+		return bot.database()
+				.withExtension(ChangelogJobDao.class, dao -> dao.claimStale(job.id(), origin, Timestamp.from(now),
+						Timestamp.from(now.minus(claimTimeout))))
+				.flatMapMany(Flux::fromIterable)
+				.flatMap(channelId -> wasDelivered(channelId, embed)
+						.flatMap(delivered -> delivered
+								? record(job, channelId, ChangelogBroadcaster.Outcome.DELIVERED)
+								: sendAndRecord(job, embed, channelId)), concurrency)
+				.then();
+	}
+	
+	private Mono<Void> sendAndRecord(ChangelogJob job, EmbedData embed, long channelId) {
+		return broadcaster.deliver(bot.gateway().rest(), Snowflake.of(channelId), embed)
+				.flatMap(outcome -> record(job, channelId, outcome));
+	}
+	
+	private Mono<Void> record(ChangelogJob job, long channelId, ChangelogBroadcaster.Outcome outcome) {
+		return bot.database().withExtension(ChangelogJobDao.class, dao -> {
+			dao.setState(outcome.name(), job.id(), channelId);
+			return outcome;
+		}).then();
+	}
+	
+	private Mono<Boolean> wasDelivered(long channelId, EmbedData embed) {
+		return bot.gateway().rest().getChannelService()
+				.getMessages(channelId, Map.<String, Object>of("limit", 20))
+				.any(message -> isSameAnnouncement(message, embed))
+				.onErrorReturn(false);
+	}
+	
+	private static boolean isSameAnnouncement(MessageData message, EmbedData embed) {
+		return message.embeds().stream()
+				.anyMatch(e -> e.title().equals(embed.title())
+						&& timestamp(e).equals(timestamp(embed))
+						&& authorName(e).equals(authorName(embed)));
+	}
+	
+	private static Optional<Instant> timestamp(EmbedData embed) {
+		// Sent with a Z suffix, but Discord gives it back with a +00:00 offset
+		try {
+			return embed.timestamp().toOptional()
+					.map(timestamp -> DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(timestamp, Instant::from));
+		} catch (DateTimeParseException e) {
+			return Optional.empty();
+		}
+	}
+	
+	private static Optional<String> authorName(EmbedData embed) {
+		return embed.author().toOptional().flatMap(author -> author.name().toOptional());
+	}
+	
+	private Mono<Void> complete(ChangelogJob job) {
+		return progress(job.id())
+				.filter(progress -> progress.pending() == 0 && progress.sending() == 0)
+				.filterWhen(progress -> bot.database().withExtension(ChangelogJobDao.class,
+						dao -> dao.closeJob(job.id(), ChangelogJobDao.STATUS_DONE)))
+				.flatMap(progress -> bot.database()
+						.withExtension(ChangelogJobDao.class, dao -> dao.getChannelIdsByState(job.id(),
+								ChangelogBroadcaster.Outcome.GONE.name()))
+						.map(ids -> ids.stream().map(Snowflake::of).collect(toList()))
+						.flatMap(broadcaster::prune)
+						.then(logSink.log(CoreStrings.translate(bot.localization().getLocale(), CoreStringsKey.CHANGELOG_JOB_LOG,
+								job.id(), progress.delivered(), progress.failed(), progress.forbidden(),
+								progress.gone()))));
+	}
+	
+	/**
+	 * Counts the deliveries of a job by state.
+	 */
+	public static final class JobProgress {
+		
+		private final long jobId;
+		private final String title;
+		private final String status;
+		private final Map<String, Long> counts = new HashMap<>();
+		
+		private JobProgress(ChangelogJob job, List<DeliveryCount> counts) {
+			this.jobId = job.id();
+			this.title = job.payload().lines().findFirst().orElse("");
+			this.status = job.status();
+			counts.forEach(count -> this.counts.put(count.state(), count.count()));
+		}
+		
+		public long jobId() {
+			return jobId;
+		}
+		
+		public String title() {
+			return title;
+		}
+		
+		public String status() {
+			return status;
+		}
+		
+		public boolean isRunning() {
+			return status.equals(ChangelogJobDao.STATUS_RUNNING);
+		}
+		
+		public long total() {
+			return counts.values().stream().mapToLong(Long::longValue).sum();
+		}
+		
+		public long processed() {
+			return total() - pending() - sending();
+		}
+		
+		public long pending() {
+			return count(ChangelogJobDao.STATE_PENDING);
+		}
+		
+		public long sending() {
+			return count(ChangelogJobDao.STATE_SENDING);
+		}
+		
+		public long delivered() {
+			return count(ChangelogBroadcaster.Outcome.DELIVERED.name());
+		}
+		
+		public long failed() {
+			return count(ChangelogBroadcaster.Outcome.FAILED.name());
+		}
+		
+		public long forbidden() {
+			return count(ChangelogBroadcaster.Outcome.FORBIDDEN.name());
+		}
+		
+		public long gone() {
+			return count(ChangelogBroadcaster.Outcome.GONE.name());
+		}
+		
+		private long count(String state) {
+			return Optional.ofNullable(counts.get(state)).orElse(0L);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.github.alex1304.ultimategdbot.api.command.CommandFailedException;
+import com.github.alex1304.ultimategdbot.api.command.Context;
+import com.github.alex1304.ultimategdbot.api.service.BotService;
+import com.github.alex1304.ultimategdbot.api.util.DurationUtils;
+import com.github.alex1304.ultimategdbot.core.database.BlacklistedIdDao;
+
+import discord4j.common.util.Snowflake;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Limits how often users and guilds can run the commands of this plugin. Each
+ * command has a cost in tokens, taken from the bucket of the user and from the
+ * bucket of the guild. Users who keep hitting the limit are blacklisted for a
+ * while.
+ *
+ * <p>
+ * The temporary blacklist only lives in the memory of this process. It is
+ * never written to the blacklisted_id table, so it cannot outlive its duration
+ * nor be mistaken for a blacklist decided by the bot owner.
+ */
+public final class CommandRateLimiter {
+
+	private static final Logger LOGGER = Loggers.getLogger(CommandRateLimiter.class);
+	private static final int RECENT_REJECTIONS = 64;
+	private static final Map<String, Integer> DEFAULT_COSTS = Map.of(
+			"setup", 5,
+			"about", 3,
+			"runtime", 3,
+			"help", 2);
+
+	private final BotService bot;
+	private final DaoExecutor daoExecutor;
+	private final LogSink logSink;
+	private final CoreConfig config;
+	private final TokenBucketTable userBuckets;
+	private final TokenBucketTable guildBuckets;
+	private final TokenBucketTable violationBuckets;
+	private final TokenBucketTable notificationBuckets;
+	private final Duration blacklistDuration;
+	private final Map<String, Integer> costs = new ConcurrentHashMap<>();
+	private final Map<Long, Instant> tempBlacklist = new ConcurrentHashMap<>();
+	private final Map<Long, Disposable> liftTimers = new ConcurrentHashMap<>();
+	private final AtomicLong rejectionCount = new AtomicLong();
+	private final AtomicLong escalationCount = new AtomicLong();
+	private final AtomicLong rejectionSeq = new AtomicLong();
+	private final AtomicReferenceArray<Rejection> recentRejections = new AtomicReferenceArray<>(RECENT_REJECTIONS);
+
+	public CommandRateLimiter(BotService bot, DaoExecutor daoExecutor, LogSink logSink, CoreConfig config) {
+		this.bot = bot;
+		this.daoExecutor = daoExecutor;
+		this.logSink = logSink;
+		this.config = config;
+		var userCapacity = config.readInt("ratelimit.user.capacity", 10);
+		var userRefill = config.readDuration("ratelimit.user.refill", Duration.ofSeconds(2));
+		this.userBuckets = new TokenBucketTable(userCapacity, userRefill);
+		this.guildBuckets = new TokenBucketTable(
+				config.readInt("ratelimit.guild.capacity", 60),
+				config.readDuration("ratelimit.guild.refill", Duration.ofMillis(500)));
+		var threshold = config.readInt("ratelimit.escalation.threshold", 15);
+		// A violator is escalated once it gets rejected more than threshold times within the window
+		this.violationBuckets = new TokenBucketTable(threshold,
+				config.readDuration("ratelimit.escalation.window", Duration.ofMinutes(1)).dividedBy(threshold));
+		// Rejected users get told at most once per full refill of their bucket
+		this.notificationBuckets = new TokenBucketTable(1, userRefill.multipliedBy(userCapacity));
+		this.blacklistDuration = config.readDuration("ratelimit.escalation.duration", Duration.ofMinutes(15));
+	}
+
+	/**
+	 * Runs the given action if the user and the guild have enough tokens left for
+	 * the given command. Otherwise the returned Mono errors with a
+	 * {@link CommandFailedException} once per refill period, and completes empty
+	 * without replying the rest of the time, so that spamming a command does not
+	 * make the bot spam back.
+	 *
+	 * @param ctx     the context of the command
+	 * @param command the name used to look up the cost of the command
+	 * @param action  the command itself, subscribed only if it is allowed to run
+	 * @return a Mono completing when the action completes or when it is rejected
+	 */
+	public Mono<Void> guard(Context ctx, String command, Mono<Void> action) {
+		return Mono.defer(() -> {
+			var userId = ctx.author().getId().asLong();
+			var guildId = ctx.event().getGuildId().map(Snowflake::asLong).orElse(0L);
+			var cost = costs.computeIfAbsent(command, k -> config.readInt("ratelimit.cost." + k,
+					DEFAULT_COSTS.getOrDefault(k, 1)));
+			var now = System.nanoTime();
+			if (userBuckets.tryAcquire(userId, cost, now)
+					&& (guildId == 0 || guildBuckets.tryAcquire(guildId, cost, now))) {
+				return action;
+			}
+			record(new Rejection(Instant.now(), userId, guildId, command));
+			if (!violationBuckets.tryAcquire(userId, 1, now)) {
+				return escalate(userId);
+			}
+			if (notificationBuckets.tryAcquire(userId, 1, now)) {
+				var retryAfter = userBuckets.retryAfter(userId, cost, now).withNanos(0).plusSeconds(1);
+				return Mono.error(new CommandFailedException(CoreStrings.translate(ctx,
+						CoreStringsKey.ERROR_RATE_LIMITED, DurationUtils.format(retryAfter))));
+			}
+			return Mono.empty();
+		});
+	}
+
+	/**
+	 * Gets the users that are currently blacklisted by the rate limiter, along
+	 * with the time their blacklist ends.
+	 *
+	 * @return the temporary blacklist
+	 */
+	public Map<Long, Instant> temporaryBlacklist() {
+		return Map.copyOf(tempBlacklist);
+	}
+
+	/**
+	 * Lifts the temporary blacklist of a user now instead of when it expires.
+	 * The user stays in the blacklist of the command service, the caller is
+	 * expected to update it.
+	 *
+	 * @param userId the user ID
+	 * @return true if the user was temporarily blacklisted
+	 */
+	public boolean liftTemporaryBlacklist(long userId) {
+		var timer = liftTimers.remove(userId);
+		if (timer != null) {
+			timer.dispose();
+		}
+		return tempBlacklist.remove(userId) != null;
+	}
+
+	/**
+	 * Cancels the pending lifts of the temporary blacklist.
+	 */
+	public void stop() {
+		liftTimers.values().forEach(Disposable::dispose);
+		liftTimers.clear();
+	}
+
+	public long rejectionCount() {
+		return rejectionCount.get();
+	}
+
+	public long escalationCount() {
+		return escalationCount.get();
+	}
+
+	/**
+	 * Gets the last rejections, most recent first.
+	 *
+	 * @return the recent rejections
+	 */
+	public List<Rejection> recentRejections() {
+		var last = rejectionSeq.get();
+		var list = new ArrayList<Rejection>();
+		for (var seq = last; seq > 0 && seq > last - RECENT_REJECTIONS; seq--) {
+			var rejection = recentRejections.get((int) (seq % RECENT_REJECTIONS));
+			if (rejection != null) {
+				list.add(rejection);
+			}
+		}
+		return list;
+	}
+
+	private void record(Rejection rejection) {
+		rejectionCount.incrementAndGet();
+		recentRejections.set((int) (rejectionSeq.incrementAndGet() % RECENT_REJECTIONS), rejection);
+		LOGGER.debug("Rate limited {} for user {} in guild {}", rejection.command, rejection.userId,
+				rejection.guildId);
+	}
+
+	private Mono<Void> escalate(long userId) {
+		var until = Instant.now().plus(blacklistDuration);
+		if (tempBlacklist.putIfAbsent(userId, until) != null) {
+			return Mono.empty();
+		}
+		escalationCount.incrementAndGet();
+		bot.command().blacklist(userId);
+		var timer = Disposables.swap();
+		var lift = daoExecutor.withExtension(BlacklistedIdDao.class, dao -> dao.get(userId))
+				.doOnNext(permanent -> {
+					tempBlacklist.remove(userId);
+					// The owner may have blacklisted the user for good in the meantime
+					if (permanent.isEmpty()) {
+						bot.command().unblacklist(userId);
+					}
+				})
+				.onErrorResume(e -> {
+					LOGGER.error("Failed to lift temporary blacklist of user " + userId, e);
+					return Mono.empty();
+				})
+				.doFinally(signal -> liftTimers.remove(userId, timer));
+		// Registered before subscribing so that a lift completing right away still removes it
+		liftTimers.put(userId, timer);
+		timer.update(Mono.delay(blacklistDuration).then(lift).subscribe());
+		return logSink.log(CoreStrings.translate(bot.localization().getLocale(), CoreStringsKey.RATELIMIT_BLACKLIST_LOG,
+				userId, DurationUtils.format(blacklistDuration)));
+	}
+
+	/**
+	 * A command that was refused by the rate limiter.
+	 */
+	public static final class Rejection {
+
+		private final Instant time;
+		private final long userId;
+		private final long guildId;
+		private final String command;
+
+		private Rejection(Instant time, long userId, long guildId, String command) {
+			this.time = time;
+			this.userId = userId;
+			this.guildId = guildId;
+			this.command = command;
+		}
+
+		public Instant time() {
+			return time;
+		}
+
+		public long userId() {
+			return userId;
+		}
+
+		/**
+		 * @return the guild ID, or 0 if the command was run in DMs
+		 */
+		public long guildId() {
+			return guildId;
+		}
+
+		public String command() {
+			return command;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * A signal that completes once, for operators such as takeUntilOther. Unlike
+ * a MonoProcessor, it keeps no subscriber once it has fired or once they
+ * cancel, and it works the same with or without the Sinks API of recent
+ * Reactor versions.
+ */
+final class CompletionSignal {
+
+	private final List<MonoSink<Void>> sinks = new ArrayList<>();
+	private boolean fired;
+
+	/**
+	 * Gets a Mono completing when the signal fires, or right away if it already
+	 * has.
+	 *
+	 * @return a Mono completing on fire
+	 */
+	Mono<Void> asMono() {
+		return Mono.create(sink -> {
+			synchronized (sinks) {
+				if (!fired) {
+					sinks.add(sink);
+					sink.onDispose(() -> {
+						synchronized (sinks) {
+							sinks.remove(sink);
+						}
+					});
+					return;
+				}
+			}
+			sink.success();
+		});
+	}
+
+	/**
+	 * Fires the signal. Does nothing if it already fired.
+	 */
+	void fire() {
+		List<MonoSink<Void>> toComplete;
+		synchronized (sinks) {
+			if (fired) {
+				return;
+			}
+			fired = true;
+			toComplete = List.copyOf(sinks);
+			sinks.clear();
+		}
+		toComplete.forEach(MonoSink::success);
+	}
+}
@@ -0,0 +1,164 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Binary image of the state that the core plugin loads from database at
+ * startup: blacklisted IDs, non-default guild prefixes and non-default guild
+ * locales. The snapshot also records the change log sequence number it is
+ * consistent with, so that only the changes made after it need to be replayed.
+ * 
+ * <p>
+ * Layout (big endian): magic, format version, high-water mark, creation time,
+ * default prefix, default locale, blacklist count and IDs, prefix count and
+ * entries, locale count and entries, CRC32 of everything before it. Strings
+ * are written as a length followed by UTF-8 bytes.
+ */
+final class ConfigSnapshot {
+	
+	private static final int MAGIC = 0x55474442; // "UGDB"
+	private static final int FORMAT_VERSION = 1;
+	
+	final long highWaterMark;
+	final long createdAt;
+	final String defaultPrefix;
+	final String defaultLocale;
+	final long[] blacklist;
+	final Map<Long, String> prefixes;
+	final Map<Long, String> locales;
+	
+	ConfigSnapshot(long highWaterMark, long createdAt, String defaultPrefix, String defaultLocale, long[] blacklist,
+			Map<Long, String> prefixes, Map<Long, String> locales) {
+		this.highWaterMark = highWaterMark;
+		this.createdAt = createdAt;
+		this.defaultPrefix = defaultPrefix;
+		this.defaultLocale = defaultLocale;
+		this.blacklist = blacklist;
+		this.prefixes = Collections.unmodifiableMap(prefixes);
+		this.locales = Collections.unmodifiableMap(locales);
+	}
+	
+	int size() {
+		return blacklist.length + prefixes.size() + locales.size();
+	}
+	
+	/**
+	 * Writes this snapshot to the given path. The content is first written to a
+	 * temporary file which is then atomically moved to the target path, so that
+	 * a crash while writing never leaves a truncated snapshot behind.
+	 * 
+	 * @param path the path of the snapshot file
+	 * @throws IOException if an I/O error occurs
+	 */
+	void writeTo(Path path) throws IOException {
+		var bytes = new ByteArrayOutputStream(16 + 8 * blacklist.length + 32 * (prefixes.size() + locales.size()));
+		try (var out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(highWaterMark);
+			out.writeLong(createdAt);
+			writeString(out, defaultPrefix);
+			writeString(out, defaultLocale);
+			out.writeInt(blacklist.length);
+			for (var id : blacklist) {
+				out.writeLong(id);
+			}
+			writeMap(out, prefixes);
+			writeMap(out, locales);
+			var crc = new CRC32();
+			crc.update(bytes.toByteArray());
+			out.writeLong(crc.getValue());
+		}
+		var parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		Files.write(tmp, bytes.toByteArray());
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Reads a snapshot by memory-mapping the file at the given path.
+	 * 
+	 * @param path the path of the snapshot file
+	 * @return the snapshot, or empty if the file does not exist or is not a
+	 *         valid snapshot
+	 * @throws IOException if an I/O error occurs
+	 */
+	static Optional<ConfigSnapshot> readFrom(Path path) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return Optional.empty();
+		}
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			var size = channel.size();
+			if (size < 32 || size > Integer.MAX_VALUE) {
+				return Optional.empty();
+			}
+			var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			var crc = new CRC32();
+			crc.update(buffer.duplicate().limit((int) size - 8));
+			if (buffer.getLong((int) size - 8) != crc.getValue()
+					|| buffer.getInt() != MAGIC
+					|| buffer.getInt() != FORMAT_VERSION) {
+				return Optional.empty();
+			}
+			var highWaterMark = buffer.getLong();
+			var createdAt = buffer.getLong();
+			var defaultPrefix = readString(buffer);
+			var defaultLocale = readString(buffer);
+			var blacklist = new long[buffer.getInt()];
+			for (var i = 0 ; i < blacklist.length ; i++) {
+				blacklist[i] = buffer.getLong();
+			}
+			var prefixes = readMap(buffer);
+			var locales = readMap(buffer);
+			return Optional.of(new ConfigSnapshot(highWaterMark, createdAt, defaultPrefix, defaultLocale, blacklist,
+					prefixes, locales));
+		}
+	}
+	
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		var bytes = s.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static void writeMap(DataOutputStream out, Map<Long, String> map) throws IOException {
+		out.writeInt(map.size());
+		for (var entry : map.entrySet()) {
+			out.writeLong(entry.getKey());
+			writeString(out, entry.getValue());
+		}
+	}
+	
+	private static String readString(ByteBuffer buffer) {
+		var bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+	
+	private static Map<Long, String> readMap(ByteBuffer buffer) {
+		var size = buffer.getInt();
+		var map = new HashMap<Long, String>(size * 4 / 3 + 1);
+		for (var i = 0 ; i < size ; i++) {
+			map.put(buffer.getLong(), readString(buffer));
+		}
+		return map;
+	}
+}
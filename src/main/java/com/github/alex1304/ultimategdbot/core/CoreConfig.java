@@ -0,0 +1,70 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+
+import com.github.alex1304.ultimategdbot.api.BotConfig;
+import com.github.alex1304.ultimategdbot.api.util.PropertyReader;
+
+/**
+ * Settings of the core plugin, read from the <code>core</code> resource of the
+ * bot configuration. The resource is optional, and so is each key in it: a
+ * default value is used for everything that is not specified.
+ */
+public final class CoreConfig {
+	
+	private final PropertyReader reader;
+	
+	private CoreConfig(PropertyReader reader) {
+		this.reader = reader;
+	}
+	
+	/**
+	 * Reads the core settings from the given bot configuration.
+	 * 
+	 * @param botConfig the bot configuration
+	 * @return a new CoreConfig
+	 */
+	public static CoreConfig from(BotConfig botConfig) {
+		PropertyReader reader;
+		try {
+			reader = botConfig.resource("core");
+		} catch (RuntimeException e) {
+			reader = PropertyReader.fromProperties(new Properties());
+		}
+		return new CoreConfig(reader);
+	}
+	
+	public Optional<String> read(String key) {
+		return reader.readOptional(key).map(String::strip).filter(s -> !s.isEmpty());
+	}
+	
+	public int readInt(String key, int defaultValue) {
+		return read(key).map(Integer::parseInt).orElse(defaultValue);
+	}
+	
+	public long readLong(String key, long defaultValue) {
+		return read(key).map(Long::parseLong).orElse(defaultValue);
+	}
+	
+	public boolean readBoolean(String key, boolean defaultValue) {
+		return read(key).map(Boolean::parseBoolean).orElse(defaultValue);
+	}
+	
+	/**
+	 * Reads a duration. The value is either a number of seconds or an ISO-8601
+	 * duration such as <code>PT1H30M</code>.
+	 * 
+	 * @param key          the key
+	 * @param defaultValue the value to return if the key is absent
+	 * @return the duration
+	 */
+	public Duration readDuration(String key, Duration defaultValue) {
+		return read(key)
+				.map(value -> value.toUpperCase().startsWith("P")
+						? Duration.parse(value)
+						: Duration.ofMillis((long) (Double.parseDouble(value) * 1000)))
+				.orElse(defaultValue);
+	}
+}
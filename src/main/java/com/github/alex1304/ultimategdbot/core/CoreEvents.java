@@ -0,0 +1,201 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.sql.SQLException;
+
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.SqlStatements;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import com.github.alex1304.ultimategdbot.api.command.Context;
+import com.github.alex1304.ultimategdbot.core.database.CoreConfigDao;
+
+import discord4j.common.util.Snowflake;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Flight Recorder events emitted by the plugin. While no recording enables
+ * them, creating an event and calling {@link Event#begin()},
+ * {@link Event#end()} and {@link Event#shouldCommit()} compiles down to almost
+ * nothing, and the reactive wrappers check {@link Event#isEnabled()} before
+ * adding any operator.
+ */
+final class CoreEvents {
+
+	private static final String CATEGORY = "UltimateGDBot";
+	private static final String DAO_PACKAGE = CoreConfigDao.class.getPackageName();
+
+	private CoreEvents() {
+	}
+
+	@Name("ultimategdbot.core.Command")
+	@Label("Command")
+	@Description("Execution of a command of the core plugin")
+	@Category({ CATEGORY, "Commands" })
+	@StackTrace(false)
+	static final class CommandEvent extends Event {
+		@Label("Command")
+		String command;
+		@Label("Guild ID")
+		long guildId;
+		@Label("User ID")
+		long userId;
+		@Label("Outcome")
+		@Description("success, cancelled, or the simple name of the exception")
+		String outcome;
+	}
+
+	@Name("ultimategdbot.core.DaoCall")
+	@Label("DAO Call")
+	@Description("Execution of a statement by a DAO of the core plugin")
+	@Category({ CATEGORY, "Database" })
+	@StackTrace(false)
+	static final class DaoCallEvent extends Event {
+		@Label("DAO")
+		String dao;
+		@Label("Method")
+		String method;
+		@Label("Outcome")
+		String outcome;
+	}
+
+	@Name("ultimategdbot.core.ChangelogSend")
+	@Label("Changelog Send")
+	@Description("Delivery of a changelog to one channel through the REST API, retries included")
+	@Category({ CATEGORY, "Changelog" })
+	@StackTrace(false)
+	static final class ChangelogSendEvent extends Event {
+		@Label("Channel ID")
+		long channelId;
+		@Label("Attempts")
+		int attempts;
+		@Label("Outcome")
+		String outcome;
+	}
+
+	@Name("ultimategdbot.core.GcNotification")
+	@Label("GC Notification")
+	@Description("Processing of a garbage collection notification by the memory statistics")
+	@Category({ CATEGORY, "Memory" })
+	@StackTrace(false)
+	static final class GcNotificationEvent extends Event {
+		@Label("Collector")
+		String gcName;
+		@Label("Action")
+		String gcAction;
+		@Label("Cause")
+		String gcCause;
+		@Label("Collection Duration")
+		@Timespan(Timespan.MILLISECONDS)
+		long gcDuration;
+	}
+
+	/**
+	 * Records the execution of a command, from subscription to termination.
+	 *
+	 * @param ctx     the context of the command
+	 * @param command the name of the command
+	 * @param action  the execution of the command
+	 * @return the action, unchanged if the event is disabled
+	 */
+	static Mono<Void> command(Context ctx, String command, Mono<Void> action) {
+		if (!new CommandEvent().isEnabled()) {
+			return action;
+		}
+		return Mono.defer(() -> {
+			var event = new CommandEvent();
+			event.begin();
+			return action
+					.doOnError(e -> event.outcome = e.getClass().getSimpleName())
+					.doFinally(signal -> {
+						event.end();
+						if (event.shouldCommit()) {
+							event.command = command;
+							event.guildId = ctx.event().getGuildId().map(Snowflake::asLong).orElse(0L);
+							event.userId = ctx.author().getId().asLong();
+							if (event.outcome == null) {
+								event.outcome = signal == SignalType.CANCEL ? "cancelled" : "success";
+							}
+							event.commit();
+						}
+					});
+		});
+	}
+
+	/**
+	 * Emits a {@link DaoCallEvent} for each statement run by a DAO of the
+	 * plugin. The SQL logger already set on the Jdbi instance, which may belong
+	 * to other plugins, keeps being called.
+	 *
+	 * @param jdbi the Jdbi instance of the bot
+	 */
+	static void installDaoCallEvents(Jdbi jdbi) {
+		var statements = jdbi.getConfig(SqlStatements.class);
+		statements.setSqlLogger(new DaoCallLogger(statements.getSqlLogger()));
+	}
+
+	/**
+	 * Before and after an execution are called on the same thread, and
+	 * statements do not nest, so the pending event can live in a thread local.
+	 */
+	private static final class DaoCallLogger implements SqlLogger {
+
+		private static final ThreadLocal<DaoCallEvent> PENDING = new ThreadLocal<>();
+
+		private final SqlLogger delegate;
+
+		private DaoCallLogger(SqlLogger delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void logBeforeExecution(StatementContext ctx) {
+			delegate.logBeforeExecution(ctx);
+			var method = ctx.getExtensionMethod();
+			if (method == null || !method.getType().getPackageName().equals(DAO_PACKAGE)) {
+				return;
+			}
+			var event = new DaoCallEvent();
+			if (!event.isEnabled()) {
+				return;
+			}
+			event.dao = method.getType().getSimpleName();
+			event.method = method.getMethod().getName();
+			PENDING.set(event);
+			event.begin();
+		}
+
+		@Override
+		public void logAfterExecution(StatementContext ctx) {
+			delegate.logAfterExecution(ctx);
+			commit("success");
+		}
+
+		@Override
+		public void logException(StatementContext ctx, SQLException ex) {
+			delegate.logException(ctx, ex);
+			commit(ex.getClass().getSimpleName());
+		}
+
+		private static void commit(String outcome) {
+			var event = PENDING.get();
+			if (event == null) {
+				return;
+			}
+			PENDING.remove();
+			event.end();
+			if (event.shouldCommit()) {
+				event.outcome = outcome;
+				event.commit();
+			}
+		}
+	}
+}
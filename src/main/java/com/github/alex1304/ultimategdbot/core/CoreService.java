@@ -2,57 +2,224 @@ package com.github.alex1304.ultimategdbot.core;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.jdbi.v3.core.mapper.immutables.JdbiImmutables;
 
 import com.github.alex1304.ultimategdbot.api.command.CommandProvider;
 import com.github.alex1304.ultimategdbot.api.command.CommandService;
+import com.github.alex1304.ultimategdbot.api.command.Context;
 import com.github.alex1304.ultimategdbot.api.command.PermissionLevel;
-import com.github.alex1304.ultimategdbot.api.database.DatabaseService;
 import com.github.alex1304.ultimategdbot.api.service.BotService;
 import com.github.alex1304.ultimategdbot.api.service.RootServiceSetupHelper;
 import com.github.alex1304.ultimategdbot.core.database.BlacklistedIdDao;
 import com.github.alex1304.ultimategdbot.core.database.BotAdminDao;
+import com.github.alex1304.ultimategdbot.core.database.ChangeLogEntry;
+import com.github.alex1304.ultimategdbot.core.database.ChangelogJob;
 import com.github.alex1304.ultimategdbot.core.database.CoreConfigDao;
 import com.github.alex1304.ultimategdbot.core.database.CoreConfigData;
+import com.github.alex1304.ultimategdbot.core.database.DeliveryCount;
 
+import discord4j.common.util.Snowflake;
 import discord4j.core.object.entity.ApplicationInfo;
 import discord4j.core.object.entity.Guild;
 import discord4j.core.object.entity.User;
 import discord4j.core.object.entity.channel.GuildChannel;
 import discord4j.rest.util.Permission;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
 
 public final class CoreService {
+	
+	private static final Logger LOGGER = Loggers.getLogger(CoreService.class);
 
 	private final BotService bot;
 	private final String aboutText;
+	private final AboutTemplate aboutTemplate;
 	private final Mono<User> botOwner;
+	private final CoreConfig config;
+	private final DaoExecutor daoExecutor;
+	private final InvalidationBus invalidationBus;
+	private final SnapshotManager snapshotManager;
+	private final ChangelogQueue changelogQueue;
+	private final LogSink logSink;
+	private final UserTagResolver userTagResolver;
+	private final SetupSessionRegistry setupSessions;
+	private final CommandRateLimiter rateLimiter;
+	private final ShutdownCoordinator shutdownCoordinator;
+	private final StartupProfiler startupProfiler;
+	private final StackProfiler stackProfiler;
+	private final FlightRecording flightRecording;
+	private final HeapCapture heapCapture;
+	private final BlockingCallDetector blockingCallDetector;
+	private final Tracer tracer;
 
 	public static Mono<CoreService> create(BotService bot, String aboutText) {
+		var config = CoreConfig.from(bot.config());
+		var daoExecutor = DaoExecutor.create(bot.database(), config);
+		var origin = InvalidationBus.newOrigin();
+		var invalidationBus = new InvalidationBus(
+				new DatabaseInvalidationTransport(bot.database(), origin,
+						config.readDuration("invalidation.poll_interval", Duration.ofSeconds(2)),
+						config.readInt("invalidation.batch_size", 100),
+						config.readDuration("invalidation.retention", Duration.ofDays(1)),
+						config.readDuration("invalidation.gap_timeout", Duration.ofSeconds(30))),
+				config.readInt("invalidation.batch_size", 100),
+				config.readDuration("invalidation.batch_window", Duration.ofMillis(200)));
+		var snapshotManager = config.readBoolean("snapshot.enabled", true)
+				? new SnapshotManager(bot, daoExecutor, Paths.get(config.read("snapshot.path").orElse("core.snapshot")),
+						config.readDuration("invalidation.retention", Duration.ofDays(1)))
+				: null;
+		var logSink = new LogSink(bot,
+				config.readDuration("log.window", Duration.ofSeconds(2)),
+				config.readInt("log.max_entries_per_batch", 50),
+				config.readInt("log.max_pending_batches", 20));
+		var changelogQueue = new ChangelogQueue(bot, logSink,
+				new ChangelogBroadcaster(daoExecutor, config.readInt("changelog.max_retries", 3)),
+				origin,
+				config.readInt("changelog.batch_size", 100),
+				config.readInt("changelog.concurrency", 4),
+				config.readDuration("changelog.poll_interval", Duration.ofSeconds(5)),
+				config.readDuration("changelog.claim_timeout", Duration.ofMinutes(10)),
+				config.readDuration("changelog.job_retention", Duration.ofDays(30)));
+		var setupSessions = new SetupSessionRegistry(
+				config.readInt("setup.max_sessions", 500),
+				config.readInt("setup.max_sessions_per_guild", 3),
+				config.readDuration("setup.idle_timeout", Duration.ofMinutes(10)));
+		var rateLimiter = new CommandRateLimiter(bot, daoExecutor, logSink, config);
+		var heapCapture = new HeapCapture(
+				config.readDuration("heap.histogram_cooldown", Duration.ofMinutes(1)),
+				config.readDuration("heap.dump_cooldown", Duration.ofHours(1)),
+				config.read("heap.dump_dir").map(Paths::get).orElse(null),
+				config.readLong("heap.min_free_bytes", 1024L * 1024 * 1024));
+		var blockingCallDetector = config.readBoolean("blocking.enabled", false)
+				? new BlockingCallDetector(
+						config.readDuration("blocking.interval", Duration.ofMillis(100)),
+						Pattern.compile(config.read("blocking.thread_pattern")
+								.orElse("(parallel|reactor-http-(nio|epoll|kqueue))-\\d+")),
+						config.readInt("blocking.max_depth", 64),
+						config.readInt("blocking.max_stacks", 200))
+				: null;
+		var tracer = config.readBoolean("trace.enabled", false)
+				? new Tracer(
+						config.readDuration("trace.threshold", Duration.ofMillis(500)),
+						config.readInt("trace.buffer_size", 1024),
+						Paths.get(config.read("trace.path").orElse("core-traces.jsonl")))
+				: null;
+		var background = Disposables.composite();
+		var shutdownCoordinator = new ShutdownCoordinator(
+				config.readDuration("shutdown.drain_timeout", Duration.ofSeconds(30)),
+				config.readDuration("shutdown.phase_timeout", Duration.ofSeconds(15)));
+		initShutdownPhases(shutdownCoordinator, background, invalidationBus, snapshotManager, changelogQueue,
+				setupSessions, rateLimiter, tracer, daoExecutor);
 		bot.database().configureJdbi(jdbi -> {
-			jdbi.getConfig(JdbiImmutables.class).registerImmutable(CoreConfigData.class);
+			jdbi.getConfig(JdbiImmutables.class).registerImmutable(CoreConfigData.class, ChangeLogEntry.class,
+					ChangelogJob.class, DeliveryCount.class);
+			CoreEvents.installDaoCallEvents(jdbi);
 		});
 		bot.database().addGuildConfigurator(CoreConfigDao.class,
-				(data, tr) -> CoreConfigData.configurator(data, tr, bot));
+				(data, tr) -> CoreConfigData.configurator(data, tr, bot, invalidationBus));
 		var botOwner = bot.gateway().getApplicationInfo().flatMap(ApplicationInfo::getOwner).cache();
-		return RootServiceSetupHelper.create(() -> new CoreService(bot, botOwner, aboutText))
-				.setSetupSequence(Mono.when(
-						initBlacklist(bot),
-						initPrefixes(bot),
-						initLocales(bot),
-						initMemoryStats()))
-				.addCommandProvider(bot.command(), initCommandProvider(botOwner, bot.database(), bot.command()))
+		if (config.readBoolean("threads.contention_monitoring", true)) {
+			ThreadSnapshot.enableContentionMonitoring();
+		}
+		var profiler = new StartupProfiler();
+		return RootServiceSetupHelper.create(() -> new CoreService(bot, botOwner, aboutText, config, daoExecutor,
+						invalidationBus, snapshotManager, changelogQueue, logSink, setupSessions, rateLimiter,
+						heapCapture, shutdownCoordinator, profiler, blockingCallDetector, tracer))
+				.setSetupSequence(profiler.phase("total", total -> Mono.when(
+						// Changes committed while the state loads are received once the bus starts
+						invalidationBus.markStart().then(initState(bot, daoExecutor, snapshotManager, profiler)),
+						profiler.phase("memory_stats", phase -> initMemoryStats()),
+						profiler.phase("localization_check", phase -> checkLocalization(bot)),
+						// Resolved eagerly so that the first owner-only command does not pay for it
+						profiler.phase("bot_owner", phase -> botOwner
+								.doOnNext(owner -> phase.addRows(1))
+								.onErrorResume(e -> {
+									LOGGER.warn("Could not resolve the bot owner during setup", e);
+									return Mono.empty();
+								})))
+						.then(profiler.phase("invalidation_bus",
+								phase -> initInvalidationBus(bot, daoExecutor, invalidationBus)))
+						.then(initSnapshots(snapshotManager,
+								config.readDuration("snapshot.interval", Duration.ofMinutes(15)), background))
+						.then(initStaleConfigReaper(bot, daoExecutor, config, invalidationBus, logSink, background))
+						.then(Mono.fromRunnable(changelogQueue::start))
+						.then(Mono.fromRunnable(setupSessions::start))
+						.then(Mono.fromRunnable(() -> {
+							if (blockingCallDetector != null) {
+								background.add(blockingCallDetector.start());
+							}
+							if (config.readBoolean("memory.watchdog.enabled", true)) {
+								background.add(new MemoryWatchdog(bot, logSink, heapCapture,
+										config.readDuration("memory.window", Duration.ofHours(1)),
+										config.readInt("memory.buckets", 12),
+										config.readInt("memory.warning_percent", 80),
+										config.readInt("memory.critical_percent", 90),
+										config.readDuration("memory.oom_horizon", Duration.ofHours(6)),
+										config.readDuration("memory.alert_cooldown", Duration.ofMinutes(30)),
+										config.read("memory.histogram_dir").map(Paths::get).orElse(null)).start());
+							}
+							if (tracer != null) {
+								var flushInterval = config.readDuration("trace.flush_interval", Duration.ofSeconds(5));
+								background.add(Flux.interval(flushInterval).concatMap(tick -> tracer.flush()).subscribe());
+							}
+						})))
+						.then(Mono.fromRunnable(() -> LOGGER.info("Startup report:\n{}", profiler.phases().stream()
+								.map(Object::toString)
+								.collect(Collectors.joining("\n"))))))
+				.addCommandProvider(bot.command(), initCommandProvider(botOwner, daoExecutor, bot.command()))
 				.setup();
 	}
 
-	private CoreService(BotService bot, Mono<User> botOwner, String aboutText) {
+	private CoreService(BotService bot, Mono<User> botOwner, String aboutText, CoreConfig config,
+			DaoExecutor daoExecutor, InvalidationBus invalidationBus, @Nullable SnapshotManager snapshotManager,
+			ChangelogQueue changelogQueue, LogSink logSink, SetupSessionRegistry setupSessions,
+			CommandRateLimiter rateLimiter, HeapCapture heapCapture, ShutdownCoordinator shutdownCoordinator,
+			StartupProfiler startupProfiler, @Nullable BlockingCallDetector blockingCallDetector,
+			@Nullable Tracer tracer) {
 		this.bot = bot;
 		this.aboutText = aboutText;
+		this.aboutTemplate = AboutTemplate.compile(aboutText);
 		this.botOwner = botOwner;
+		this.config = config;
+		this.daoExecutor = daoExecutor;
+		this.invalidationBus = invalidationBus;
+		this.snapshotManager = snapshotManager;
+		this.changelogQueue = changelogQueue;
+		this.logSink = logSink;
+		this.setupSessions = setupSessions;
+		this.rateLimiter = rateLimiter;
+		this.heapCapture = heapCapture;
+		this.shutdownCoordinator = shutdownCoordinator;
+		this.startupProfiler = startupProfiler;
+		this.blockingCallDetector = blockingCallDetector;
+		this.tracer = tracer;
+		this.stackProfiler = new StackProfiler(
+				config.readDuration("profile.interval", Duration.ofMillis(10)),
+				config.readInt("profile.max_overhead_percent", 5) / 100.0,
+				config.readInt("profile.max_depth", 128),
+				config.readBoolean("profile.runnable_only", true));
+		this.flightRecording = new FlightRecording(
+				config.read("jfr.settings").orElse("profile"),
+				config.readDuration("jfr.max_duration", Duration.ofMinutes(30)),
+				config.readLong("jfr.max_size", 64L * 1024 * 1024));
+		this.userTagResolver = new UserTagResolver(bot.gateway(),
+				config.readInt("botadmins.rest_concurrency", 4),
+				config.readDuration("botadmins.tag_cache_ttl", Duration.ofMinutes(10)));
 	}
 	
 	public BotService bot() {
@@ -63,10 +230,124 @@ public final class CoreService {
 		return aboutText;
 	}
 
+	public AboutTemplate aboutTemplate() {
+		return aboutTemplate;
+	}
+
 	public Mono<User> botOwner() {
 		return botOwner;
 	}
 
+	public CoreConfig config() {
+		return config;
+	}
+
+	public DaoExecutor daoExecutor() {
+		return daoExecutor;
+	}
+
+	public InvalidationBus invalidationBus() {
+		return invalidationBus;
+	}
+
+	public ChangelogQueue changelogQueue() {
+		return changelogQueue;
+	}
+
+	public LogSink logSink() {
+		return logSink;
+	}
+
+	public UserTagResolver userTagResolver() {
+		return userTagResolver;
+	}
+
+	public SetupSessionRegistry setupSessions() {
+		return setupSessions;
+	}
+
+	public CommandRateLimiter rateLimiter() {
+		return rateLimiter;
+	}
+
+	public ShutdownCoordinator shutdownCoordinator() {
+		return shutdownCoordinator;
+	}
+
+	public StartupProfiler startupProfiler() {
+		return startupProfiler;
+	}
+
+	public StackProfiler stackProfiler() {
+		return stackProfiler;
+	}
+
+	FlightRecording flightRecording() {
+		return flightRecording;
+	}
+
+	HeapCapture heapCapture() {
+		return heapCapture;
+	}
+
+	/**
+	 * Shuts the plugin down before the bot disconnects. The log channel is
+	 * flushed last, after receiving the timings of the other phases.
+	 * 
+	 * @return a Mono emitting how long each phase took, or empty if shutdown
+	 *         was already started
+	 */
+	public Mono<List<ShutdownCoordinator.PhaseTiming>> shutdown() {
+		return shutdownCoordinator.shutdown()
+				.flatMap(timings -> logSink.log(CoreStrings.translate(bot.localization().getLocale(), CoreStringsKey.SHUTDOWN_LOG,
+								timings.stream().map(Object::toString).collect(Collectors.joining(", "))))
+						.then(shutdownCoordinator.runPhase("flush_logs", logSink::close))
+						.map(flushTiming -> {
+							var all = new ArrayList<>(timings);
+							all.add(flushTiming);
+							return all;
+						}));
+	}
+
+	/**
+	 * Runs a command action under the rate limiter, and keeps track of it so
+	 * that shutdown waits for it to finish. Every command of this plugin goes
+	 * through here, except logout which starts the shutdown itself.
+	 * 
+	 * @param ctx     the context of the command
+	 * @param command the name used to look up the cost of the command
+	 * @param action  the command action
+	 * @return a Mono completing when the action completes or is rejected
+	 */
+	public Mono<Void> runCommand(Context ctx, String command, Mono<Void> action) {
+		var run = CoreEvents.command(ctx, command, shutdownCoordinator.track(ctx, rateLimiter.guard(ctx, command, action)));
+		if (tracer == null) {
+			return run;
+		}
+		return tracer.trace("command " + command, Map.of(
+				"command", command,
+				"guild.id", ctx.event().getGuildId().map(Snowflake::asLong).orElse(0L),
+				"user.id", ctx.author().getId().asLong()), run);
+	}
+
+	Optional<SnapshotManager> snapshotManager() {
+		return Optional.ofNullable(snapshotManager);
+	}
+
+	/**
+	 * @return the blocking call detector, empty unless blocking.enabled is set
+	 */
+	public Optional<BlockingCallDetector> blockingCallDetector() {
+		return Optional.ofNullable(blockingCallDetector);
+	}
+
+	/**
+	 * @return the tracer, empty unless trace.enabled is set
+	 */
+	public Optional<Tracer> tracer() {
+		return Optional.ofNullable(tracer);
+	}
+
 	public static Mono<String> readAboutText() {
 		var url = ClassLoader.getSystemResource("about.txt");
 		if (url == null) {
@@ -76,11 +357,11 @@ public final class CoreService {
 				.subscribeOn(Schedulers.boundedElastic());
 	}
 	
-	private static CommandProvider initCommandProvider(Mono<User> botOwner, DatabaseService databaseService, CommandService commandService) {
+	static CommandProvider initCommandProvider(Mono<User> botOwner, DaoExecutor daoExecutor, CommandService commandService) {
 		var cmdProvider = new CommandProvider(CorePlugin.PLUGIN_NAME, commandService.getPermissionChecker());
 		var permissionChecker = commandService.getPermissionChecker();
 		permissionChecker.register(PermissionLevel.BOT_OWNER, ctx -> botOwner.map(ctx.author()::equals));
-		permissionChecker.register(PermissionLevel.BOT_ADMIN, ctx -> databaseService
+		permissionChecker.register(PermissionLevel.BOT_ADMIN, ctx -> daoExecutor
 				.withExtension(BotAdminDao.class, dao -> dao.get(ctx.author().getId().asLong()))
 				.flatMap(Mono::justOrEmpty)
 				.hasElement());
@@ -94,33 +375,180 @@ public final class CoreService {
 		return cmdProvider;
 	}
 	
-	private static Mono<Void> initBlacklist(BotService bot) {
-		return bot.database().withExtension(BlacklistedIdDao.class, BlacklistedIdDao::getAll)
+	private static Mono<Void> initState(BotService bot, DaoExecutor daoExecutor,
+			@Nullable SnapshotManager snapshotManager, StartupProfiler profiler) {
+		var fullLoad = Mono.when(
+				profiler.phase("blacklist", phase -> initBlacklist(bot, daoExecutor, phase)),
+				profiler.phase("prefixes", phase -> initPrefixes(bot, daoExecutor, phase)),
+				profiler.phase("locales", phase -> initLocales(bot, daoExecutor, phase)));
+		if (snapshotManager == null) {
+			return fullLoad;
+		}
+		return profiler.phase("snapshot_restore", phase -> snapshotManager.restore()
+						.doOnNext(count -> {
+							phase.addRows(count);
+							LOGGER.info("Restored {} entries from snapshot", count);
+						}))
+				.switchIfEmpty(fullLoad.then(Mono.empty()))
+				.then();
+	}
+	
+	private static Mono<Void> initBlacklist(BotService bot, DaoExecutor daoExecutor, StartupProfiler.Phase phase) {
+		return daoExecutor.withExtension(BlacklistedIdDao.class, dao -> phase.measure(dao::getAll))
 				.flatMapMany(Flux::fromIterable)
-				.doOnNext(bot.command()::blacklist)
+				.doOnNext(phase.eachRow(bot.command()::blacklist))
 				.then();
 	}
 	
-	private static Mono<Void> initPrefixes(BotService bot) {
+	private static Mono<Void> initPrefixes(BotService bot, DaoExecutor daoExecutor, StartupProfiler.Phase phase) {
 		var defaultPrefix = bot.command().getCommandPrefix();
-		return bot.database()
-				.withExtension(CoreConfigDao.class, dao -> dao.getAllNonDefaultPrefixes(defaultPrefix))
+		return daoExecutor
+				.withExtension(CoreConfigDao.class, dao -> phase.measure(() -> dao.getAllNonDefaultPrefixes(defaultPrefix)))
 				.flatMapMany(Flux::fromIterable)
-				.doOnNext(data -> bot.command().setPrefixForGuild(data.guildId().asLong(), data.prefix().orElseThrow()))
+				.doOnNext(phase.eachRow(data -> bot.command().setPrefixForGuild(data.guildId().asLong(),
+						data.prefix().orElseThrow())))
 				.then();
 	}
 	
-	private static Mono<Void> initLocales(BotService bot) {
-		return bot.database()
-				.withExtension(CoreConfigDao.class, dao -> dao.getAllNonDefaultLocales(
-						bot.localization().getLocale().toLanguageTag()))
+	private static Mono<Void> initLocales(BotService bot, DaoExecutor daoExecutor, StartupProfiler.Phase phase) {
+		var defaultLocale = bot.localization().getLocale().toLanguageTag();
+		return daoExecutor
+				.withExtension(CoreConfigDao.class, dao -> phase.measure(() -> dao.getAllNonDefaultLocales(defaultLocale)))
 				.flatMapMany(Flux::fromIterable)
-				.doOnNext(data -> bot.localization().setLocaleForGuild(data.guildId().asLong(),
-						Locale.forLanguageTag(data.locale().orElseThrow())))
+				.doOnNext(phase.eachRow(data -> bot.localization().setLocaleForGuild(data.guildId().asLong(),
+						Locale.forLanguageTag(data.locale().orElseThrow()))))
 				.then();
 	}
 	
 	private static Mono<Void> initMemoryStats() {
 		return Mono.fromRunnable(MemoryStats::start);
 	}
+	
+	private static Mono<Void> checkLocalization(BotService bot) {
+		return Mono.fromRunnable(() -> {
+			// Translations lagging behind the base bundle is the normal state, so the
+			// missing keys are only listed at debug level
+			var missingKeys = CoreStrings.missingKeys();
+			if (!missingKeys.isEmpty()) {
+				LOGGER.info("CoreStrings falls back to the base bundle for some keys in {} locale(s): {}",
+						missingKeys.size(), missingKeys.entrySet().stream()
+								.map(entry -> entry.getKey().toLanguageTag() + " (" + entry.getValue().size() + ")")
+								.collect(Collectors.joining(", ")));
+			}
+			missingKeys.forEach((locale, keys) -> LOGGER.debug("CoreStrings ({}) is missing {} key(s): {}",
+					locale.toLanguageTag(), keys.size(), keys.stream()
+							.map(CoreStringsKey::key)
+							.collect(Collectors.joining(", "))));
+			var defaultLocale = bot.localization().getLocale();
+			if (!defaultLocale.getLanguage().equals("en") && !CoreStrings.isCompiled(defaultLocale)) {
+				LOGGER.warn("CoreStrings has no translation for default locale {}, falling back to the base bundle",
+						defaultLocale.toLanguageTag());
+			}
+		});
+	}
+	
+	private static Mono<Void> initInvalidationBus(BotService bot, DaoExecutor daoExecutor,
+			InvalidationBus invalidationBus) {
+		return Mono.fromRunnable(() -> invalidationBus.start(invalidation -> applyInvalidation(bot, daoExecutor,
+				invalidation)));
+	}
+	
+	private static Mono<Void> initSnapshots(@Nullable SnapshotManager snapshotManager, Duration interval,
+			Disposable.Composite background) {
+		if (snapshotManager == null) {
+			return Mono.empty();
+		}
+		var save = Mono.defer(snapshotManager::save)
+				.onErrorResume(e -> {
+					LOGGER.error("Failed to write snapshot", e);
+					return Mono.empty();
+				});
+		// The final snapshot is written by the save_snapshot shutdown phase
+		return Mono.fromRunnable(() -> background.add(Flux.interval(interval).concatMap(tick -> save).subscribe()));
+	}
+	
+	private static Mono<Void> initStaleConfigReaper(BotService bot, DaoExecutor daoExecutor, CoreConfig config,
+			InvalidationBus invalidationBus, LogSink logSink, Disposable.Composite background) {
+		if (!config.readBoolean("reaper.enabled", true)) {
+			return Mono.empty();
+		}
+		var reaper = new StaleConfigReaper(bot, daoExecutor, invalidationBus, logSink,
+				config.readDuration("reaper.grace_period", Duration.ofDays(7)),
+				config.readInt("reaper.batch_size", 500),
+				config.readDuration("reaper.batch_delay", Duration.ofSeconds(1)));
+		var interval = config.readDuration("reaper.interval", Duration.ofHours(6));
+		return Mono.fromRunnable(() -> background.add(Flux.interval(interval, interval)
+				.concatMap(tick -> reaper.run()
+						.onErrorResume(e -> {
+							LOGGER.error("Stale config reaper failed", e);
+							return Mono.empty();
+						}))
+				.subscribe()));
+	}
+	
+	private static void initShutdownPhases(ShutdownCoordinator coordinator, Disposable.Composite background,
+			InvalidationBus invalidationBus, @Nullable SnapshotManager snapshotManager,
+			ChangelogQueue changelogQueue, SetupSessionRegistry setupSessions, CommandRateLimiter rateLimiter,
+			@Nullable Tracer tracer, DaoExecutor daoExecutor) {
+		// Setup menus wait for user input, there is no point in letting them hold the drain until it times out
+		coordinator.addPhase("close_setup_sessions", () -> Mono.fromRunnable(() -> {
+			setupSessions.stop();
+			setupSessions.closeAll();
+		}));
+		coordinator.addDrainPhase();
+		coordinator.addPhase("stop_rate_limiter", () -> Mono.fromRunnable(rateLimiter::stop));
+		coordinator.addPhase("stop_background_tasks", () -> Mono.fromRunnable(background::dispose)
+				.then(changelogQueue.shutdown()));
+		coordinator.addPhase("flush_invalidations", invalidationBus::close);
+		if (tracer != null) {
+			coordinator.addPhase("flush_traces", tracer::flush);
+		}
+		if (snapshotManager != null) {
+			coordinator.addPhase("save_snapshot", snapshotManager::save);
+		}
+		if (daoExecutor.isVirtual()) {
+			coordinator.addPhase("stop_dao_scheduler", () -> Mono.fromRunnable(daoExecutor::dispose));
+		}
+		coordinator.addPhase("unregister_gc_listeners", () -> Mono.fromRunnable(MemoryStats::stop));
+	}
+	
+	static Mono<Void> applyInvalidation(BotService bot, DaoExecutor daoExecutor, Invalidation invalidation) {
+		switch (invalidation.kind()) {
+			case GUILD_CONFIG:
+				return refreshGuildConfig(bot, daoExecutor, invalidation.targetId());
+			case BLACKLIST:
+				return refreshBlacklist(bot, daoExecutor, invalidation.targetId());
+			default:
+				// Bot admins are not cached, the permission checker always reads from database
+				return Mono.empty();
+		}
+	}
+	
+	static Mono<Void> refreshGuildConfig(BotService bot, DaoExecutor daoExecutor, long guildId) {
+		return daoExecutor.withExtension(CoreConfigDao.class, dao -> dao.get(guildId))
+				.doOnNext(data -> {
+					bot.command().setPrefixForGuild(guildId, data
+							.flatMap(CoreConfigData::prefix)
+							.filter(prefix -> !prefix.isBlank())
+							.orElse(null));
+					bot.localization().setLocaleForGuild(guildId, data
+							.flatMap(CoreConfigData::locale)
+							.filter(locale -> !locale.isBlank())
+							.map(Locale::forLanguageTag)
+							.orElse(null));
+				})
+				.then();
+	}
+	
+	static Mono<Void> refreshBlacklist(BotService bot, DaoExecutor daoExecutor, long id) {
+		return daoExecutor.withExtension(BlacklistedIdDao.class, dao -> dao.get(id))
+				.doOnNext(blacklisted -> {
+					if (blacklisted.isPresent()) {
+						bot.command().blacklist(id);
+					} else {
+						bot.command().unblacklist(id);
+					}
+				})
+				.then();
+	}
 }
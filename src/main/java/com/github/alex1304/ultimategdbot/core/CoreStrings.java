@@ -0,0 +1,203 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.alex1304.ultimategdbot.api.Translator;
+
+/**
+ * Fast access to the CoreStrings bundle. The bundle files are compiled at build
+ * time into {@link CoreStringsTable}, and each value is parsed once into a
+ * {@link Format} so that translating a key is an array lookup followed by a
+ * string concatenation, instead of a ResourceBundle lookup followed by a full
+ * {@link String#format(String, Object...)}.
+ *
+ * <p>
+ * Locales are resolved by exact match first, then to the first bundle of the
+ * same language, then to the base bundle. Keys missing in a locale fall back to
+ * the base bundle.
+ */
+public final class CoreStrings {
+
+	private static final CoreStringsKey[] KEYS = CoreStringsKey.values();
+	private static final Format[][] FORMATS = compileAll();
+	private static final Map<Locale, Format[]> FORMATS_BY_LOCALE = new ConcurrentHashMap<>();
+
+	private CoreStrings() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Translates the given key in the locale of the given translator.
+	 *
+	 * @param tr   the translator providing the locale
+	 * @param key  the key to translate
+	 * @param args the format arguments
+	 * @return the translated string
+	 */
+	public static String translate(Translator tr, CoreStringsKey key, Object... args) {
+		return translate(tr.getLocale(), key, args);
+	}
+
+	/**
+	 * Translates the given key in the given locale.
+	 *
+	 * @param locale the locale
+	 * @param key    the key to translate
+	 * @param args   the format arguments
+	 * @return the translated string
+	 */
+	public static String translate(Locale locale, CoreStringsKey key, Object... args) {
+		return FORMATS_BY_LOCALE.computeIfAbsent(locale, CoreStrings::resolve)[key.ordinal()].format(args);
+	}
+
+	/**
+	 * Lists, for each compiled locale, the keys of the base bundle that are not
+	 * translated in that locale. Locales that have every key are omitted.
+	 *
+	 * @return the missing keys per locale
+	 */
+	public static Map<Locale, List<CoreStringsKey>> missingKeys() {
+		var missing = new LinkedHashMap<Locale, List<CoreStringsKey>>();
+		for (var i = 1; i < CoreStringsTable.LOCALES.length; i++) {
+			var keys = new ArrayList<CoreStringsKey>();
+			for (var key : KEYS) {
+				if (CoreStringsTable.VALUES[i][key.ordinal()] == null) {
+					keys.add(key);
+				}
+			}
+			if (!keys.isEmpty()) {
+				missing.put(CoreStringsTable.LOCALES[i], keys);
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Tells whether a bundle was compiled for the given locale or at least its
+	 * language.
+	 *
+	 * @param locale the locale
+	 * @return true if the locale does not fall back to the base bundle
+	 */
+	public static boolean isCompiled(Locale locale) {
+		return indexOf(locale) > 0;
+	}
+
+	private static Format[] resolve(Locale locale) {
+		var index = indexOf(locale);
+		return FORMATS[Math.max(index, 0)];
+	}
+
+	private static int indexOf(Locale locale) {
+		var languageMatch = -1;
+		for (var i = 1; i < CoreStringsTable.LOCALES.length; i++) {
+			var candidate = CoreStringsTable.LOCALES[i];
+			if (candidate.equals(locale)) {
+				return i;
+			}
+			if (languageMatch == -1 && candidate.getLanguage().equals(locale.getLanguage())) {
+				languageMatch = i;
+			}
+		}
+		return languageMatch;
+	}
+
+	private static Format[][] compileAll() {
+		var formats = new Format[CoreStringsTable.LOCALES.length][];
+		for (var i = 0; i < formats.length; i++) {
+			var values = CoreStringsTable.VALUES[i];
+			formats[i] = new Format[values.length];
+			for (var j = 0; j < values.length; j++) {
+				formats[i][j] = values[j] != null ? Format.compile(values[j]) : formats[0][j];
+			}
+		}
+		return formats;
+	}
+
+	/**
+	 * A format string parsed once into literal segments and argument slots. Only
+	 * the conversions used by the bundles are handled natively ({@code %s},
+	 * {@code %d}, {@code %%} and {@code %n}), anything else or any argument
+	 * mismatch is delegated to {@link String#format(String, Object...)} so the
+	 * output is always the same as before.
+	 */
+	static final class Format {
+
+		private static final char STRING = 's';
+		private static final char DECIMAL = 'd';
+
+		private final String pattern;
+		private final String[] literals;
+		private final char[] conversions;
+		private final boolean fallback;
+
+		private Format(String pattern, String[] literals, char[] conversions, boolean fallback) {
+			this.pattern = pattern;
+			this.literals = literals;
+			this.conversions = conversions;
+			this.fallback = fallback;
+		}
+
+		static Format compile(String pattern) {
+			var literals = new ArrayList<String>();
+			var conversions = new StringBuilder();
+			var current = new StringBuilder();
+			for (var i = 0; i < pattern.length(); i++) {
+				var c = pattern.charAt(i);
+				if (c != '%') {
+					current.append(c);
+					continue;
+				}
+				var next = i + 1 < pattern.length() ? pattern.charAt(i + 1) : 0;
+				switch (next) {
+					case '%':
+						current.append('%');
+						break;
+					case 'n':
+						current.append(System.lineSeparator());
+						break;
+					case STRING:
+					case DECIMAL:
+						literals.add(current.toString());
+						current.setLength(0);
+						conversions.append(next);
+						break;
+					default:
+						return new Format(pattern, null, null, true);
+				}
+				i++;
+			}
+			literals.add(current.toString());
+			return new Format(pattern, literals.toArray(String[]::new), conversions.toString().toCharArray(), false);
+		}
+
+		String format(Object... args) {
+			if (fallback || args.length < conversions.length) {
+				return String.format(pattern, args);
+			}
+			if (conversions.length == 0) {
+				return literals[0];
+			}
+			var sb = new StringBuilder(pattern.length() + 16 * conversions.length);
+			for (var i = 0; i < conversions.length; i++) {
+				var arg = args[i];
+				if (conversions[i] == DECIMAL && !isIntegral(arg)) {
+					return String.format(pattern, args);
+				}
+				sb.append(literals[i]).append(arg);
+			}
+			return sb.append(literals[conversions.length]).toString();
+		}
+
+		private static boolean isIntegral(Object arg) {
+			return arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte
+					|| arg instanceof BigInteger;
+		}
+	}
+}
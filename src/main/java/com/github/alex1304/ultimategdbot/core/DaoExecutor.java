@@ -0,0 +1,121 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.jdbi.v3.core.Jdbi;
+
+import com.github.alex1304.ultimategdbot.api.database.DatabaseService;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Runs the calls to the DAOs of the plugin. By default they go through the
+ * {@link DatabaseService} of the bot, which blocks a bounded elastic thread for
+ * each of them. When the plugin is built with the java21 profile, they run on
+ * the Jdbi instance of the bot with one virtual thread per call instead, so a
+ * burst of queries waiting for a connection parks cheaply rather than taking
+ * the bounded elastic threads the rest of the bot needs.
+ *
+ * <p>
+ * database.scheduler selects the mode: virtual, the default when the plugin was
+ * built for it, or bounded_elastic. Virtual threads are only worth it with a
+ * JDBC driver that does not hold monitors while waiting on the socket, since a
+ * virtual thread blocked inside synchronized code pins its carrier thread.
+ */
+public final class DaoExecutor {
+
+	private static final Logger LOGGER = Loggers.getLogger(DaoExecutor.class);
+	/**
+	 * Only compiled by the java21 profile, hence looked up by name.
+	 */
+	private static final String VIRTUAL_THREAD_SCHEDULER = "com.github.alex1304.ultimategdbot.core.VirtualThreadScheduler";
+
+	private final DatabaseService database;
+	private final Scheduler scheduler;
+	private volatile Jdbi jdbi;
+
+	DaoExecutor(DatabaseService database, @Nullable Scheduler scheduler) {
+		this.database = database;
+		this.scheduler = scheduler;
+	}
+
+	static DaoExecutor create(DatabaseService database, CoreConfig config) {
+		var configured = config.read("database.scheduler");
+		var mode = configured.orElse("virtual");
+		if (!mode.equals("virtual") && !mode.equals("bounded_elastic")) {
+			throw new IllegalArgumentException("database.scheduler must be virtual or bounded_elastic, got " + mode);
+		}
+		var scheduler = mode.equals("virtual") ? virtualThreadScheduler().orElse(null) : null;
+		if (scheduler == null && configured.isPresent() && mode.equals("virtual")) {
+			LOGGER.warn("database.scheduler is set to virtual but the plugin was not built with the java21 profile, "
+					+ "DAO calls will run on bounded elastic");
+		}
+		var executor = new DaoExecutor(database, scheduler);
+		if (scheduler != null) {
+			database.configureJdbi(jdbi -> executor.jdbi = jdbi);
+		}
+		LOGGER.info("DAO calls run on {}", scheduler != null ? "virtual threads" : "bounded elastic");
+		return executor;
+	}
+
+	/**
+	 * Creates a scheduler starting a new virtual thread for each task.
+	 *
+	 * @return the scheduler, or empty if the plugin was not built with the java21
+	 *         profile
+	 */
+	static Optional<Scheduler> virtualThreadScheduler() {
+		try {
+			var factory = Class.forName(VIRTUAL_THREAD_SCHEDULER).getDeclaredMethod("create");
+			return Optional.of((Scheduler) factory.invoke(null));
+		} catch (ClassNotFoundException e) {
+			return Optional.empty();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to create the virtual thread scheduler", e);
+		}
+	}
+
+	/**
+	 * Calls a DAO of the plugin.
+	 *
+	 * @param <E>           the type of the DAO
+	 * @param <R>           the type of the result
+	 * @param extensionType the class of the DAO
+	 * @param callback      the function calling the DAO
+	 * @return a Mono emitting the result of the callback, or empty if it is null
+	 */
+	public <E, R> Mono<R> withExtension(Class<E> extensionType, Function<E, R> callback) {
+		// Only recorded within a traced command, scheduling included
+		return Tracer.span("dao " + extensionType.getSimpleName(), Mono.defer(() -> {
+			var jdbi = this.jdbi;
+			// The Jdbi instance is handed over once the database service is set up
+			if (scheduler == null || jdbi == null) {
+				return database.withExtension(extensionType, callback);
+			}
+			return Mono.fromCallable(() -> jdbi.withExtension(extensionType, callback::apply))
+					.subscribeOn(scheduler);
+		}));
+	}
+
+	/**
+	 * @return whether DAO calls run on virtual threads
+	 */
+	public boolean isVirtual() {
+		return scheduler != null;
+	}
+
+	/**
+	 * Stops the virtual threads scheduler, if any. Calls made afterwards are
+	 * rejected.
+	 */
+	void dispose() {
+		if (scheduler != null) {
+			scheduler.dispose();
+		}
+	}
+}
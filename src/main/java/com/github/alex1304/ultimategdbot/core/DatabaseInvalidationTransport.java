@@ -0,0 +1,205 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static java.util.stream.Collectors.toList;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.alex1304.ultimategdbot.api.database.DatabaseService;
+import com.github.alex1304.ultimategdbot.core.database.ChangeLogDao;
+import com.github.alex1304.ultimategdbot.core.database.ChangeLogEntry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.retry.Retry;
+
+/**
+ * Invalidation transport backed by a change-log table. Each published
+ * invalidation is a row with an auto-incremented sequence number, and every
+ * process polls the rows that are newer than the last sequence number it has
+ * seen. Rows older than the retention period are trimmed every hour while
+ * receiving.
+ * 
+ * <p>
+ * Sequence numbers are given when rows are inserted, but rows become visible
+ * when their transaction commits, which is not always in the same order. When
+ * a poll skips some numbers, they are remembered as gaps and looked up again
+ * at each poll until they show up or the gap timeout expires, since rolled
+ * back inserts leave numbers that are never used.
+ * 
+ * <p>
+ * Reading the sequence number to start from is retried until it succeeds, so
+ * that a database hiccup at startup does not leave the process deaf to remote
+ * changes until it restarts.
+ */
+public final class DatabaseInvalidationTransport implements InvalidationTransport {
+	
+	private static final Logger LOGGER = Loggers.getLogger(DatabaseInvalidationTransport.class);
+	private static final Duration TRIM_INTERVAL = Duration.ofHours(1);
+	private static final int MARK_START_RETRIES = 3;
+	private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(1);
+	/**
+	 * Transactions in flight only account for a handful of missing numbers, a
+	 * larger jump is the auto-increment skipping values.
+	 */
+	private static final int MAX_GAPS = 1000;
+	
+	private final DatabaseService database;
+	private final String origin;
+	private final Duration pollInterval;
+	private final int batchSize;
+	private final Duration retention;
+	private final Duration gapTimeout;
+	private volatile Long startSeq;
+	
+	public DatabaseInvalidationTransport(DatabaseService database, String origin, Duration pollInterval,
+			int batchSize, Duration retention, Duration gapTimeout) {
+		this.database = database;
+		this.origin = origin;
+		this.pollInterval = pollInterval;
+		this.batchSize = batchSize;
+		this.retention = retention;
+		this.gapTimeout = gapTimeout;
+	}
+
+	@Override
+	public Mono<Void> publish(List<Invalidation> batch) {
+		if (batch.isEmpty()) {
+			return Mono.empty();
+		}
+		var kinds = batch.stream().map(inv -> inv.kind().name()).collect(toList());
+		var targetIds = batch.stream().map(Invalidation::targetId).collect(toList());
+		return database.withExtension(ChangeLogDao.class, dao -> dao.insertAll(origin, kinds, targetIds)).then();
+	}
+
+	@Override
+	public Mono<Void> markStart() {
+		return database.withExtension(ChangeLogDao.class, ChangeLogDao::getLastSeq)
+				.retryWhen(Retry.backoff(MARK_START_RETRIES, Duration.ofSeconds(1)))
+				.doOnNext(seq -> startSeq = seq)
+				.then();
+	}
+
+	@Override
+	public Flux<Invalidation> receive() {
+		return Mono.defer(() -> {
+					var start = startSeq;
+					// Without a recorded start, the changes made before this point are lost, but not the next ones
+					return start != null
+							? Mono.just(start)
+							: database.withExtension(ChangeLogDao.class, ChangeLogDao::getLastSeq);
+				})
+				.retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+						.maxBackoff(MAX_RETRY_BACKOFF)
+						.doBeforeRetry(signal -> LOGGER.warn("Failed to read the change log position, retrying",
+								signal.failure())))
+				.flatMapMany(initialSeq -> {
+					var cursor = new Cursor(initialSeq);
+					return Flux.interval(pollInterval)
+							.onBackpressureDrop()
+							.concatMap(tick -> fetchGaps(cursor)
+									.concatWith(fetchAfter(cursor))
+									.onErrorResume(e -> {
+										LOGGER.warn("Failed to poll the change log", e);
+										return Mono.empty();
+									}));
+				})
+				.mergeWith(Flux.interval(TRIM_INTERVAL)
+						.concatMap(tick -> trim()
+								.doOnNext(count -> LOGGER.debug("Trimmed {} change log entries", count))
+								.onErrorResume(e -> {
+									LOGGER.warn("Failed to trim the change log", e);
+									return Mono.empty();
+								}))
+						.flatMap(count -> Mono.<ChangeLogEntry>empty()))
+				.filter(entry -> !entry.origin().equals(origin))
+				.flatMap(entry -> {
+					try {
+						return Mono.just(Invalidation.of(Invalidation.Kind.valueOf(entry.kind()), entry.targetId()));
+					} catch (IllegalArgumentException e) {
+						LOGGER.warn("Ignoring change log entry of unknown kind: {}", entry);
+						return Mono.empty();
+					}
+				});
+	}
+	
+	/**
+	 * Deletes the change log rows older than the retention period.
+	 * 
+	 * @return a Mono emitting the number of deleted rows
+	 */
+	public Mono<Integer> trim() {
+		return database.withExtension(ChangeLogDao.class,
+				dao -> dao.deleteOlderThan(Timestamp.from(Instant.now().minus(retention))));
+	}
+	
+	private Flux<ChangeLogEntry> fetchAfter(Cursor cursor) {
+		return fetchBatch(cursor)
+				.expand(batch -> batch.size() < batchSize ? Mono.empty() : fetchBatch(cursor))
+				.flatMapIterable(batch -> batch);
+	}
+	
+	private Mono<List<ChangeLogEntry>> fetchBatch(Cursor cursor) {
+		return Mono.defer(() -> database.withExtension(ChangeLogDao.class, dao -> dao.getAfter(cursor.lastSeq(), batchSize)))
+				.doOnNext(cursor::advance);
+	}
+	
+	private Flux<ChangeLogEntry> fetchGaps(Cursor cursor) {
+		return Mono.defer(() -> {
+					var gaps = cursor.gaps(gapTimeout);
+					return gaps.isEmpty()
+							? Mono.<List<ChangeLogEntry>>empty()
+							: database.withExtension(ChangeLogDao.class, dao -> dao.getAll(gaps));
+				})
+				.flatMapIterable(entries -> entries)
+				.doOnNext(entry -> cursor.fill(entry.seq()));
+	}
+	
+	/**
+	 * The position of a receiver in the change log, along with the numbers it
+	 * skipped and when it first missed them.
+	 */
+	private static final class Cursor {
+		
+		private final Map<Long, Instant> gaps = new LinkedHashMap<>();
+		private long lastSeq;
+		
+		Cursor(long lastSeq) {
+			this.lastSeq = lastSeq;
+		}
+		
+		synchronized long lastSeq() {
+			return lastSeq;
+		}
+		
+		synchronized void advance(List<ChangeLogEntry> batch) {
+			var now = Instant.now();
+			for (var entry : batch) {
+				for (var seq = lastSeq + 1; seq < entry.seq() && gaps.size() < MAX_GAPS; seq++) {
+					gaps.put(seq, now);
+				}
+				lastSeq = Math.max(lastSeq, entry.seq());
+			}
+		}
+		
+		/**
+		 * Drops the gaps older than the timeout and returns the others.
+		 */
+		synchronized List<Long> gaps(Duration timeout) {
+			var expiry = Instant.now().minus(timeout);
+			gaps.values().removeIf(missedAt -> missedAt.isBefore(expiry));
+			return new ArrayList<>(gaps.keySet());
+		}
+		
+		synchronized void fill(long seq) {
+			gaps.remove(seq);
+		}
+	}
+}
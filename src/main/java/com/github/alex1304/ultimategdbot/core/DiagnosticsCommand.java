@@ -0,0 +1,318 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Collectors;
+
+import com.github.alex1304.ultimategdbot.api.command.CommandFailedException;
+import com.github.alex1304.ultimategdbot.api.command.Context;
+import com.github.alex1304.ultimategdbot.api.command.PermissionLevel;
+import com.github.alex1304.ultimategdbot.api.command.annotated.CommandAction;
+import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDescriptor;
+import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDoc;
+import com.github.alex1304.ultimategdbot.api.command.annotated.CommandPermission;
+import com.github.alex1304.ultimategdbot.api.service.Root;
+import com.github.alex1304.ultimategdbot.api.util.DurationUtils;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.annotation.Nullable;
+
+@CommandDescriptor(
+		aliases = "diagnostics",
+		shortDescription = "tr:CoreStrings/diagnostics_desc"
+)
+@CommandPermission(level = PermissionLevel.BOT_OWNER)
+public final class DiagnosticsCommand {
+	
+	/**
+	 * Discord rejects attachments above 8 MB for bots without boosts.
+	 */
+	private static final int MAX_ATTACHMENT_SIZE = 8_000_000;
+	
+	/**
+	 * Frames shown for each blocking call, enough to reach the code of the
+	 * plugin from the blocking JDK method.
+	 */
+	private static final int BLOCKING_STACK_DEPTH = 12;
+	
+	@Root
+	private CoreService core;
+	
+	@CommandAction("sessions")
+	@CommandDoc("tr:CoreStrings/diagnostics_run_sessions")
+	public Mono<Void> runSessions(Context ctx) {
+		return core.runCommand(ctx, "diagnostics", Mono.fromCallable(() -> {
+			var sessions = core.setupSessions().list();
+			var sb = new StringBuilder("__**" + CoreStrings.translate(ctx, CoreStringsKey.SETUP_SESSIONS) + ":**__\n\n");
+			for (var session : sessions) {
+				sb.append(CoreStrings.translate(ctx, CoreStringsKey.SETUP_SESSION_ENTRY, session.id(),
+						session.configuratorName(), session.guildId(), session.userId(), session.entryCount(),
+						DurationUtils.format(session.idleTime().withNanos(0)),
+						SystemUnit.format(session.estimatedRetainedBytes()))).append('\n');
+			}
+			if (sessions.isEmpty()) {
+				sb.append("*(" + CoreStrings.translate(ctx, CoreStringsKey.NO_DATA) + ")*\n");
+			}
+			return sb.toString();
+		})
+				.flatMap(content -> core.bot().interactiveMenu()
+						.createPaginated(content, 800)
+						.open(ctx)));
+	}
+	
+	@CommandAction("ratelimits")
+	@CommandDoc("tr:CoreStrings/diagnostics_run_ratelimits")
+	public Mono<Void> runRateLimits(Context ctx) {
+		return core.runCommand(ctx, "diagnostics", Mono.fromCallable(() -> {
+			var limiter = core.rateLimiter();
+			var now = Instant.now();
+			var sb = new StringBuilder(CoreStrings.translate(ctx, CoreStringsKey.RATELIMIT_STATS,
+					limiter.rejectionCount(), limiter.escalationCount()) + "\n\n");
+			sb.append("__**" + CoreStrings.translate(ctx, CoreStringsKey.RATELIMIT_BLACKLISTED) + ":**__\n");
+			limiter.temporaryBlacklist().forEach((userId, until) -> sb.append(CoreStrings.translate(ctx,
+					CoreStringsKey.RATELIMIT_BLACKLISTED_ENTRY, userId,
+					DurationUtils.format(Duration.between(now, until).withNanos(0)))).append('\n'));
+			sb.append("\n__**" + CoreStrings.translate(ctx, CoreStringsKey.RATELIMIT_RECENT) + ":**__\n");
+			for (var rejection : limiter.recentRejections()) {
+				sb.append(CoreStrings.translate(ctx, CoreStringsKey.RATELIMIT_RECENT_ENTRY, rejection.command(),
+						rejection.userId(), rejection.guildId(),
+						DurationUtils.format(Duration.between(rejection.time(), now).withNanos(0))))
+						.append('\n');
+			}
+			return sb.toString();
+		})
+				.flatMap(content -> core.bot().interactiveMenu()
+						.createPaginated(content, 800)
+						.open(ctx)));
+	}
+	
+	@CommandAction("startup")
+	@CommandDoc("tr:CoreStrings/diagnostics_run_startup")
+	public Mono<Void> runStartup(Context ctx) {
+		return core.runCommand(ctx, "diagnostics", Mono.fromCallable(() -> {
+			var sb = new StringBuilder("__**" + CoreStrings.translate(ctx, CoreStringsKey.STARTUP_PHASES) + ":**__\n\n");
+			for (var phase : core.startupProfiler().phases()) {
+				sb.append(CoreStrings.translate(ctx, CoreStringsKey.STARTUP_PHASE_ENTRY, phase.name(),
+						phase.wallTime()
+								.map(d -> d.toMillis() + " ms")
+								.orElseGet(() -> CoreStrings.translate(ctx, CoreStringsKey.STARTUP_PHASE_RUNNING)),
+						phase.rows(),
+						StartupProfiler.isAllocationMeasured()
+								? SystemUnit.format(phase.allocatedBytes())
+								: CoreStrings.translate(ctx, CoreStringsKey.STARTUP_NOT_MEASURED))).append('\n');
+			}
+			return sb.toString();
+		})
+				.flatMap(content -> core.bot().interactiveMenu()
+						.createPaginated(content, 800)
+						.open(ctx)));
+	}
+	
+	@CommandAction("profile")
+	@CommandDoc("tr:CoreStrings/diagnostics_run_profile")
+	public Mono<Void> runProfile(Context ctx, @Nullable Integer seconds) {
+		var maxDuration = core.config().readDuration("profile.max_duration", Duration.ofSeconds(60));
+		var duration = seconds == null ? Duration.ofSeconds(10) : Duration.ofSeconds(seconds);
+		return core.runCommand(ctx, "diagnostics", Mono.defer(() -> duration.isNegative() || duration.isZero()
+						|| duration.compareTo(maxDuration) > 0
+						? Mono.error(new CommandFailedException(CoreStrings.translate(ctx,
+								CoreStringsKey.ERROR_PROFILE_DURATION, maxDuration.toSeconds())))
+						: ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.PROFILE_STARTED,
+								DurationUtils.format(duration))))
+				.then(core.stackProfiler().profile(duration))
+				.switchIfEmpty(Mono.error(new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_PROFILE_RUNNING))))
+				.flatMap(profile -> {
+					var bytes = profile.collapsedStacks().getBytes(StandardCharsets.UTF_8);
+					var truncated = bytes.length > MAX_ATTACHMENT_SIZE;
+					var length = bytes.length;
+					if (truncated) {
+						// Cut at the last complete line that fits, flame graph tools reject partial ones
+						length = MAX_ATTACHMENT_SIZE;
+						while (length > 0 && bytes[length - 1] != '\n') {
+							length--;
+						}
+					}
+					var summary = CoreStrings.translate(ctx, CoreStringsKey.PROFILE_DONE, profile.samples(),
+							DurationUtils.format(profile.elapsed()), profile.timeDumping().toMillis() + " ms",
+							String.format("%.2f%%", profile.overheadPercent()), profile.stretchedIntervals());
+					var content = truncated
+							? summary + '\n' + CoreStrings.translate(ctx, CoreStringsKey.PROFILE_TRUNCATED,
+									SystemUnit.format(MAX_ATTACHMENT_SIZE))
+							: summary;
+					var input = new ByteArrayInputStream(bytes, 0, length);
+					return ctx.reply(spec -> spec.setContent(content).addFile("profile.collapsed", input));
+				})
+				.then());
+	}
+	
+	@CommandAction("threads")
+	@CommandDoc("tr:CoreStrings/diagnostics_run_threads")
+	public Mono<Void> runThreads(Context ctx) {
+		var window = core.config().readDuration("threads.window", Duration.ofSeconds(1));
+		var top = core.config().readInt("threads.top", 10);
+		return core.runCommand(ctx, "diagnostics", ThreadSnapshot.take(window)
+				.map(snapshot -> {
+					var notMeasured = CoreStrings.translate(ctx, CoreStringsKey.THREADS_NOT_MEASURED);
+					var contention = ThreadSnapshot.isContentionMeasured();
+					var sb = new StringBuilder("__**" + CoreStrings.translate(ctx, CoreStringsKey.THREADS_TOP, top,
+							DurationUtils.format(window)) + ":**__\n");
+					snapshot.threads().stream().limit(top).forEach(thread -> {
+						var info = thread.info();
+						sb.append(CoreStrings.translate(ctx, CoreStringsKey.THREADS_ENTRY,
+								info.getThreadName(),
+								info.getThreadState(),
+								ThreadSnapshot.isCpuTimeMeasured()
+										? String.format("%d ms (%.1f%%)", thread.cpuTimeDelta() / 1_000_000,
+												thread.cpuTimeDelta() * 100.0 / window.toNanos())
+										: notMeasured,
+								info.getBlockedCount(),
+								contention ? info.getBlockedTime() + " ms" : notMeasured,
+								info.getWaitedCount(),
+								contention ? info.getWaitedTime() + " ms" : notMeasured)).append('\n');
+					});
+					sb.append("\n__**").append(CoreStrings.translate(ctx, CoreStringsKey.THREADS_POOLS)).append(":**__\n");
+					snapshot.pools().forEach((name, pool) -> sb.append(CoreStrings.translate(ctx,
+							CoreStringsKey.THREADS_POOL_ENTRY, name, pool.count(), pool.states().entrySet().stream()
+									.map(state -> state.getKey() + " " + state.getValue())
+									.collect(Collectors.joining(", ")))).append('\n'));
+					sb.append("\n__**").append(CoreStrings.translate(ctx, CoreStringsKey.THREADS_DEADLOCKS)).append(":**__\n");
+					if (snapshot.deadlocked().isEmpty()) {
+						sb.append(CoreStrings.translate(ctx, CoreStringsKey.THREADS_NO_DEADLOCK)).append('\n');
+					}
+					for (var info : snapshot.deadlocked()) {
+						sb.append(CoreStrings.translate(ctx, CoreStringsKey.THREADS_DEADLOCK_ENTRY,
+								info.getThreadName(), info.getLockName(), info.getLockOwnerName())).append('\n');
+					}
+					return sb.toString();
+				})
+				.flatMap(content -> core.bot().interactiveMenu()
+						.createPaginated(content, 800)
+						.open(ctx)));
+	}
+	
+	@CommandAction("blocking")
+	@CommandDoc("tr:CoreStrings/diagnostics_run_blocking")
+	public Mono<Void> runBlocking(Context ctx) {
+		return core.runCommand(ctx, "diagnostics", Mono.justOrEmpty(core.blockingCallDetector())
+				.switchIfEmpty(Mono.error(new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_BLOCKING_DISABLED))))
+				.map(detector -> {
+					var calls = detector.calls();
+					var sb = new StringBuilder("__**" + CoreStrings.translate(ctx, CoreStringsKey.BLOCKING_CALLS) + ":**__\n");
+					sb.append(CoreStrings.translate(ctx, CoreStringsKey.BLOCKING_SUMMARY, detector.samples(),
+							detector.interval().toMillis(), calls.size(), detector.droppedCalls())).append("\n\n");
+					for (var call : calls) {
+						sb.append(CoreStrings.translate(ctx, CoreStringsKey.BLOCKING_ENTRY, call.count(), call.pool(),
+								call.reason())).append("\n```\n");
+						call.stack().stream()
+								.limit(BLOCKING_STACK_DEPTH)
+								.forEach(frame -> sb.append(frame).append('\n'));
+						sb.append("```\n");
+					}
+					return sb.toString();
+				})
+				.flatMap(content -> core.bot().interactiveMenu()
+						.createPaginated(content, 800)
+						.open(ctx)));
+	}
+	
+	@CommandAction("jfr")
+	@CommandDoc("tr:CoreStrings/diagnostics_run_jfr")
+	public Mono<Void> runJfr(Context ctx, String action) {
+		var recording = core.flightRecording();
+		return core.runCommand(ctx, "diagnostics", Mono.defer(() -> {
+			switch (action.toLowerCase()) {
+				case "start":
+					return recording.start()
+							.flatMap(started -> started
+									? ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.JFR_STARTED))
+									: Mono.error(new CommandFailedException(
+											CoreStrings.translate(ctx, CoreStringsKey.ERROR_JFR_RUNNING))))
+							.then();
+				case "stop":
+					return recording.stop()
+							.switchIfEmpty(Mono.error(new CommandFailedException(
+									CoreStrings.translate(ctx, CoreStringsKey.ERROR_JFR_NOT_RUNNING))))
+							.flatMap(file -> Mono.fromCallable(() -> Files.size(file))
+									.subscribeOn(Schedulers.boundedElastic())
+									.flatMap(size -> size > MAX_ATTACHMENT_SIZE
+											// Too large for Discord, it stays on the disk of the bot
+											? ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.JFR_STOPPED_TOO_LARGE,
+													SystemUnit.format(size), file.toAbsolutePath()))
+											: Mono.using(() -> Files.newInputStream(file),
+													input -> ctx.reply(spec -> spec
+															.setContent(CoreStrings.translate(ctx, CoreStringsKey.JFR_STOPPED,
+																	SystemUnit.format(size)))
+															.addFile(file.getFileName().toString(), input)),
+													input -> {
+														try {
+															input.close();
+															Files.deleteIfExists(file);
+														} catch (IOException e) {
+															throw new UncheckedIOException(e);
+														}
+													})))
+							.then();
+				default:
+					return Mono.error(new CommandFailedException(
+							CoreStrings.translate(ctx, CoreStringsKey.ERROR_JFR_ACTION)));
+			}
+		}));
+	}
+	
+	@CommandAction("heap")
+	@CommandDoc("tr:CoreStrings/diagnostics_run_heap")
+	public Mono<Void> runHeap(Context ctx, @Nullable String action) {
+		var capture = core.heapCapture();
+		return core.runCommand(ctx, "diagnostics", Mono.defer(() -> {
+			if (action == null) {
+				var top = core.config().readInt("heap.top", 20);
+				return capture.histogram(top)
+						.map(entries -> {
+							var sb = new StringBuilder("__**" + CoreStrings.translate(ctx, CoreStringsKey.HEAP_HISTOGRAM, top) + ":**__\n");
+							for (var entry : entries) {
+								// " 1:  985  2092920  [I (java.base@11)" once stripped
+								var columns = entry.split("\\s+", 4);
+								sb.append(CoreStrings.translate(ctx, CoreStringsKey.HEAP_HISTOGRAM_ENTRY,
+										columns[0].replace(":", ""), columns[3], Long.parseLong(columns[1]),
+										SystemUnit.format(Long.parseLong(columns[2])))).append('\n');
+							}
+							return sb.toString();
+						})
+						.flatMap(content -> core.bot().interactiveMenu()
+								.createPaginated(content, 800)
+								.open(ctx));
+			}
+			if (!action.equalsIgnoreCase("dump")) {
+				return Mono.error(new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_HEAP_ACTION)));
+			}
+			if (!capture.isDumpConfigured()) {
+				return Mono.error(new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_HEAP_DUMP_NOT_CONFIGURED)));
+			}
+			return ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.HEAP_DUMP_STARTED))
+					.then(capture.dump())
+					.flatMap(file -> Mono.fromCallable(() -> Files.size(file))
+							.subscribeOn(Schedulers.boundedElastic())
+							.flatMap(size -> ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.HEAP_DUMP_DONE,
+									file.toAbsolutePath(), SystemUnit.format(size)))))
+					.then();
+		})
+				.onErrorMap(HeapCapture.RateLimitedException.class, e -> new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_HEAP_RATE_LIMITED,
+								DurationUtils.format(e.retryAfter()))))
+				.onErrorMap(HeapCapture.InsufficientDiskSpaceException.class, e -> new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_HEAP_DISK_SPACE,
+								SystemUnit.format(e.usable()), SystemUnit.format(e.required()))))
+				.onErrorMap(HeapCapture.DumpInProgressException.class, e -> new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_HEAP_DUMP_RUNNING))));
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * A Flight Recorder recording started and stopped on demand, with the events
+ * of the plugin enabled on top of the chosen JFR settings. At most one is
+ * running at a time, and it stops by itself after the maximum duration in case
+ * nobody comes back to stop it.
+ */
+final class FlightRecording {
+
+	private final String settings;
+	private final Duration maxDuration;
+	private final long maxSize;
+	private final AtomicReference<Recording> current = new AtomicReference<>();
+
+	FlightRecording(String settings, Duration maxDuration, long maxSize) {
+		this.settings = settings;
+		this.maxDuration = maxDuration;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Starts a recording.
+	 *
+	 * @return a Mono emitting true if the recording started, false if one was
+	 *         already started
+	 */
+	Mono<Boolean> start() {
+		return Mono.fromCallable(() -> {
+			var recording = new Recording(Configuration.getConfiguration(settings));
+			if (!current.compareAndSet(null, recording)) {
+				recording.close();
+				return false;
+			}
+			recording.setName("ultimategdbot-core");
+			recording.setToDisk(true);
+			recording.setDuration(maxDuration);
+			recording.setMaxSize(maxSize);
+			recording.enable(CoreEvents.CommandEvent.class);
+			recording.enable(CoreEvents.DaoCallEvent.class);
+			recording.enable(CoreEvents.ChangelogSendEvent.class);
+			recording.enable(CoreEvents.GcNotificationEvent.class);
+			recording.start();
+			return true;
+		}).subscribeOn(Schedulers.boundedElastic());
+	}
+
+	/**
+	 * Stops the current recording, or takes the one that already stopped after
+	 * the maximum duration, and dumps it to a temporary file.
+	 *
+	 * @return a Mono emitting the path of the dump, or empty if no recording was
+	 *         started
+	 */
+	Mono<Path> stop() {
+		return Mono.fromCallable(() -> {
+			var recording = current.getAndSet(null);
+			if (recording == null) {
+				return null;
+			}
+			try (recording) {
+				if (recording.getState() == RecordingState.RUNNING) {
+					recording.stop();
+				}
+				var file = Files.createTempFile("ultimategdbot-core-", ".jfr");
+				recording.dump(file);
+				return file;
+			}
+		}).subscribeOn(Schedulers.boundedElastic());
+	}
+
+	boolean isRecording() {
+		var recording = current.get();
+		return recording != null && recording.getState() == RecordingState.RUNNING;
+	}
+}
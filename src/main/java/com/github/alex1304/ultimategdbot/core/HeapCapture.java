@@ -0,0 +1,185 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Captures class histograms and heap dumps on demand. Both pause the
+ * application while they walk the heap, so each kind of capture is allowed
+ * once per cooldown, and a heap dump is only written if the disk has room for
+ * it. The cooldown of dumps starts when one is written, so that a failed
+ * attempt can be retried right away. Captures run on the bounded elastic
+ * scheduler.
+ */
+final class HeapCapture {
+
+	private static final Logger LOGGER = Loggers.getLogger(HeapCapture.class);
+	/**
+	 * A dump is roughly the size of the used heap, the margin covers the
+	 * objects allocated while it is being written.
+	 */
+	private static final double DUMP_SIZE_MARGIN = 1.2;
+
+	private final Duration histogramCooldown;
+	private final Duration dumpCooldown;
+	private final Path dumpDir;
+	private final long minFreeBytes;
+	private final AtomicReference<Instant> lastHistogram = new AtomicReference<>(Instant.MIN);
+	private final AtomicBoolean dumping = new AtomicBoolean();
+	private volatile Instant lastDump = Instant.MIN;
+
+	HeapCapture(Duration histogramCooldown, Duration dumpCooldown, @Nullable Path dumpDir, long minFreeBytes) {
+		this.histogramCooldown = histogramCooldown;
+		this.dumpCooldown = dumpCooldown;
+		this.dumpDir = dumpDir;
+		this.minFreeBytes = minFreeBytes;
+	}
+
+	/**
+	 * Takes a histogram of the live objects.
+	 *
+	 * @param top the number of classes to keep
+	 * @return a Mono emitting the largest classes by bytes, or erroring with
+	 *         {@link RateLimitedException} if one was taken too recently
+	 */
+	Mono<List<String>> histogram(int top) {
+		return histogram().map(histogram -> HeapDiagnostics.topEntries(histogram, top));
+	}
+
+	/**
+	 * Takes a histogram of the live objects.
+	 *
+	 * @return a Mono emitting the whole histogram, or erroring with
+	 *         {@link RateLimitedException} if one was taken too recently
+	 */
+	Mono<String> histogram() {
+		return Mono.defer(() -> {
+			acquire(lastHistogram, histogramCooldown);
+			return Mono.fromCallable(() -> HeapDiagnostics.classHistogram(false))
+					.subscribeOn(Schedulers.boundedElastic());
+		});
+	}
+
+	/**
+	 * Writes a dump of the live objects in the configured directory.
+	 *
+	 * @return a Mono emitting the path of the dump once written, or erroring
+	 *         with {@link RateLimitedException} if one was taken too recently,
+	 *         {@link InsufficientDiskSpaceException} if the disk is too full,
+	 *         {@link DumpInProgressException} if a dump is already being
+	 *         written, or IllegalStateException if no directory is configured
+	 */
+	Mono<Path> dump() {
+		return Mono.fromCallable(() -> {
+			if (dumpDir == null) {
+				throw new IllegalStateException("heap.dump_dir is not configured");
+			}
+			Files.createDirectories(dumpDir);
+			var required = (long) (usedHeap() * DUMP_SIZE_MARGIN) + minFreeBytes;
+			var usable = Files.getFileStore(dumpDir).getUsableSpace();
+			if (usable < required) {
+				throw new InsufficientDiskSpaceException(usable, required);
+			}
+			if (!dumping.compareAndSet(false, true)) {
+				throw new DumpInProgressException();
+			}
+			try {
+				var now = Instant.now();
+				var allowedAt = allowedAt(lastDump, dumpCooldown);
+				if (now.isBefore(allowedAt)) {
+					throw new RateLimitedException(Duration.between(now, allowedAt));
+				}
+				var file = dumpDir.resolve("heap-" + System.currentTimeMillis() + ".hprof");
+				var start = System.nanoTime();
+				ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).dumpHeap(file.toString(), true);
+				LOGGER.info("Heap dump written to {} in {} ms", file, (System.nanoTime() - start) / 1_000_000);
+				lastDump = Instant.now();
+				return file;
+			} finally {
+				dumping.set(false);
+			}
+		}).subscribeOn(Schedulers.boundedElastic());
+	}
+
+	boolean isDumpConfigured() {
+		return dumpDir != null;
+	}
+
+	private static void acquire(AtomicReference<Instant> last, Duration cooldown) {
+		var now = Instant.now();
+		var previous = last.get();
+		var allowedAt = allowedAt(previous, cooldown);
+		if (now.isBefore(allowedAt) || !last.compareAndSet(previous, now)) {
+			throw new RateLimitedException(Duration.between(now, allowedAt));
+		}
+	}
+
+	private static Instant allowedAt(Instant previous, Duration cooldown) {
+		return previous == Instant.MIN ? previous : previous.plus(cooldown);
+	}
+
+	private static long usedHeap() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	static final class RateLimitedException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Duration retryAfter;
+
+		private RateLimitedException(Duration retryAfter) {
+			super("Retry after " + retryAfter, null, false, false);
+			this.retryAfter = retryAfter.isNegative() ? Duration.ZERO : retryAfter;
+		}
+
+		Duration retryAfter() {
+			return retryAfter;
+		}
+	}
+
+	static final class InsufficientDiskSpaceException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long usable;
+		private final long required;
+
+		private InsufficientDiskSpaceException(long usable, long required) {
+			super(usable + " bytes usable, " + required + " required", null, false, false);
+			this.usable = usable;
+			this.required = required;
+		}
+
+		long usable() {
+			return usable;
+		}
+
+		long required() {
+			return required;
+		}
+	}
+
+	static final class DumpInProgressException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private DumpInProgressException() {
+			super("A heap dump is already being written", null, false, false);
+		}
+	}
+}
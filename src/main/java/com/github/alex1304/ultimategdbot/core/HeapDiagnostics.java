@@ -0,0 +1,52 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Heap diagnostics obtained through the DiagnosticCommand MBean, the same
+ * commands jcmd runs, without having to spawn a process.
+ */
+final class HeapDiagnostics {
+
+	private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+
+	private HeapDiagnostics() {
+	}
+
+	/**
+	 * Counts the instances and bytes of each class in the heap, like
+	 * {@code jcmd GC.class_histogram}. Unless all objects are requested, a full
+	 * collection runs first so that only live objects are counted.
+	 *
+	 * @param all whether to include unreachable objects
+	 * @return the histogram as printed by the JVM
+	 * @throws JMException if the JVM does not provide the command
+	 */
+	static String classHistogram(boolean all) throws JMException {
+		return invoke("gcClassHistogram", all ? new String[] { "-all" } : new String[0]);
+	}
+
+	/**
+	 * @return the first entries of a histogram returned by
+	 *         {@link #classHistogram(boolean)}, without the header
+	 */
+	static List<String> topEntries(String histogram, int count) {
+		return histogram.lines()
+				.dropWhile(line -> !line.startsWith("---"))
+				.skip(1)
+				.takeWhile(line -> !line.startsWith("Total"))
+				.limit(count)
+				.map(String::strip)
+				.collect(Collectors.toUnmodifiableList());
+	}
+
+	static String invoke(String command, String... args) throws JMException {
+		return (String) ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(DIAGNOSTIC_COMMAND),
+				command, new Object[] { args }, new String[] { String[].class.getName() });
+	}
+}
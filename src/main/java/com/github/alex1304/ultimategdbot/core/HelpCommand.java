@@ -39,12 +39,14 @@ public final class HelpCommand {
 	@CommandAction
 	@CommandDoc("tr:CoreStrings/help_run")
 	public Mono<Void> run(Context ctx, @Nullable String command, @Nullable String subcommand) {
-		return command == null ? displayCommandList(ctx) : displayCommandDocumentation(ctx, command.toLowerCase(), subcommand);
+		return core.runCommand(ctx, "help", Mono.defer(() -> command == null
+				? displayCommandList(ctx)
+				: displayCommandDocumentation(ctx, command.toLowerCase(), subcommand)));
 	}
 
 	private Mono<Void> displayCommandList(Context ctx) {
-		var sb = new StringBuilder(ctx.translate("CoreStrings", "command_list", ctx.prefixUsed()) + "\n\n");
-		return ctx.event().getMessage().getChannel()
+		var sb = new StringBuilder(CoreStrings.translate(ctx, CoreStringsKey.COMMAND_LIST, ctx.prefixUsed()) + "\n\n");
+		return Tracer.span("channel", ctx.event().getMessage().getChannel())
 				.flatMap(channel -> Flux.fromIterable(core.bot().command().getCommandProviders())
 						.sort(comparing(CommandProvider::getName))
 						.concatMap(commandProvider -> Flux.fromIterable(commandProvider.getProvidedCommands())
@@ -67,16 +69,16 @@ public final class HelpCommand {
 									});
 							sb.append('\n');
 						})).then())
-				.then(Mono.defer(() -> core.bot().interactiveMenu()
+				.then(Mono.defer(() -> Tracer.span("menu", core.bot().interactiveMenu()
 						.createPaginated(sb.toString(), 1990)
-						.open(ctx)));
+						.open(ctx))));
 	}
 	
 	private Mono<Void> displayCommandDocumentation(Context ctx, String commandName, String subcommand) {
 		var selectedSubcommand = subcommand == null ? "" : subcommand.toLowerCase();
 		var command = new AtomicReference<Command>();
 		return Mono.justOrEmpty(core.bot().command().getCommandByAlias(commandName))
-				.switchIfEmpty(Mono.error(new CommandFailedException(ctx.translate("CoreStrings", "error_command_not_found", commandName))))
+				.switchIfEmpty(Mono.error(new CommandFailedException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_COMMAND_NOT_FOUND, commandName))))
 				.doOnNext(command::set)
 				.flatMap(cmd -> findAvailableSubcommands(cmd, ctx).collectList().map(subcommands -> Tuples.of(subcommands, cmd)))
 				.flatMap(function((subcommands, cmd) -> {
@@ -88,11 +90,11 @@ public final class HelpCommand {
 					}
 					if (!selectedSubcommand.isEmpty()) {
 						return Mono.error(new CommandFailedException(
-								ctx.translate("CoreStrings", "error_subcommand_not_found", selectedSubcommand, commandName) + '\n'
+								CoreStrings.translate(ctx, CoreStringsKey.ERROR_SUBCOMMAND_NOT_FOUND, selectedSubcommand, commandName) + '\n'
 										+ "Available subcommands:\n" + formattedSubcommands));
 					}
 					return Mono.error(new CommandFailedException(
-							ctx.translate("CoreStrings", "error_subcommand_required", commandName) + '\n'
+							CoreStrings.translate(ctx, CoreStringsKey.ERROR_SUBCOMMAND_REQUIRED, commandName) + '\n'
 									+ formattedSubcommands));
 				}))
 				.map(cmd -> formatDoc(
@@ -102,36 +104,36 @@ public final class HelpCommand {
 						core.bot().command().getFlagPrefix(),
 						commandName,
 						selectedSubcommand))
-				.flatMap(doc -> core.bot().interactiveMenu()
+				.flatMap(doc -> Tracer.span("menu", core.bot().interactiveMenu()
 						.createPaginated(doc, 1200)
-						.open(ctx));
+						.open(ctx)));
 	}
 	
 	private static Flux<String> findAvailableSubcommands(Command cmd, Context ctx) {
 		return Flux.fromIterable(cmd.getDocumentation(ctx.getLocale()).getEntries().keySet());
 	}
 	
-	private static String joinAliases(Command cmd) {
+	static String joinAliases(Command cmd) {
 		return cmd.getAliases().stream()
 				.sorted((a, b) -> a.length() - b.length() == 0 ? a.compareTo(b) : a.length() - b.length())
 				.collect(Collectors.joining("|"));
 	}
 	
-	private static String formatDoc(Translator tr, Command cmd, String prefix, String flagPrefix, String selectedCommand, String selectedSubcommand) {
+	static String formatDoc(Translator tr, Command cmd, String prefix, String flagPrefix, String selectedCommand, String selectedSubcommand) {
 		var doc = cmd.getDocumentation(tr.getLocale());
 		var entry = doc.getEntries().get(selectedSubcommand);
 		var sb = new StringBuilder(code(prefix + selectedCommand))
 				.append(" - ")
 				.append(doc.getShortDescription())
-				.append(selectedSubcommand.isEmpty() ? "" : "\n" + tr.translate("CoreStrings", "subcommand") + " " + code(selectedSubcommand))
+				.append(selectedSubcommand.isEmpty() ? "" : "\n" + CoreStrings.translate(tr, CoreStringsKey.SUBCOMMAND) + " " + code(selectedSubcommand))
 				.append("\n\n")
-				.append(bold(underline(tr.translate("CoreStrings", "syntax"))))
+				.append(bold(underline(CoreStrings.translate(tr, CoreStringsKey.SYNTAX))))
 				.append("\n")
 				.append(codeBlock(prefix + joinAliases(cmd) + (selectedSubcommand.isEmpty() ? "" : " " + selectedSubcommand) + " " + entry.getSyntax()))
 				.append(entry.getDescription())
 				.append("\n");
 		if (!entry.getFlagInfo().isEmpty()) {
-			sb.append("\n").append(bold(underline(tr.translate("CoreStrings", "flags")))).append("\n");
+			sb.append("\n").append(bold(underline(CoreStrings.translate(tr, CoreStringsKey.FLAGS)))).append("\n");
 			entry.getFlagInfo().forEach((name, info) -> {
 				sb.append(code(flagPrefix + name + (info.getValueFormat().isBlank() ? "" : "=<" + info.getValueFormat() + ">")))
 						.append(": ")
@@ -140,7 +142,7 @@ public final class HelpCommand {
 			});
 		}
 		if (doc.getEntries().size() > 1) {
-			sb.append("\n").append(bold(underline(tr.translate("CoreStrings", "see_also")))).append("\n");
+			sb.append("\n").append(bold(underline(CoreStrings.translate(tr, CoreStringsKey.SEE_ALSO)))).append("\n");
 			doc.getEntries().forEach((otherPage, otherEntry) -> {
 				if (otherPage.equals(selectedSubcommand)) {
 					return;
@@ -154,7 +156,7 @@ public final class HelpCommand {
 		return sb.toString();
 	}
 	
-	private static String extractFirstSentence(String text) {
+	static String extractFirstSentence(String text) {
 		var parts = text.split("\\.", 2);
 		return (parts.length == 0 ? "" : parts[0]) + ".";
 	}
@@ -0,0 +1,164 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static java.text.Collator.SECONDARY;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.alex1304.ultimategdbot.api.Translator;
+
+import discord4j.common.util.Snowflake;
+
+/**
+ * Parses user replies in interactive menus. Instances are pooled per locale:
+ * the collator and the collation keys of the yes/no keywords are built once,
+ * then each reply only costs the collation key of the input itself. The static
+ * methods are fast paths for numbers and Discord mentions that reject invalid
+ * input without throwing.
+ */
+public final class InputNormalizer {
+
+	private static final Map<Locale, InputNormalizer> POOL = new ConcurrentHashMap<>();
+
+	private final Collator collator;
+	private final String yes;
+	private final String no;
+	private final CollationKey yesKey;
+	private final CollationKey noKey;
+
+	private InputNormalizer(Locale locale, String yes, String no) {
+		this.collator = Collator.getInstance(locale);
+		this.collator.setStrength(SECONDARY);
+		this.yes = yes;
+		this.no = no;
+		// Collator is not documented as thread-safe, so all accesses go through the instance lock
+		synchronized (collator) {
+			this.yesKey = collator.getCollationKey(yes);
+			this.noKey = collator.getCollationKey(no);
+		}
+	}
+
+	/**
+	 * Gets the normalizer for the locale of the given translator, creating it on
+	 * first use.
+	 *
+	 * @param tr the translator
+	 * @return the normalizer for the translator's locale
+	 */
+	public static InputNormalizer forTranslator(Translator tr) {
+		return POOL.computeIfAbsent(tr.getLocale(), locale -> new InputNormalizer(locale,
+				tr.translate("CommonStrings", "yes"), tr.translate("CommonStrings", "no")));
+	}
+
+	/**
+	 * Interprets the input as the translated "yes" or "no", ignoring case and
+	 * accents the same way the collator of the locale does.
+	 *
+	 * @param input the user input
+	 * @return true for yes, false for no, empty if it is neither
+	 */
+	public Optional<Boolean> parseBoolean(String input) {
+		var stripped = input.strip();
+		if (stripped.equalsIgnoreCase(yes)) {
+			return Optional.of(true);
+		}
+		if (stripped.equalsIgnoreCase(no)) {
+			return Optional.of(false);
+		}
+		var inputKey = collationKey(stripped);
+		if (inputKey.equals(yesKey)) {
+			return Optional.of(true);
+		}
+		if (inputKey.equals(noKey)) {
+			return Optional.of(false);
+		}
+		return Optional.empty();
+	}
+
+	private CollationKey collationKey(String source) {
+		synchronized (collator) {
+			return collator.getCollationKey(source);
+		}
+	}
+
+	/**
+	 * Parses a base 10 long without going through an exception when the input
+	 * is not a number.
+	 *
+	 * @param input the user input
+	 * @return the parsed value, or empty if the input is not a valid long
+	 */
+	public static OptionalLong parseLong(String input) {
+		var s = input.strip();
+		var start = s.startsWith("-") || s.startsWith("+") ? 1 : 0;
+		if (s.length() == start || s.length() - start > 19 || !isDigits(s, start, s.length())) {
+			return OptionalLong.empty();
+		}
+		try {
+			return OptionalLong.of(Long.parseLong(s));
+		} catch (NumberFormatException e) {
+			// Overflow, only possible with 19 digits
+			return OptionalLong.empty();
+		}
+	}
+
+	/**
+	 * Parses a base 10 int without going through an exception when the input is
+	 * not a number.
+	 *
+	 * @param input the user input
+	 * @return the parsed value, or empty if the input is not a valid int
+	 */
+	public static OptionalInt parseInt(String input) {
+		var value = parseLong(input);
+		if (value.isEmpty() || value.getAsLong() < Integer.MIN_VALUE || value.getAsLong() > Integer.MAX_VALUE) {
+			return OptionalInt.empty();
+		}
+		return OptionalInt.of((int) value.getAsLong());
+	}
+
+	/**
+	 * Extracts the snowflake from a raw ID or a mention of the form
+	 * {@code <prefix ID>}, for example {@code <#ID>} for channels or
+	 * {@code <@&ID>} for roles.
+	 *
+	 * @param input         the user input
+	 * @param mentionPrefix the characters between {@code <} and the ID
+	 * @return the ID, or empty if the input is neither a raw ID nor a mention
+	 *         with the given prefix
+	 */
+	public static Optional<Snowflake> parseSnowflake(String input, String mentionPrefix) {
+		var s = input.strip();
+		var start = 0;
+		var end = s.length();
+		if (s.startsWith("<") && s.endsWith(">") && s.startsWith(mentionPrefix, 1)) {
+			start = 1 + mentionPrefix.length();
+			end--;
+		}
+		// Snowflakes are unsigned 64-bit integers, at most 20 digits
+		if (end - start == 0 || end - start > 20 || !isDigits(s, start, end)) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(Snowflake.of(Long.parseUnsignedLong(s, start, end, 10)));
+		} catch (NumberFormatException e) {
+			return Optional.empty();
+		}
+	}
+
+	private static boolean isDigits(String s, int start, int end) {
+		for (var i = start; i < end; i++) {
+			var c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
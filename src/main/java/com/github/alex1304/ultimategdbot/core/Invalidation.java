@@ -0,0 +1,66 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.Objects;
+
+/**
+ * Signals that some cached state derived from the database is no longer
+ * accurate and must be reloaded.
+ */
+public final class Invalidation {
+	
+	public enum Kind {
+		/**
+		 * The prefix and/or the locale of the guild identified by the target ID has
+		 * changed.
+		 */
+		GUILD_CONFIG,
+		/**
+		 * The target ID has been added to or removed from the blacklist.
+		 */
+		BLACKLIST,
+		/**
+		 * The user identified by the target ID has been granted or revoked bot
+		 * admin privileges.
+		 */
+		BOT_ADMIN
+	}
+	
+	private final Kind kind;
+	private final long targetId;
+	
+	private Invalidation(Kind kind, long targetId) {
+		this.kind = kind;
+		this.targetId = targetId;
+	}
+	
+	public static Invalidation of(Kind kind, long targetId) {
+		return new Invalidation(Objects.requireNonNull(kind), targetId);
+	}
+	
+	public Kind kind() {
+		return kind;
+	}
+	
+	public long targetId() {
+		return targetId;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(kind, targetId);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Invalidation)) {
+			return false;
+		}
+		var other = (Invalidation) obj;
+		return kind == other.kind && targetId == other.targetId;
+	}
+
+	@Override
+	public String toString() {
+		return "Invalidation{kind=" + kind + ", targetId=" + targetId + "}";
+	}
+}
@@ -0,0 +1,116 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.EmitterProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Propagates changes of cached state (prefixes, locales, blacklist, bot
+ * admins) to the other processes of the deployment. Local changes are
+ * published in batches through an {@link InvalidationTransport}, and remote
+ * changes are handed to a handler that reloads the affected state.
+ */
+public final class InvalidationBus {
+	
+	private static final Logger LOGGER = Loggers.getLogger(InvalidationBus.class);
+	
+	private final InvalidationTransport transport;
+	private final int batchSize;
+	private final Duration batchWindow;
+	private final EmitterProcessor<Invalidation> outbound = EmitterProcessor.create(false);
+	private final FluxSink<Invalidation> outboundSink = outbound.sink(FluxSink.OverflowStrategy.BUFFER);
+	private final Disposable.Composite subscriptions = Disposables.composite();
+	private volatile Mono<Void> published = Mono.empty();
+	
+	public InvalidationBus(InvalidationTransport transport, int batchSize, Duration batchWindow) {
+		this.transport = transport;
+		this.batchSize = batchSize;
+		this.batchWindow = batchWindow;
+	}
+	
+	/**
+	 * Generates a random identifier for the current process, used to tell apart
+	 * local and remote invalidations.
+	 * 
+	 * @return a new origin ID
+	 */
+	public static String newOrigin() {
+		return UUID.randomUUID().toString();
+	}
+	
+	/**
+	 * Publishes an invalidation to the other processes. The invalidation is
+	 * buffered and sent along with other invalidations issued in the same batch
+	 * window.
+	 * 
+	 * @param kind     the kind of invalidation
+	 * @param targetId the ID of the affected guild, user or channel
+	 */
+	public void publish(Invalidation.Kind kind, long targetId) {
+		outboundSink.next(Invalidation.of(kind, targetId));
+	}
+	
+	/**
+	 * Records the point from which remote invalidations are received once the
+	 * bus is started. Must complete before the cached state is loaded.
+	 * 
+	 * @return a Mono completing when the starting point is recorded
+	 */
+	public Mono<Void> markStart() {
+		return transport.markStart();
+	}
+	
+	/**
+	 * Starts sending local invalidations and receiving remote ones.
+	 * 
+	 * @param handler the function to apply on each remote invalidation
+	 */
+	public void start(Function<Invalidation, Mono<Void>> handler) {
+		var publishing = outbound.bufferTimeout(batchSize, batchWindow)
+				.concatMap(batch -> transport.publish(batch)
+						.onErrorResume(e -> {
+							LOGGER.error("Failed to publish " + batch.size() + " invalidation(s)", e);
+							return Mono.empty();
+						}))
+				.then()
+				.cache();
+		published = publishing;
+		subscriptions.add(publishing.subscribe());
+		subscriptions.add(transport.receive()
+				.concatMap(invalidation -> handler.apply(invalidation)
+						.onErrorResume(e -> {
+							LOGGER.error("Failed to apply " + invalidation, e);
+							return Mono.empty();
+						}))
+				.subscribe());
+	}
+	
+	/**
+	 * Stops accepting invalidations, publishes the ones still buffered, then
+	 * stops sending and receiving.
+	 * 
+	 * @return a Mono completing when buffered invalidations are published
+	 */
+	public Mono<Void> close() {
+		return Mono.fromRunnable(outboundSink::complete)
+				.then(Mono.defer(() -> published))
+				.then(Mono.fromRunnable(this::stop));
+	}
+	
+	/**
+	 * Stops sending and receiving invalidations. Buffered invalidations are
+	 * discarded.
+	 */
+	public void stop() {
+		subscriptions.dispose();
+	}
+}
@@ -0,0 +1,42 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Carries invalidations between the processes of a deployment. Implementations
+ * only need to provide at-least-once delivery: applying an invalidation reloads
+ * the state from the database, so receiving one twice is harmless.
+ */
+public interface InvalidationTransport {
+	
+	/**
+	 * Sends a batch of invalidations to the other processes.
+	 * 
+	 * @param batch the invalidations to send
+	 * @return a Mono completing when the batch has been sent
+	 */
+	Mono<Void> publish(List<Invalidation> batch);
+	
+	/**
+	 * Records the point from which {@link #receive()} will start. This is called
+	 * before the cached state is loaded, so that the changes committed while it
+	 * loads are received afterwards instead of being lost. Transports that
+	 * cannot replay past invalidations have nothing to record.
+	 * 
+	 * @return a Mono completing when the starting point is recorded
+	 */
+	default Mono<Void> markStart() {
+		return Mono.empty();
+	}
+	
+	/**
+	 * Receives the invalidations published by the other processes. Invalidations
+	 * published by the current process must not be emitted.
+	 * 
+	 * @return a Flux of remote invalidations
+	 */
+	Flux<Invalidation> receive();
+}
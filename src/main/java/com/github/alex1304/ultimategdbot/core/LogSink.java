@@ -0,0 +1,121 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.alex1304.ultimategdbot.api.service.BotService;
+
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.EmitterProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Coalesces log channel entries. Entries are buffered for a short window, then
+ * joined into as few messages as the Discord message length limit allows, so
+ * that bulk actions send one message instead of one per action. If the log
+ * channel is rate limited and batches pile up beyond the capacity, the oldest
+ * ones are dropped and the number of dropped entries is reported in the next
+ * message.
+ */
+public final class LogSink {
+	
+	private static final Logger LOGGER = Loggers.getLogger(LogSink.class);
+	static final int MAX_MESSAGE_LENGTH = 2000;
+	
+	private final BotService bot;
+	private final EmitterProcessor<String> entries = EmitterProcessor.create(false);
+	private final FluxSink<String> entrySink = entries.sink(FluxSink.OverflowStrategy.BUFFER);
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong droppedSinceLastMessage = new AtomicLong();
+	private final AtomicLong sent = new AtomicLong();
+	private final Mono<Void> terminated;
+	
+	public LogSink(BotService bot, Duration window, int maxEntriesPerBatch, int maxPendingBatches) {
+		this.bot = bot;
+		this.terminated = entries
+				.bufferTimeout(maxEntriesPerBatch, window)
+				.onBackpressureBuffer(maxPendingBatches,
+						batch -> {
+							dropped.addAndGet(batch.size());
+							droppedSinceLastMessage.addAndGet(batch.size());
+						},
+						BufferOverflowStrategy.DROP_OLDEST)
+				.concatMap(batch -> Flux.fromIterable(toMessages(batch))
+						.concatMap(message -> bot.logging().log(message)
+								.doOnSuccess(v -> sent.incrementAndGet())
+								.onErrorResume(e -> {
+									LOGGER.error("Failed to send log message", e);
+									return Mono.empty();
+								})), 1)
+				.then()
+				.cache();
+		this.terminated.subscribe();
+	}
+	
+	/**
+	 * Adds an entry to the log channel. The returned Mono completes as soon as
+	 * the entry is buffered, not when it is sent.
+	 * 
+	 * @param entry the text of the entry
+	 * @return a Mono completing when the entry is buffered
+	 */
+	public Mono<Void> log(String entry) {
+		return Mono.fromRunnable(() -> entrySink.next(entry));
+	}
+	
+	/**
+	 * Stops accepting entries and sends the buffered ones.
+	 * 
+	 * @return a Mono completing when all buffered entries are sent
+	 */
+	public Mono<Void> close() {
+		return Mono.fromRunnable(entrySink::complete).then(terminated);
+	}
+	
+	/**
+	 * @return the number of entries dropped since startup because the log
+	 *         channel could not keep up
+	 */
+	public long droppedCount() {
+		return dropped.get();
+	}
+	
+	/**
+	 * @return the number of messages sent to the log channel since startup
+	 */
+	public long sentCount() {
+		return sent.get();
+	}
+	
+	private List<String> toMessages(List<String> batch) {
+		var messages = new ArrayList<String>();
+		var sb = new StringBuilder();
+		var droppedSinceLastBatch = droppedSinceLastMessage.getAndSet(0);
+		if (droppedSinceLastBatch > 0) {
+			sb.append(CoreStrings.translate(bot.localization().getLocale(), CoreStringsKey.LOG_DROPPED_ENTRIES, droppedSinceLastBatch));
+		}
+		for (var entry : batch) {
+			if (entry.length() > MAX_MESSAGE_LENGTH) {
+				entry = entry.substring(0, MAX_MESSAGE_LENGTH - 1) + '…';
+			}
+			if (sb.length() > 0 && sb.length() + 1 + entry.length() > MAX_MESSAGE_LENGTH) {
+				messages.add(sb.toString());
+				sb.setLength(0);
+			}
+			if (sb.length() > 0) {
+				sb.append('\n');
+			}
+			sb.append(entry);
+		}
+		if (sb.length() > 0) {
+			messages.add(sb.toString());
+		}
+		return messages;
+	}
+}
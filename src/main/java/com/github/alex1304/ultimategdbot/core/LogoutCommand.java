@@ -1,10 +1,13 @@
 package com.github.alex1304.ultimategdbot.core;
 
+import java.util.stream.Collectors;
+
 import com.github.alex1304.ultimategdbot.api.command.Context;
 import com.github.alex1304.ultimategdbot.api.command.PermissionLevel;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandAction;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDescriptor;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandPermission;
+import com.github.alex1304.ultimategdbot.api.service.Root;
 
 import reactor.core.publisher.Mono;
 
@@ -15,9 +18,17 @@ import reactor.core.publisher.Mono;
 @CommandPermission(level = PermissionLevel.BOT_OWNER)
 public final class LogoutCommand {
 	
+	@Root
+	private CoreService core;
+	
 	@CommandAction
-	public static Mono<Void> run(Context ctx) {
-		return ctx.reply(ctx.translate("CoreStrings", "disconnecting"))
+	public Mono<Void> run(Context ctx) {
+		return ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.DISCONNECTING))
+				.then(core.shutdown())
+				.flatMap(timings -> ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.SHUTDOWN_REPORT) + '\n'
+						+ timings.stream()
+								.map(timing -> "- " + timing)
+								.collect(Collectors.joining("\n"))))
 				.then(ctx.event().getClient().logout());
 	}
 }
@@ -1,15 +1,22 @@
 package com.github.alex1304.ultimategdbot.core;
 
 import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.time.Duration;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import javax.management.ListenerNotFoundException;
 import javax.management.NotificationEmitter;
 import javax.management.NotificationListener;
 import javax.management.openmbean.CompositeData;
 
 import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
 
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
@@ -18,20 +25,34 @@ import reactor.core.publisher.ReplayProcessor;
 class MemoryStats {
 	private static final ReplayProcessor<MemoryStats> STATS = ReplayProcessor.cacheLastOrDefault(new MemoryStats());
 	private static final FluxSink<MemoryStats> STATS_SINK = STATS.sink(FluxSink.OverflowStrategy.LATEST);
+	private static final Set<String> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+			.filter(pool -> pool.getType() == MemoryType.HEAP)
+			.map(MemoryPoolMXBean::getName)
+			.collect(Collectors.toUnmodifiableSet());
+	private static volatile Disposable listeners;
 	
 	private final long timestamp;
 	final long totalMemory;
 	final long usedMemory;
 	final long maxMemory;
+	/**
+	 * What the collection left in the heap pools, unlike {@link #usedMemory}
+	 * which may already include allocations made since.
+	 */
+	final long heapAfterGc;
 	
-	private MemoryStats(long timestamp) {
+	private MemoryStats(GcInfo gcInfo) {
 		var total = Runtime.getRuntime().totalMemory();
 		var free = Runtime.getRuntime().freeMemory();
 		var max = Runtime.getRuntime().maxMemory();
-		this.timestamp = timestamp;
+		this.timestamp = gcInfo.getEndTime();
 		this.totalMemory = total;
 		this.usedMemory = total - free;
 		this.maxMemory = max;
+		this.heapAfterGc = gcInfo.getMemoryUsageAfterGc().entrySet().stream()
+				.filter(entry -> HEAP_POOLS.contains(entry.getKey()))
+				.mapToLong(entry -> entry.getValue().getUsed())
+				.sum();
 	}
 	
 	private MemoryStats() {
@@ -39,6 +60,7 @@ class MemoryStats {
 		this.totalMemory = Runtime.getRuntime().totalMemory();
 		this.usedMemory = 0;
 		this.maxMemory = Runtime.getRuntime().maxMemory();
+		this.heapAfterGc = 0;
 	}
 
 	Optional<Duration> elapsedSinceLastGC() {
@@ -47,20 +69,64 @@ class MemoryStats {
 				.map(t -> Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime() - t));
 	}
 	
+	/**
+	 * @return the end of the collection, in milliseconds since the start of the
+	 *         JVM
+	 */
+	long timestamp() {
+		return timestamp;
+	}
+	
 	static Mono<MemoryStats> getStats() {
 		return STATS.next();
 	}
 	
+	/**
+	 * @return the stats of every collection from now on, starting with the
+	 *         latest one if any
+	 */
+	static Flux<MemoryStats> updates() {
+		return STATS.filter(stats -> stats.timestamp > 0);
+	}
+	
 	static void start() {
-		Flux.<MemoryStats>create(sink -> {
+		listeners = Flux.<MemoryStats>create(sink -> {
 			NotificationListener gcListener = (notif, handback) -> {
 				if (notif.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
-					var gcInfo = GarbageCollectionNotificationInfo.from((CompositeData) notif.getUserData()).getGcInfo();
-					sink.next(new MemoryStats(gcInfo.getEndTime()));
+					var event = new CoreEvents.GcNotificationEvent();
+					event.begin();
+					var notification = GarbageCollectionNotificationInfo.from((CompositeData) notif.getUserData());
+					var gcInfo = notification.getGcInfo();
+					sink.next(new MemoryStats(gcInfo));
+					event.end();
+					if (event.shouldCommit()) {
+						event.gcName = notification.getGcName();
+						event.gcAction = notification.getGcAction();
+						event.gcCause = notification.getGcCause();
+						event.gcDuration = gcInfo.getDuration();
+						event.commit();
+					}
 				}
 			};
 			ManagementFactory.getGarbageCollectorMXBeans()
 					.forEach(bean -> ((NotificationEmitter) bean).addNotificationListener(gcListener, null, null));
+			sink.onDispose(() -> ManagementFactory.getGarbageCollectorMXBeans().forEach(bean -> {
+				try {
+					((NotificationEmitter) bean).removeNotificationListener(gcListener);
+				} catch (ListenerNotFoundException e) {
+					// Already removed
+				}
+			}));
 		}).subscribe(STATS_SINK::next);
 	}
+	
+	/**
+	 * Unregisters the GC listeners added by {@link #start()}.
+	 */
+	static void stop() {
+		var listeners = MemoryStats.listeners;
+		if (listeners != null) {
+			listeners.dispose();
+		}
+	}
 }
\ No newline at end of file
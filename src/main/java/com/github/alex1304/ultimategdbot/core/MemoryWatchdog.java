@@ -0,0 +1,228 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+import com.github.alex1304.ultimategdbot.api.service.BotService;
+import com.github.alex1304.ultimategdbot.api.util.DurationUtils;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Watches the heap left after each garbage collection and alerts in the log
+ * channel when it stays high or keeps growing.
+ *
+ * <p>
+ * Heap after GC saw-tooths as objects get promoted between major collections,
+ * so the trend is not fitted on raw samples. The window is split in buckets,
+ * and a least squares line is fitted through the lowest value of each bucket,
+ * which only rises if memory that no collection can reclaim does. A growth
+ * whose projection reaches the maximum heap within the horizon is reported as
+ * a likely leak, provided the line explains the points well enough.
+ */
+public final class MemoryWatchdog {
+
+	private static final Logger LOGGER = Loggers.getLogger(MemoryWatchdog.class);
+	private static final double MIN_R_SQUARED = 0.6;
+	private static final int HISTOGRAM_ENTRIES_IN_LOG = 5;
+
+	enum Level {
+		NORMAL, WARNING, CRITICAL
+	}
+
+	private final BotService bot;
+	private final LogSink logSink;
+	private final HeapCapture heapCapture;
+	private final long bucketMillis;
+	private final long[] bucketIndex;
+	private final long[] bucketMin;
+	private final double warningRatio;
+	private final double criticalRatio;
+	private final Duration oomHorizon;
+	private final long alertCooldownMillis;
+	private final Path histogramDir;
+	private Level level = Level.NORMAL;
+	private long lastPressureAlert;
+	private long lastLeakAlert;
+
+	public MemoryWatchdog(BotService bot, LogSink logSink, HeapCapture heapCapture, Duration window, int buckets,
+			int warningPercent, int criticalPercent, Duration oomHorizon, Duration alertCooldown,
+			@Nullable Path histogramDir) {
+		this.bot = bot;
+		this.logSink = logSink;
+		this.heapCapture = heapCapture;
+		this.bucketMillis = Math.max(1, window.toMillis() / buckets);
+		this.bucketIndex = new long[buckets];
+		this.bucketMin = new long[buckets];
+		this.warningRatio = warningPercent / 100.0;
+		this.criticalRatio = criticalPercent / 100.0;
+		this.oomHorizon = oomHorizon;
+		this.alertCooldownMillis = alertCooldown.toMillis();
+		this.histogramDir = histogramDir;
+		// Alerts are allowed right away, times are in uptime
+		this.lastPressureAlert = -alertCooldownMillis;
+		this.lastLeakAlert = -alertCooldownMillis;
+		Arrays.fill(bucketIndex, -1);
+	}
+
+	/**
+	 * Starts watching the collections reported by {@link MemoryStats}.
+	 *
+	 * @return a Disposable that stops watching
+	 */
+	public Disposable start() {
+		return MemoryStats.updates()
+				.subscribe(stats -> check(stats.timestamp(), stats.heapAfterGc, stats.maxMemory),
+						e -> LOGGER.error("Memory watchdog stopped", e));
+	}
+
+	private synchronized void check(long uptimeMillis, long heapAfterGc, long maxHeap) {
+		record(uptimeMillis, heapAfterGc);
+		var ratio = (double) heapAfterGc / maxHeap;
+		var newLevel = ratio >= criticalRatio ? Level.CRITICAL : ratio >= warningRatio ? Level.WARNING : Level.NORMAL;
+		var escalated = newLevel.compareTo(level) > 0;
+		level = newLevel;
+		if (newLevel != Level.NORMAL && (escalated || uptimeMillis - lastPressureAlert >= alertCooldownMillis)) {
+			lastPressureAlert = uptimeMillis;
+			alert(CoreStrings.translate(bot.localization().getLocale(), CoreStringsKey.MEMORY_PRESSURE_LOG,
+					SystemUnit.format(heapAfterGc),
+					SystemUnit.format(maxHeap),
+					Math.round(ratio * 100) + "%",
+					Math.round((newLevel == Level.CRITICAL ? criticalRatio : warningRatio) * 100) + "%"));
+		}
+		var trend = trend(uptimeMillis);
+		if (trend.isEmpty() || uptimeMillis - lastLeakAlert < alertCooldownMillis) {
+			return;
+		}
+		var timeToOom = trend.get().timeToReach(maxHeap);
+		if (timeToOom.isPresent() && timeToOom.get().compareTo(oomHorizon) <= 0) {
+			lastLeakAlert = uptimeMillis;
+			alert(CoreStrings.translate(bot.localization().getLocale(), CoreStringsKey.MEMORY_LEAK_LOG,
+					SystemUnit.format((long) trend.get().bytesPerHour()),
+					DurationUtils.format(Duration.ofMillis(bucketMillis * bucketIndex.length)),
+					DurationUtils.format(timeToOom.get())));
+		}
+	}
+
+	/**
+	 * Keeps the lowest heap after GC seen in the bucket of the given time.
+	 */
+	void record(long uptimeMillis, long heapAfterGc) {
+		var index = uptimeMillis / bucketMillis;
+		var slot = (int) (index % bucketIndex.length);
+		if (bucketIndex[slot] != index) {
+			bucketIndex[slot] = index;
+			bucketMin[slot] = heapAfterGc;
+		} else {
+			bucketMin[slot] = Math.min(bucketMin[slot], heapAfterGc);
+		}
+	}
+
+	/**
+	 * Fits a line through the bucket minima of the window ending at the given
+	 * time.
+	 *
+	 * @return the trend, or empty if there are not enough buckets yet or if the
+	 *         points are too scattered for the line to mean anything
+	 */
+	Optional<Trend> trend(long uptimeMillis) {
+		var current = uptimeMillis / bucketMillis;
+		var n = 0;
+		double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0, sumYY = 0;
+		for (var slot = 0; slot < bucketIndex.length; slot++) {
+			// Buckets left from a previous lap of the ring are outside of the window
+			if (bucketIndex[slot] < 0 || current - bucketIndex[slot] >= bucketIndex.length) {
+				continue;
+			}
+			double x = (bucketIndex[slot] * bucketMillis + bucketMillis / 2) - uptimeMillis;
+			double y = bucketMin[slot];
+			n++;
+			sumX += x;
+			sumY += y;
+			sumXX += x * x;
+			sumXY += x * y;
+			sumYY += y * y;
+		}
+		if (n < Math.max(3, bucketIndex.length / 2)) {
+			return Optional.empty();
+		}
+		var varX = n * sumXX - sumX * sumX;
+		var varY = n * sumYY - sumY * sumY;
+		if (varX == 0) {
+			return Optional.empty();
+		}
+		var covXY = n * sumXY - sumX * sumY;
+		var slope = covXY / varX;
+		var intercept = (sumY - slope * sumX) / n;
+		var rSquared = varY == 0 ? 0 : covXY * covXY / (varX * varY);
+		if (rSquared < MIN_R_SQUARED) {
+			return Optional.empty();
+		}
+		// x is relative to now, so the intercept is the fitted heap after GC at this moment
+		return Optional.of(new Trend(slope, intercept));
+	}
+
+	private void alert(String message) {
+		LOGGER.warn(message);
+		logSink.log(message)
+				.then(captureHistogram())
+				.subscribe(null, e -> LOGGER.error("Failed to report memory alert", e));
+	}
+
+	private Mono<Void> captureHistogram() {
+		if (histogramDir == null) {
+			return Mono.empty();
+		}
+		// A histogram runs a full collection, so it shares its cooldown with the diagnostics command
+		return heapCapture.histogram()
+				.onErrorResume(HeapCapture.RateLimitedException.class, e -> Mono.empty())
+				.flatMap(histogram -> Mono.fromCallable(() -> {
+					Files.createDirectories(histogramDir);
+					var file = histogramDir.resolve("heap-histogram-" + System.currentTimeMillis() + ".txt");
+					Files.writeString(file, histogram);
+					return CoreStrings.translate(bot.localization().getLocale(), CoreStringsKey.MEMORY_HISTOGRAM_LOG,
+							file.toAbsolutePath(),
+							String.join("\n", HeapDiagnostics.topEntries(histogram, HISTOGRAM_ENTRIES_IN_LOG)));
+				})
+						.subscribeOn(Schedulers.boundedElastic()))
+				.flatMap(logSink::log);
+	}
+
+	/**
+	 * A line fitted through heap after GC, with times relative to the moment it
+	 * was fitted.
+	 */
+	static final class Trend {
+
+		private final double bytesPerMillis;
+		private final double bytesNow;
+
+		private Trend(double bytesPerMillis, double bytesNow) {
+			this.bytesPerMillis = bytesPerMillis;
+			this.bytesNow = bytesNow;
+		}
+
+		double bytesPerHour() {
+			return bytesPerMillis * 3_600_000;
+		}
+
+		/**
+		 * @return how long until the line reaches the given size, or empty if it
+		 *         does not grow
+		 */
+		Optional<Duration> timeToReach(long bytes) {
+			if (bytesPerMillis <= 0) {
+				return Optional.empty();
+			}
+			return Optional.of(Duration.ofMillis((long) Math.max(0, (bytes - bytesNow) / bytesPerMillis)));
+		}
+	}
+}
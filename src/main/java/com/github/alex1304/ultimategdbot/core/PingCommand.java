@@ -9,6 +9,7 @@ import com.github.alex1304.ultimategdbot.api.command.Context;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandAction;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDescriptor;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDoc;
+import com.github.alex1304.ultimategdbot.api.service.Root;
 import com.github.alex1304.ultimategdbot.api.util.DurationUtils;
 
 import discord4j.core.event.domain.message.MessageCreateEvent;
@@ -20,24 +21,27 @@ import reactor.core.publisher.Mono;
 		shortDescription = "tr:CoreStrings/ping_desc"
 )
 public final class PingCommand {
+	
+	@Root
+	private CoreService core;
 
 	@CommandAction
 	@CommandDoc("tr:CoreStrings/ping_run")
-	public static Mono<Void> run(Context ctx) {
-		return ctx.reply(ctx.translate("CoreStrings", "pong"))
+	public Mono<Void> run(Context ctx) {
+		return core.runCommand(ctx, "ping", ctx.reply(CoreStrings.translate(ctx, CoreStringsKey.PONG))
 				.elapsed()
 				.flatMap(function((apiLatency, message) -> message.edit(
 						spec -> spec.setContent(computeLatency(ctx, ctx.event(), apiLatency)))))
-				.then();
+				.then());
 	}
 	
 	private static String computeLatency(Translator tr, MessageCreateEvent event, long apiLatency) {
-		return tr.translate("CoreStrings", "pong") + '\n'
-				+ tr.translate("CoreStrings", "api_latency") + ' ' + DurationUtils.format(Duration.ofMillis(apiLatency)) + "\n"
-				+ tr.translate("CoreStrings", "gateway_latency") + ' ' + event.getClient()
+		return CoreStrings.translate(tr, CoreStringsKey.PONG) + '\n'
+				+ CoreStrings.translate(tr, CoreStringsKey.API_LATENCY) + ' ' + DurationUtils.format(Duration.ofMillis(apiLatency)) + "\n"
+				+ CoreStrings.translate(tr, CoreStringsKey.GATEWAY_LATENCY) + ' ' + event.getClient()
 						.getGatewayClient(event.getShardInfo().getIndex())
 						.map(GatewayClient::getResponseTime)
 						.map(DurationUtils::format)
-						.orElse(tr.translate("CoreStrings", "unknown"));
+						.orElse(CoreStrings.translate(tr, CoreStringsKey.UNKNOWN));
 	}
 }
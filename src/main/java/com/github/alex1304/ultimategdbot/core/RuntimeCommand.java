@@ -12,6 +12,7 @@ import com.github.alex1304.ultimategdbot.api.command.Context;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandAction;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDescriptor;
 import com.github.alex1304.ultimategdbot.api.command.annotated.CommandDoc;
+import com.github.alex1304.ultimategdbot.api.service.Root;
 import com.github.alex1304.ultimategdbot.api.util.DurationUtils;
 
 import reactor.core.publisher.Flux;
@@ -22,27 +23,31 @@ import reactor.core.publisher.Mono;
 		shortDescription = "tr:CoreStrings/runtime_desc"
 )
 public final class RuntimeCommand {
+	
+	@Root
+	private CoreService core;
 
 	@CommandAction
 	@CommandDoc("tr:CoreStrings/runtime_run")
-	public static Mono<Void> run(Context ctx) {
-		return ctx.channel().typeUntil(
+	public Mono<Void> run(Context ctx) {
+		return core.runCommand(ctx, "runtime", ctx.channel().typeUntil(
 				Mono.zip(objArray -> Flux.fromArray(objArray).cast(EmbedField.class).collectList(),
 						uptime(ctx),
 						memory(ctx),
 						shardInfo(ctx),
-						cacheInfo(ctx))
+						cacheInfo(ctx),
+						setupSessions(ctx))
 				.flatMap(Function.identity())
 				.flatMap(embedFields -> ctx.reply(spec -> spec.setEmbed(embed -> {
 					embedFields.forEach(field -> embed.addField(field.title, field.content, false));
 					embed.setTimestamp(Instant.now());
 				}))))
-				.then();
+				.then());
 	}
 
 	private static Mono<EmbedField> uptime(Translator tr) {
-		return Mono.just(new EmbedField(tr.translate("CoreStrings", "uptime"),
-				tr.translate("CoreStrings", "uptime_value", DurationUtils.format(
+		return Mono.just(new EmbedField(CoreStrings.translate(tr, CoreStringsKey.UPTIME),
+				CoreStrings.translate(tr, CoreStringsKey.UPTIME_VALUE, DurationUtils.format(
 						Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime()).withNanos(0)))));
 	}
 	
@@ -53,38 +58,38 @@ public final class RuntimeCommand {
 					var max = memStats.maxMemory;
 					var used = memStats.usedMemory;
 					var sb = new StringBuilder();
-					sb.append(ctx.translate("CoreStrings", "max_ram")).append(' ').append(SystemUnit.format(max)).append("\n");
-					sb.append(ctx.translate("CoreStrings", "jvm_size")).append(' ').append(SystemUnit.format(total))
+					sb.append(CoreStrings.translate(ctx, CoreStringsKey.MAX_RAM)).append(' ').append(SystemUnit.format(max)).append("\n");
+					sb.append(CoreStrings.translate(ctx, CoreStringsKey.JVM_SIZE)).append(' ').append(SystemUnit.format(total))
 							.append(" (").append(String.format("%.2f", total * 100 / (double) max)).append("%)\n");
-					sb.append(ctx.translate("CoreStrings", "gc_run")).append(' ')
+					sb.append(CoreStrings.translate(ctx, CoreStringsKey.GC_RUN)).append(' ')
 							.append(memStats.elapsedSinceLastGC()
 									.map(t -> ctx.translate("CommonStrings", "ago", DurationUtils.format(t)))
 									.orElse("Never"))
 							.append("\n");
-					sb.append(ctx.translate("CoreStrings", "ram_after_gc")).append(' ').append(SystemUnit.format(used))
+					sb.append(CoreStrings.translate(ctx, CoreStringsKey.RAM_AFTER_GC)).append(' ').append(SystemUnit.format(used))
 							.append(" (").append(String.format("%.2f", used * 100 / (double) max)).append("%)\n");
-					return new EmbedField(ctx.translate("CoreStrings", "memory_usage"), sb.toString());
+					return new EmbedField(CoreStrings.translate(ctx, CoreStringsKey.MEMORY_USAGE), sb.toString());
 				});
 	}
 	
 	private static Mono<EmbedField> shardInfo(Context ctx) {
 		var shardInfo = ctx.event().getShardInfo();
-		return Mono.just(new EmbedField(ctx.translate("CoreStrings", "gateway_sharding_info"),
-				ctx.translate("CoreStrings", "shard_index", shardInfo.getIndex()) + '\n'
-				+ ctx.translate("CoreStrings", "shard_count", shardInfo.getCount())));
+		return Mono.just(new EmbedField(CoreStrings.translate(ctx, CoreStringsKey.GATEWAY_SHARDING_INFO),
+				CoreStrings.translate(ctx, CoreStringsKey.SHARD_INDEX, shardInfo.getIndex()) + '\n'
+				+ CoreStrings.translate(ctx, CoreStringsKey.SHARD_COUNT, shardInfo.getCount())));
 	}
 	
 	private static Mono<EmbedField> cacheInfo(Context ctx) {
 		final String[] storeNames = {
-				ctx.translate("CoreStrings", "channels"),
-				ctx.translate("CoreStrings", "emojis"),
-				ctx.translate("CoreStrings", "guilds"),
-				ctx.translate("CoreStrings", "messages"),
-				ctx.translate("CoreStrings", "members"),
-				ctx.translate("CoreStrings", "presences"),
-				ctx.translate("CoreStrings", "roles"),
-				ctx.translate("CoreStrings", "users"),
-				ctx.translate("CoreStrings", "voice_states")
+				CoreStrings.translate(ctx, CoreStringsKey.CHANNELS),
+				CoreStrings.translate(ctx, CoreStringsKey.EMOJIS),
+				CoreStrings.translate(ctx, CoreStringsKey.GUILDS),
+				CoreStrings.translate(ctx, CoreStringsKey.MESSAGES),
+				CoreStrings.translate(ctx, CoreStringsKey.MEMBERS),
+				CoreStrings.translate(ctx, CoreStringsKey.PRESENCES),
+				CoreStrings.translate(ctx, CoreStringsKey.ROLES),
+				CoreStrings.translate(ctx, CoreStringsKey.USERS),
+				CoreStrings.translate(ctx, CoreStringsKey.VOICE_STATES)
 		};
 		var stateView = ctx.event().getClient().getGatewayResources().getStateView();
 		return Mono.zip(
@@ -107,7 +112,14 @@ public final class RuntimeCommand {
 				}
 				return sb.toString();
 			})
-			.map(content -> new EmbedField(ctx.translate("CoreStrings", "cache_usage"), content));
+			.map(content -> new EmbedField(CoreStrings.translate(ctx, CoreStringsKey.CACHE_USAGE), content));
+	}
+	
+	private Mono<EmbedField> setupSessions(Translator tr) {
+		var sessions = core.setupSessions();
+		return Mono.fromCallable(() -> new EmbedField(CoreStrings.translate(tr, CoreStringsKey.SETUP_SESSIONS),
+				CoreStrings.translate(tr, CoreStringsKey.SETUP_SESSIONS_VALUE, sessions.count(), sessions.guildCount(),
+						SystemUnit.format(sessions.estimatedRetainedBytes()))));
 	}
 	
 	private static class EmbedField {
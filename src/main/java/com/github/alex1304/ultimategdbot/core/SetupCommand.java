@@ -2,17 +2,17 @@ package com.github.alex1304.ultimategdbot.core;
 
 import static com.github.alex1304.ultimategdbot.api.util.Markdown.bold;
 import static com.github.alex1304.ultimategdbot.api.util.Markdown.underline;
-import static java.text.Collator.SECONDARY;
 import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toUnmodifiableList;
 
-import java.text.Collator;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import com.github.alex1304.ultimategdbot.api.Translator;
 import com.github.alex1304.ultimategdbot.api.command.CommandFailedException;
@@ -44,6 +44,7 @@ import com.github.alex1304.ultimategdbot.api.util.MessageSpecTemplate;
 
 import discord4j.core.object.entity.Message;
 import discord4j.core.object.entity.User;
+import discord4j.core.object.entity.channel.GuildChannel;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.function.TupleUtils;
@@ -63,8 +64,8 @@ public final class SetupCommand {
 	@CommandAction
 	@CommandDoc("tr:CoreStrings/setup_run")
 	public Mono<Void> run(Context ctx) {
-		return core.bot().database()
-				.configureGuild(ctx, ctx.event().getGuildId().orElseThrow())
+		return core.runCommand(ctx, "setup", Tracer.span("DatabaseService.configureGuild", core.bot().database()
+						.configureGuild(ctx, ctx.event().getGuildId().orElseThrow()))
 				.sort((a, b) -> a.getName().compareTo(b.getName()))
 				.collectList()
 				.flatMap(configurators -> {
@@ -88,14 +89,14 @@ public final class SetupCommand {
 							.collect(toUnmodifiableList())
 							.map(content -> Tuples.of(configurators, content, formattedValuePerEntry));
 				})
-				.flatMap(TupleUtils.function((configurators, content, formattedValuePerEntry) -> core
+				.flatMap(TupleUtils.function((configurators, content, formattedValuePerEntry) -> Tracer.span("menu", core
 						.bot().interactiveMenu()
 						.createPaginated((tr, page) -> {
 							PageNumberOutOfRangeException.check(page, 0, content.size() - 1);
 							return new MessageSpecTemplate(content.get(page), embed -> embed.addField(
 									tr.translate("CommonStrings", "pagination_page_counter", page + 1, content.size()),
 									tr.translate("CommonStrings", "pagination_go_to") + '\n'
-									+ tr.translate("CoreStrings", "react", "\uD83D\uDCDD", "\uD83D\uDD04"), true));
+									+ CoreStrings.translate(tr, CoreStringsKey.REACT, "\uD83D\uDCDD", "\uD83D\uDD04"), true));
 						})
 						.addReactionItem("📝", editInteraction -> {
 							editInteraction.closeMenu();
@@ -106,10 +107,10 @@ public final class SetupCommand {
 							resetInteraction.closeMenu();
 							var configurator = configurators.get(resetInteraction.get("currentPage"));
 							return core.bot().interactiveMenu()
-									.create(Markdown.bold(ctx.translate("CoreStrings", "reset_confirm", configurator.getName())))
+									.create(Markdown.bold(CoreStrings.translate(ctx, CoreStringsKey.RESET_CONFIRM, configurator.getName())))
 									.addReactionItem("✅", interaction -> {
-										return configurator.resetConfig(core.bot().database())
-												.then(ctx.reply("✅ " + ctx.translate("CoreStrings", "reset_success")))
+										return Tracer.span("GuildConfigurator.resetConfig", configurator.resetConfig(core.bot().database()))
+												.then(Tracer.span("reply", ctx.reply("✅ " + CoreStrings.translate(ctx, CoreStringsKey.RESET_SUCCESS))))
 												.then();
 									})
 									.addReactionItem(core.bot().interactiveMenu()
@@ -122,7 +123,7 @@ public final class SetupCommand {
 								.getPaginationControls()
 								.getCloseEmoji(), interaction -> Mono.fromRunnable(interaction::closeMenu))
 						.deleteMenuOnClose(true)
-						.open(ctx)));
+						.open(ctx)))));
 	}
 	
 	private Mono<Void> handleSelectedFeatureInteraction(Context ctx,
@@ -131,37 +132,69 @@ public final class SetupCommand {
 				.filter(not(ConfigEntry::isReadOnly))
 				.collect(toUnmodifiableList());
 		if (entries.isEmpty()) {
-			return Mono.error(new CommandFailedException(ctx.translate("CoreStrings", "error_nothing_to_configure")));
+			return Mono.error(new CommandFailedException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_NOTHING_TO_CONFIGURE)));
+		}
+		var registry = core.setupSessions();
+		var session = registry.open(ctx.event().getGuildId().orElseThrow().asLong(), ctx.author().getId().asLong(),
+				configurator.getName(), entries.stream().map(formattedValuePerEntry::get)::iterator).orElse(null);
+		if (session == null) {
+			return Mono.error(new CommandFailedException(CoreStrings.translate(ctx, registry.isFull()
+					? CoreStringsKey.ERROR_SETUP_SESSIONS_FULL
+					: CoreStringsKey.ERROR_SETUP_SESSIONS_GUILD_FULL)));
 		}
 		var entryQueue = new ArrayDeque<>(entries);
 		var totalPages = entryQueue.size();
 		var firstEntry = entryQueue.element();
 		var valueOfFirstEntry = formattedValuePerEntry.get(firstEntry);
+		// The menu only hands its message to interactions, it is kept from the first one so that eviction
+		// can delete it. A menu evicted before any interaction keeps its message.
+		var menuMessage = new AtomicReference<Message>();
+		Consumer<Message> interacted = message -> {
+			session.touch();
+			menuMessage.compareAndSet(null, message);
+		};
 		return firstEntry.accept(new PromptVisitor(ctx, valueOfFirstEntry, 1, totalPages))
-				.map(core.bot().interactiveMenu()::create)
-				.flatMap(menu -> menu
-						.addReactionItem("⏭️", interaction -> goToNextEntry(ctx, entryQueue, formattedValuePerEntry,
-								configurator, interaction.getMenuMessage(), interaction::closeMenu, totalPages))
-						.addReactionItem("🔄", interaction -> entryQueue.element().setValue(null)
-								.then(goToNextEntry(ctx, entryQueue, formattedValuePerEntry, configurator,
-										interaction.getMenuMessage(), interaction::closeMenu, totalPages)))
-						.addReactionItem("✅", interaction -> endConfiguration(configurator, ctx, interaction::closeMenu))
-						.addReactionItem("🚫", __ -> Mono.error(new CommandFailedException(
-								ctx.translate("CoreStrings", "error_configuration_cancelled"))))
-						.addMessageItem("", interaction -> {
-							var input = interaction.getEvent().getMessage().getContent();
-							var currentEntry = entryQueue.element();
-							var editEntry = currentEntry.accept(new EditVisitor(ctx, input)).onErrorMap(ValidationException.class,
-									e -> new UnexpectedReplyException(ctx.translate("CoreStrings", "error_constraint_violation")
-											+ ' ' + e.getMessage()));
-							return editEntry.then(goToNextEntry(ctx, entryQueue, formattedValuePerEntry, configurator,
-									interaction.getMenuMessage(), interaction::closeMenu, totalPages));
-						})
-						.deleteMenuOnClose(true)
-						.deleteMenuOnTimeout(true)
-						.closeAfterMessage(false)
-						.closeAfterReaction(false)
-						.open(ctx));
+				.flatMap(prompt -> {
+					var menu = core.bot().interactiveMenu().create(prompt)
+							.addReactionItem("⏭️", interaction -> {
+								interacted.accept(interaction.getMenuMessage());
+								return goToNextEntry(ctx, entryQueue, formattedValuePerEntry, configurator,
+										interaction.getMenuMessage(), interaction::closeMenu, totalPages);
+							})
+							.addReactionItem("🔄", interaction -> {
+								interacted.accept(interaction.getMenuMessage());
+								return entryQueue.element().setValue(null)
+										.then(goToNextEntry(ctx, entryQueue, formattedValuePerEntry, configurator,
+												interaction.getMenuMessage(), interaction::closeMenu, totalPages));
+							})
+							.addReactionItem("✅", interaction -> endConfiguration(configurator, ctx, interaction::closeMenu))
+							.addReactionItem("🚫", __ -> Mono.error(new CommandFailedException(
+									CoreStrings.translate(ctx, CoreStringsKey.ERROR_CONFIGURATION_CANCELLED))))
+							.addMessageItem("", interaction -> {
+								interacted.accept(interaction.getMenuMessage());
+								var input = interaction.getEvent().getMessage().getContent();
+								var currentEntry = entryQueue.element();
+								var editEntry = currentEntry.accept(new EditVisitor(ctx, input)).onErrorMap(ValidationException.class,
+										e -> new UnexpectedReplyException(CoreStrings.translate(ctx, CoreStringsKey.ERROR_CONSTRAINT_VIOLATION)
+												+ ' ' + e.getMessage()));
+								return editEntry.then(goToNextEntry(ctx, entryQueue, formattedValuePerEntry, configurator,
+										interaction.getMenuMessage(), interaction::closeMenu, totalPages));
+							})
+							.deleteMenuOnClose(true)
+							.deleteMenuOnTimeout(true)
+							.closeAfterMessage(false)
+							.closeAfterReaction(false)
+							.open(ctx);
+					// Eviction cancels the menu so that everything captured above can be collected, which
+					// leaves its message behind
+					return Mono.first(menu.thenReturn(false), session.onClose().thenReturn(true))
+							.flatMap(evicted -> evicted
+									? Mono.justOrEmpty(menuMessage.get())
+											.flatMap(Message::delete)
+											.onErrorResume(e -> Mono.empty())
+									: Mono.empty());
+				})
+				.doFinally(signal -> registry.close(session));
 	}
 
 	private Mono<Void> goToNextEntry(Context ctx, Queue<ConfigEntry<?>> entryQueue,
@@ -170,7 +203,7 @@ public final class SetupCommand {
 		var goToNextEntry = Mono.fromCallable(entryQueue::element)
 				.flatMap(nextEntry -> nextEntry.accept(new PromptVisitor(ctx,
 								formattedValuePerEntry.get(nextEntry), totalPages - entryQueue.size() + 1, totalPages))
-						.flatMap(prompt -> menuMessage.edit(spec -> spec.setContent(prompt))))
+						.flatMap(prompt -> Tracer.span("menu_edit", menuMessage.edit(spec -> spec.setContent(prompt)))))
 				.then();
 		return Mono.fromRunnable(entryQueue::remove)
 				.then(Mono.defer(() -> entryQueue.isEmpty()
@@ -179,8 +212,8 @@ public final class SetupCommand {
 	}
 	
 	private Mono<Void> endConfiguration(GuildConfigurator<?> configurator, Context ctx, Runnable menuCloser) {
-		return configurator.saveConfig(core.bot().database())
-				.then(ctx.reply(":white_check_mark: " + ctx.translate("CoreStrings", "configuration_done"))
+		return Tracer.span("GuildConfigurator.saveConfig", configurator.saveConfig(core.bot().database()))
+				.then(Tracer.span("reply", ctx.reply(":white_check_mark: " + CoreStrings.translate(ctx, CoreStringsKey.CONFIGURATION_DONE)))
 						.and(Mono.fromRunnable(menuCloser)));
 	}
 	
@@ -244,17 +277,17 @@ public final class SetupCommand {
 
 		@Override
 		public Mono<String> visit(IntegerConfigEntry entry) {
-			return Mono.just(prompt(entry, tr.translate("CoreStrings", "prompt_numeric")));
+			return Mono.just(prompt(entry, CoreStrings.translate(tr, CoreStringsKey.PROMPT_NUMERIC)));
 		}
 
 		@Override
 		public Mono<String> visit(LongConfigEntry entry) {
-			return Mono.just(prompt(entry, tr.translate("CoreStrings", "prompt_numeric")));
+			return Mono.just(prompt(entry, CoreStrings.translate(tr, CoreStringsKey.PROMPT_NUMERIC)));
 		}
 
 		@Override
 		public Mono<String> visit(BooleanConfigEntry entry) {
-			return Mono.just(prompt(entry, tr.translate("CoreStrings", "prompt_boolean")));
+			return Mono.just(prompt(entry, CoreStrings.translate(tr, CoreStringsKey.PROMPT_BOOLEAN)));
 		}
 
 		@Override
@@ -264,26 +297,26 @@ public final class SetupCommand {
 
 		@Override
 		public Mono<String> visit(GuildChannelConfigEntry entry) {
-			return Mono.just(prompt(entry, tr.translate("CoreStrings", "prompt_channel")));
+			return Mono.just(prompt(entry, CoreStrings.translate(tr, CoreStringsKey.PROMPT_CHANNEL)));
 		}
 
 		@Override
 		public Mono<String> visit(GuildRoleConfigEntry entry) {
-			return Mono.just(prompt(entry, tr.translate("CoreStrings", "prompt_channel")));
+			return Mono.just(prompt(entry, CoreStrings.translate(tr, CoreStringsKey.PROMPT_CHANNEL)));
 		}
 
 		@Override
 		public Mono<String> visit(GuildMemberConfigEntry entry) {
-			return Mono.just(prompt(entry, tr.translate("CoreStrings", "prompt_member")));
+			return Mono.just(prompt(entry, CoreStrings.translate(tr, CoreStringsKey.PROMPT_MEMBER)));
 		}
 		
 		private String prompt(ConfigEntry<?> entry, String expecting) {
 			return "───────────────────────\n"
 					+ Markdown.bold(entry.getDisplayName()) + " (" + currentPage + '/' + totalPages + ")\n\n"
 					+ (entry.getDescription().isEmpty() ? "" : entry.getDescription() + "\n\n")
-					+ Markdown.bold(tr.translate("CoreStrings", "current_value")) + ' ' + currentValue + '\n'
-					+ tr.translate("CoreStrings", "react_entry", "\u23ED\uFE0F", "\uD83D\uDD04", "\u2705", "\uD83D\uDEAB") + '\n'
-					+ Markdown.bold(tr.translate("CoreStrings", "prompt_new_value")
+					+ Markdown.bold(CoreStrings.translate(tr, CoreStringsKey.CURRENT_VALUE)) + ' ' + currentValue + '\n'
+					+ CoreStrings.translate(tr, CoreStringsKey.REACT_ENTRY, "\u23ED\uFE0F", "\uD83D\uDD04", "\u2705", "\uD83D\uDEAB") + '\n'
+					+ Markdown.bold(CoreStrings.translate(tr, CoreStringsKey.PROMPT_NEW_VALUE)
 							+ (expecting == null ? "" : " (" + expecting + ")") + ':') + '\n';
 		}
 	}
@@ -300,38 +333,29 @@ public final class SetupCommand {
 
 		@Override
 		public Mono<Void> visit(IntegerConfigEntry entry) {
-			int value;
-			try {
-				value = Integer.parseInt(input);
-			} catch (NumberFormatException e) {
-				return Mono.error(new UnexpectedReplyException(context.translate("CoreStrings", "error_invalid_input")));
+			var value = InputNormalizer.parseInt(input);
+			if (value.isEmpty()) {
+				return Mono.error(new UnexpectedReplyException(CoreStrings.translate(context, CoreStringsKey.ERROR_INVALID_INPUT)));
 			}
-			return entry.setValue(value);
+			return entry.setValue(value.getAsInt());
 		}
 
 		@Override
 		public Mono<Void> visit(LongConfigEntry entry) {
-			long value;
-			try {
-				value = Long.parseLong(input);
-			} catch (NumberFormatException e) {
-				return Mono.error(new UnexpectedReplyException(context.translate("CoreStrings", "error_invalid_input")));
+			var value = InputNormalizer.parseLong(input);
+			if (value.isEmpty()) {
+				return Mono.error(new UnexpectedReplyException(CoreStrings.translate(context, CoreStringsKey.ERROR_INVALID_INPUT)));
 			}
-			return entry.setValue(value);
+			return entry.setValue(value.getAsLong());
 		}
 
 		@Override
 		public Mono<Void> visit(BooleanConfigEntry entry) {
-			var collator = Collator.getInstance(context.getLocale());
-			collator.setStrength(SECONDARY);
-			var yes = context.translate("CommonStrings", "yes");
-			var no = context.translate("CommonStrings", "no");
-			var isYes = collator.compare(input, yes) == 0;
-			var isNo = collator.compare(input, no) == 0;
-			if (!isYes && !isNo) {
-				return Mono.error(new UnexpectedReplyException(context.translate("CoreStrings", "error_expected_boolean")));
+			var value = InputNormalizer.forTranslator(context).parseBoolean(input);
+			if (value.isEmpty()) {
+				return Mono.error(new UnexpectedReplyException(CoreStrings.translate(context, CoreStringsKey.ERROR_EXPECTED_BOOLEAN)));
 			}
-			return entry.setValue(isYes);
+			return entry.setValue(value.get());
 		}
 
 		@Override
@@ -341,14 +365,25 @@ public final class SetupCommand {
 
 		@Override
 		public Mono<Void> visit(GuildChannelConfigEntry entry) {
-			return DiscordParser.parseGuildChannel(context, context.event().getClient(), entry.getGuildId(), input)
+			var client = context.event().getClient();
+			// Mentions and raw IDs are resolved directly, the parser only runs for names or unknown IDs
+			var byId = Mono.justOrEmpty(InputNormalizer.parseSnowflake(input, "#"))
+					.flatMap(id -> client.getChannelById(id).onErrorResume(e -> Mono.empty()))
+					.ofType(GuildChannel.class)
+					.filter(channel -> channel.getGuildId().equals(entry.getGuildId()));
+			return byId.switchIfEmpty(Mono.defer(() -> DiscordParser.parseGuildChannel(context, client,
+							entry.getGuildId(), input)))
 					.flatMap(entry::setValue)
 					.onErrorMap(IllegalArgumentException.class, e -> new UnexpectedReplyException(e.getMessage()));
 		}
 
 		@Override
 		public Mono<Void> visit(GuildRoleConfigEntry entry) {
-			return DiscordParser.parseRole(context, context.event().getClient(), entry.getGuildId(), input)
+			var client = context.event().getClient();
+			var byId = Mono.justOrEmpty(InputNormalizer.parseSnowflake(input, "@&"))
+					.flatMap(id -> client.getRoleById(entry.getGuildId(), id).onErrorResume(e -> Mono.empty()));
+			return byId.switchIfEmpty(Mono.defer(() -> DiscordParser.parseRole(context, client,
+							entry.getGuildId(), input)))
 					.flatMap(entry::setValue)
 					.onErrorMap(IllegalArgumentException.class, e -> new UnexpectedReplyException(e.getMessage()));
 		}
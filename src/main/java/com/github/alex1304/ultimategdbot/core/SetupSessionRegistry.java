@@ -0,0 +1,251 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static java.util.stream.Collectors.toList;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Keeps track of the interactive setup sessions in progress. Each session
+ * holds the entries being edited and their formatted values until its menu
+ * closes, so the number of sessions is capped globally and per guild, and
+ * sessions left idle for too long are evicted: their menu is cancelled, its
+ * message deleted if the menu got any interaction, and everything it captured
+ * becomes unreachable.
+ */
+public final class SetupSessionRegistry {
+
+	private static final Logger LOGGER = Loggers.getLogger(SetupSessionRegistry.class);
+
+	// Rough per-object costs used for the retained size estimate
+	private static final int ENTRY_OVERHEAD = 96;
+	private static final int STRING_OVERHEAD = 40;
+	private static final int SESSION_OVERHEAD = 512;
+
+	private final int maxSessions;
+	private final int maxSessionsPerGuild;
+	private final Duration idleTimeout;
+	private final AtomicLong nextId = new AtomicLong();
+	private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+	private final Map<Long, Integer> countPerGuild = new HashMap<>();
+	private volatile Disposable sweeper;
+
+	public SetupSessionRegistry(int maxSessions, int maxSessionsPerGuild, Duration idleTimeout) {
+		this.maxSessions = maxSessions;
+		this.maxSessionsPerGuild = maxSessionsPerGuild;
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Registers a new session if the caps allow it.
+	 *
+	 * @param guildId          the guild being configured
+	 * @param userId           the user running the setup
+	 * @param configuratorName the name of the configurator being edited
+	 * @param formattedValues  the formatted values of the entries held by the
+	 *                         session, used to estimate its size
+	 * @return the session, or empty if the global cap or the cap of the guild is
+	 *         reached
+	 */
+	public Optional<Session> open(long guildId, long userId, String configuratorName,
+			Iterable<String> formattedValues) {
+		var retained = (long) SESSION_OVERHEAD;
+		var entryCount = 0;
+		for (var value : formattedValues) {
+			retained += ENTRY_OVERHEAD + (value == null ? 0 : STRING_OVERHEAD + 2L * value.length());
+			entryCount++;
+		}
+		synchronized (countPerGuild) {
+			if (sessions.size() >= maxSessions
+					|| countPerGuild.getOrDefault(guildId, 0) >= maxSessionsPerGuild) {
+				return Optional.empty();
+			}
+			var session = new Session(nextId.incrementAndGet(), guildId, userId, configuratorName, entryCount,
+					retained);
+			sessions.put(session.id, session);
+			countPerGuild.merge(guildId, 1, Integer::sum);
+			return Optional.of(session);
+		}
+	}
+
+	/**
+	 * Tells whether a new session would be rejected because of the global cap,
+	 * as opposed to the cap of the guild.
+	 *
+	 * @return true if the global cap is reached
+	 */
+	public boolean isFull() {
+		return sessions.size() >= maxSessions;
+	}
+
+	/**
+	 * Removes a session from the registry. Does nothing if it was already
+	 * removed.
+	 *
+	 * @param session the session to remove
+	 */
+	public void close(Session session) {
+		synchronized (countPerGuild) {
+			if (sessions.remove(session.id) == null) {
+				return;
+			}
+			countPerGuild.computeIfPresent(session.guildId, (k, v) -> v == 1 ? null : v - 1);
+		}
+		session.closed.fire();
+	}
+
+	/**
+	 * Closes all sessions, stopping their menus.
+	 */
+	public void closeAll() {
+		sessions.values().forEach(this::close);
+	}
+
+	/**
+	 * Lists the active sessions, least recently active first.
+	 *
+	 * @return the sessions
+	 */
+	public List<Session> list() {
+		return sessions.values().stream()
+				.sorted(Comparator.comparingLong(s -> s.lastActivity))
+				.collect(toList());
+	}
+
+	public int count() {
+		return sessions.size();
+	}
+
+	public int guildCount() {
+		synchronized (countPerGuild) {
+			return countPerGuild.size();
+		}
+	}
+
+	public long estimatedRetainedBytes() {
+		return sessions.values().stream().mapToLong(s -> s.estimatedRetainedBytes).sum();
+	}
+
+	/**
+	 * Starts evicting idle sessions in background.
+	 */
+	public void start() {
+		var period = idleTimeout.dividedBy(4);
+		if (period.compareTo(Duration.ofSeconds(30)) > 0) {
+			period = Duration.ofSeconds(30);
+		}
+		sweeper = Flux.interval(period, period)
+				.doOnNext(tick -> evictIdle())
+				.subscribe();
+	}
+
+	public void stop() {
+		var sweeper = this.sweeper;
+		if (sweeper != null) {
+			sweeper.dispose();
+		}
+	}
+
+	private void evictIdle() {
+		var deadline = System.nanoTime() - idleTimeout.toNanos();
+		var evicted = 0;
+		for (var session : sessions.values()) {
+			if (session.lastActivity - deadline < 0) {
+				close(session);
+				evicted++;
+			}
+		}
+		if (evicted > 0) {
+			LOGGER.debug("Evicted {} idle setup session(s)", evicted);
+		}
+	}
+
+	/**
+	 * An active setup session.
+	 */
+	public static final class Session {
+
+		private final long id;
+		private final long guildId;
+		private final long userId;
+		private final String configuratorName;
+		private final int entryCount;
+		private final long estimatedRetainedBytes;
+		private final Instant startedAt = Instant.now();
+		private final CompletionSignal closed = new CompletionSignal();
+		private volatile long lastActivity = System.nanoTime();
+
+		private Session(long id, long guildId, long userId, String configuratorName, int entryCount,
+				long estimatedRetainedBytes) {
+			this.id = id;
+			this.guildId = guildId;
+			this.userId = userId;
+			this.configuratorName = configuratorName;
+			this.entryCount = entryCount;
+			this.estimatedRetainedBytes = estimatedRetainedBytes;
+		}
+
+		/**
+		 * Records activity on this session, pushing back its eviction.
+		 */
+		public void touch() {
+			lastActivity = System.nanoTime();
+		}
+
+		/**
+		 * Gets a Mono that completes when the session is closed, either normally or
+		 * by eviction. The menu of the session should be cancelled and its message
+		 * deleted when it completes.
+		 *
+		 * @return a Mono completing on close
+		 */
+		public Mono<Void> onClose() {
+			return closed.asMono();
+		}
+
+		public long id() {
+			return id;
+		}
+
+		public long guildId() {
+			return guildId;
+		}
+
+		public long userId() {
+			return userId;
+		}
+
+		public String configuratorName() {
+			return configuratorName;
+		}
+
+		public int entryCount() {
+			return entryCount;
+		}
+
+		public long estimatedRetainedBytes() {
+			return estimatedRetainedBytes;
+		}
+
+		public Instant startedAt() {
+			return startedAt;
+		}
+
+		public Duration idleTime() {
+			return Duration.ofNanos(System.nanoTime() - lastActivity);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.github.alex1304.ultimategdbot.api.command.CommandFailedException;
+import com.github.alex1304.ultimategdbot.api.command.Context;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Shuts the plugin down in order before the bot disconnects: new commands are
+ * refused, then each registered phase runs in turn, typically to wait for the
+ * commands in progress and to flush what is still buffered. Every phase is
+ * timed and bounded by a timeout, and a phase that fails or times out does not
+ * prevent the next ones from running.
+ */
+public final class ShutdownCoordinator {
+
+	private static final Logger LOGGER = Loggers.getLogger(ShutdownCoordinator.class);
+	private static final Duration DRAIN_POLL_INTERVAL = Duration.ofMillis(100);
+
+	private final Duration drainTimeout;
+	private final Duration phaseTimeout;
+	private final AtomicBoolean accepting = new AtomicBoolean(true);
+	private final AtomicBoolean started = new AtomicBoolean();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final List<NamedPhase> phases = new ArrayList<>();
+
+	public ShutdownCoordinator(Duration drainTimeout, Duration phaseTimeout) {
+		this.drainTimeout = drainTimeout;
+		this.phaseTimeout = phaseTimeout;
+	}
+
+	/**
+	 * Runs the given command action, keeping count of it until it terminates so
+	 * that shutdown can wait for it. Once shutdown has started, the action is not
+	 * run and the returned Mono errors with a {@link CommandFailedException}.
+	 *
+	 * @param ctx    the context of the command
+	 * @param action the command action
+	 * @return a Mono completing when the action completes
+	 */
+	public Mono<Void> track(Context ctx, Mono<Void> action) {
+		return Mono.defer(() -> {
+			// Incrementing before checking ensures drain never misses a command that got in
+			inFlight.incrementAndGet();
+			if (!accepting.get()) {
+				inFlight.decrementAndGet();
+				return Mono.error(new CommandFailedException(
+						CoreStrings.translate(ctx, CoreStringsKey.ERROR_SHUTTING_DOWN)));
+			}
+			return action.doFinally(signal -> inFlight.decrementAndGet());
+		});
+	}
+
+	/**
+	 * Adds a phase to run once new commands are refused. Phases run in the order
+	 * they are added.
+	 *
+	 * @param name  the name of the phase, shown in the report
+	 * @param phase supplies the Mono performing the phase
+	 */
+	public void addPhase(String name, Supplier<Mono<Void>> phase) {
+		phases.add(new NamedPhase(name, phase, phaseTimeout));
+	}
+
+	/**
+	 * Adds a phase waiting for the commands in progress to finish, giving up
+	 * after the drain timeout.
+	 */
+	public void addDrainPhase() {
+		// The drain gives up by itself once drainTimeout is reached, the phase timeout is only a safety net
+		phases.add(new NamedPhase("drain_commands", this::drain, drainTimeout.plus(phaseTimeout)));
+	}
+
+	public int inFlightCount() {
+		return inFlight.get();
+	}
+
+	public boolean isShuttingDown() {
+		return !accepting.get();
+	}
+
+	/**
+	 * Runs the shutdown sequence. Only the first call has an effect; later calls
+	 * complete empty.
+	 *
+	 * @return a Mono emitting how long each phase took
+	 */
+	public Mono<List<PhaseTiming>> shutdown() {
+		return Mono.defer(() -> {
+			if (!started.compareAndSet(false, true)) {
+				return Mono.empty();
+			}
+			var all = new ArrayList<NamedPhase>();
+			all.add(new NamedPhase("stop_accepting", () -> Mono.fromRunnable(() -> accepting.set(false)),
+					phaseTimeout));
+			all.addAll(phases);
+			return Flux.fromIterable(all)
+					.concatMap(this::run)
+					.collectList();
+		});
+	}
+
+	private Mono<Void> drain() {
+		return Flux.interval(Duration.ZERO, DRAIN_POLL_INTERVAL)
+				.filter(tick -> inFlight.get() == 0)
+				.next()
+				.timeout(drainTimeout, Mono.fromRunnable(() -> LOGGER.warn(
+						"{} command(s) still running after {}, shutting down anyway", inFlight.get(), drainTimeout)))
+				.then();
+	}
+
+	/**
+	 * Runs a single phase outside of the registered sequence, timed and bounded
+	 * like the others. Meant for a final phase that needs the timings of the
+	 * sequence.
+	 *
+	 * @param name  the name of the phase
+	 * @param phase supplies the Mono performing the phase
+	 * @return a Mono emitting how long the phase took
+	 */
+	public Mono<PhaseTiming> runPhase(String name, Supplier<Mono<Void>> phase) {
+		return run(new NamedPhase(name, phase, phaseTimeout));
+	}
+
+	private Mono<PhaseTiming> run(NamedPhase phase) {
+		return Mono.defer(phase.phase)
+				.timeout(phase.timeout)
+				.then(Mono.just(true))
+				.onErrorResume(e -> {
+					LOGGER.error("Shutdown phase " + phase.name + " failed", e);
+					return Mono.just(false);
+				})
+				.elapsed()
+				.map(tuple -> {
+					var timing = new PhaseTiming(phase.name, Duration.ofMillis(tuple.getT1()), tuple.getT2());
+					LOGGER.info("Shutdown phase {} {} in {} ms", phase.name, timing.succeeded ? "done" : "failed",
+							tuple.getT1());
+					return timing;
+				});
+	}
+
+	private static final class NamedPhase {
+
+		private final String name;
+		private final Supplier<Mono<Void>> phase;
+		private final Duration timeout;
+
+		private NamedPhase(String name, Supplier<Mono<Void>> phase, Duration timeout) {
+			this.name = name;
+			this.phase = phase;
+			this.timeout = timeout;
+		}
+	}
+
+	/**
+	 * How long a shutdown phase took.
+	 */
+	public static final class PhaseTiming {
+
+		private final String name;
+		private final Duration duration;
+		private final boolean succeeded;
+
+		private PhaseTiming(String name, Duration duration, boolean succeeded) {
+			this.name = name;
+			this.duration = duration;
+			this.succeeded = succeeded;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public Duration duration() {
+			return duration;
+		}
+
+		/**
+		 * @return false if the phase failed or timed out
+		 */
+		public boolean succeeded() {
+			return succeeded;
+		}
+
+		@Override
+		public String toString() {
+			return name + ": " + duration.toMillis() + " ms" + (succeeded ? "" : " (failed)");
+		}
+	}
+}
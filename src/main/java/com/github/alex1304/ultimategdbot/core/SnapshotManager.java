@@ -0,0 +1,141 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static reactor.function.TupleUtils.function;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+import com.github.alex1304.ultimategdbot.api.service.BotService;
+import com.github.alex1304.ultimategdbot.core.database.BlacklistedIdDao;
+import com.github.alex1304.ultimategdbot.core.database.ChangeLogDao;
+import com.github.alex1304.ultimategdbot.core.database.ChangeLogEntry;
+import com.github.alex1304.ultimategdbot.core.database.CoreConfigDao;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Saves and restores {@link ConfigSnapshot}s. Restoring a snapshot loads it in
+ * memory, then replays the change log entries recorded after its high-water
+ * mark, so that the resulting state is the same as a full load from database.
+ * A snapshot older than the change log retention is ignored, because the
+ * entries needed to bring it up to date may have been trimmed.
+ */
+final class SnapshotManager {
+	
+	private static final Logger LOGGER = Loggers.getLogger(SnapshotManager.class);
+	private static final int RECONCILE_BATCH_SIZE = 500;
+	
+	private final BotService bot;
+	private final DaoExecutor daoExecutor;
+	private final Path path;
+	private final Duration maxAge;
+	
+	SnapshotManager(BotService bot, DaoExecutor daoExecutor, Path path, Duration maxAge) {
+		this.bot = bot;
+		this.daoExecutor = daoExecutor;
+		this.path = path;
+		this.maxAge = maxAge;
+	}
+	
+	/**
+	 * Captures the current database state and writes it to the snapshot file.
+	 * The high-water mark is read before the tables, so a change committed
+	 * while capturing is replayed on restore rather than lost.
+	 * 
+	 * @return a Mono completing when the snapshot is written
+	 */
+	Mono<Void> save() {
+		var defaultPrefix = bot.command().getCommandPrefix();
+		var defaultLocale = bot.localization().getLocale().toLanguageTag();
+		return daoExecutor.withExtension(ChangeLogDao.class, ChangeLogDao::getLastSeq)
+				.flatMap(highWaterMark -> Mono.zip(
+								daoExecutor.withExtension(BlacklistedIdDao.class, BlacklistedIdDao::getAll),
+								daoExecutor.withExtension(CoreConfigDao.class, dao -> dao.getAllNonDefaultPrefixes(defaultPrefix)),
+								daoExecutor.withExtension(CoreConfigDao.class, dao -> dao.getAllNonDefaultLocales(defaultLocale)))
+						.map(function((blacklist, prefixes, locales) -> {
+							var prefixMap = new HashMap<Long, String>();
+							prefixes.forEach(data -> prefixMap.put(data.guildId().asLong(), data.prefix().orElseThrow()));
+							var localeMap = new HashMap<Long, String>();
+							locales.forEach(data -> localeMap.put(data.guildId().asLong(), data.locale().orElseThrow()));
+							return new ConfigSnapshot(highWaterMark, System.currentTimeMillis(), defaultPrefix,
+									defaultLocale, blacklist.stream().mapToLong(Long::longValue).toArray(),
+									prefixMap, localeMap);
+						})))
+				.flatMap(snapshot -> Mono.fromCallable(() -> {
+							snapshot.writeTo(path);
+							return snapshot;
+						})
+						.subscribeOn(Schedulers.boundedElastic()))
+				.doOnNext(snapshot -> LOGGER.debug("Wrote snapshot with {} entries at seq {} to {}",
+						snapshot.size(), snapshot.highWaterMark, path))
+				.then();
+	}
+	
+	/**
+	 * Restores the state from the snapshot file, if there is a usable one.
+	 * 
+	 * @return a Mono emitting the number of entries loaded from the snapshot and
+	 *         replayed from the change log, or empty if there is no usable
+	 *         snapshot
+	 */
+	Mono<Integer> restore() {
+		var defaultPrefix = bot.command().getCommandPrefix();
+		var defaultLocale = bot.localization().getLocale().toLanguageTag();
+		return Mono.fromCallable(() -> ConfigSnapshot.readFrom(path))
+				.subscribeOn(Schedulers.boundedElastic())
+				.flatMap(Mono::justOrEmpty)
+				.onErrorResume(IOException.class, e -> {
+					LOGGER.warn("Unable to read snapshot " + path, e);
+					return Mono.empty();
+				})
+				.filter(snapshot -> snapshot.defaultPrefix.equals(defaultPrefix)
+						&& snapshot.defaultLocale.equals(defaultLocale)
+						&& System.currentTimeMillis() - snapshot.createdAt < maxAge.toMillis())
+				.flatMap(snapshot -> {
+					for (var id : snapshot.blacklist) {
+						bot.command().blacklist(id);
+					}
+					snapshot.prefixes.forEach(bot.command()::setPrefixForGuild);
+					snapshot.locales.forEach((guildId, locale) -> bot.localization()
+							.setLocaleForGuild(guildId, Locale.forLanguageTag(locale)));
+					return reconcile(snapshot.highWaterMark).map(replayed -> snapshot.size() + replayed);
+				});
+	}
+	
+	private Mono<Integer> reconcile(long highWaterMark) {
+		var lastSeq = new long[] { highWaterMark };
+		return fetchBatch(lastSeq)
+				.expand(batch -> batch.size() < RECONCILE_BATCH_SIZE ? Mono.empty() : fetchBatch(lastSeq))
+				.flatMapIterable(batch -> batch)
+				.flatMap(entry -> {
+					try {
+						return Mono.just(Invalidation.of(Invalidation.Kind.valueOf(entry.kind()), entry.targetId()));
+					} catch (IllegalArgumentException e) {
+						return Mono.empty();
+					}
+				})
+				.collect(LinkedHashSet<Invalidation>::new, LinkedHashSet::add)
+				.flatMap(invalidations -> Flux.fromIterable(invalidations)
+						.concatMap(invalidation -> CoreService.applyInvalidation(bot, daoExecutor, invalidation))
+						.then(Mono.just(invalidations.size())));
+	}
+	
+	private Mono<List<ChangeLogEntry>> fetchBatch(long[] lastSeq) {
+		return Mono.defer(() -> daoExecutor.withExtension(ChangeLogDao.class,
+						dao -> dao.getAfter(lastSeq[0], RECONCILE_BATCH_SIZE)))
+				.doOnNext(batch -> {
+					if (!batch.isEmpty()) {
+						lastSeq[0] = batch.get(batch.size() - 1).seq();
+					}
+				});
+	}
+}
@@ -0,0 +1,287 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Samples the stacks of all threads for a while and aggregates them in the
+ * collapsed format understood by flame graph tools: one line per distinct
+ * stack, frames from root to leaf separated by semicolons, followed by the
+ * number of samples.
+ *
+ * <p>
+ * Dumping all threads stops them at a safepoint, so the cost of each dump is
+ * measured and the interval is stretched whenever the time spent dumping would
+ * exceed the allowed share of the profiling time. Only one profile can run at
+ * a time.
+ */
+public final class StackProfiler {
+
+	private static final Pattern THREAD_NUMBER = Pattern.compile("[-#]?\\d+$");
+	private static final Pattern LAMBDA_ADDRESS = Pattern.compile("/0x\\p{XDigit}+");
+
+	private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+	private final Duration interval;
+	private final double maxOverhead;
+	private final int maxDepth;
+	private final boolean runnableOnly;
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	public StackProfiler(Duration interval, double maxOverhead, int maxDepth, boolean runnableOnly) {
+		if (!(maxOverhead > 0)) {
+			// The wait between dumps is divided by it
+			throw new IllegalArgumentException("profile.max_overhead_percent must be greater than 0");
+		}
+		this.interval = interval;
+		this.maxOverhead = maxOverhead;
+		this.maxDepth = maxDepth;
+		this.runnableOnly = runnableOnly;
+	}
+
+	/**
+	 * Profiles all threads for the given duration.
+	 *
+	 * @param duration how long to sample
+	 * @return a Mono emitting the profile, or empty if a profile is already
+	 *         running
+	 */
+	public Mono<Profile> profile(Duration duration) {
+		return Mono.defer(() -> {
+			if (!running.compareAndSet(false, true)) {
+				return Mono.empty();
+			}
+			return Mono.fromCallable(() -> sample(duration))
+					// Sampling sleeps between dumps, it must not hold a parallel thread
+					.subscribeOn(Schedulers.boundedElastic())
+					.doFinally(signal -> running.set(false));
+		});
+	}
+
+	public boolean isRunning() {
+		return running.get();
+	}
+
+	private Profile sample(Duration duration) throws InterruptedException {
+		var trie = new StackTrie();
+		var self = Thread.currentThread().getId();
+		var intervalNanos = interval.toNanos();
+		var start = System.nanoTime();
+		var end = start + duration.toNanos();
+		var samples = 0;
+		var dumpNanos = 0L;
+		var stretched = 0;
+		while (System.nanoTime() < end) {
+			var dumpStart = System.nanoTime();
+			var threads = threadMXBean.dumpAllThreads(false, false, maxDepth);
+			for (var thread : threads) {
+				if (thread.getThreadId() != self
+						&& (!runnableOnly || thread.getThreadState() == Thread.State.RUNNABLE)) {
+					trie.add(thread);
+				}
+			}
+			var elapsed = System.nanoTime() - dumpStart;
+			dumpNanos += elapsed;
+			samples++;
+			// Waiting at least elapsed / maxOverhead between dumps keeps their share of the time under maxOverhead
+			var wait = Math.max(intervalNanos, (long) (elapsed / maxOverhead)) - elapsed;
+			if (wait + elapsed > intervalNanos) {
+				stretched++;
+			}
+			if (wait > 0) {
+				Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+			}
+		}
+		return new Profile(trie.collapse(), samples, Duration.ofNanos(System.nanoTime() - start),
+				Duration.ofNanos(dumpNanos), stretched);
+	}
+
+	/**
+	 * Thread names without their trailing number, so that the threads of a pool
+	 * are merged under a single root.
+	 */
+	static String poolName(String threadName) {
+		var name = THREAD_NUMBER.matcher(threadName).replaceFirst("");
+		return name.isEmpty() ? threadName : name.replace(';', '_');
+	}
+
+	/**
+	 * Prefix tree of stacks stored in parallel arrays: each node is an index
+	 * holding its frame, its first child, its next sibling and the number of
+	 * samples whose stack ends there. Frames are interned by name so that a node
+	 * costs a handful of ints rather than an object per frame.
+	 */
+	static final class StackTrie {
+
+		private final Map<String, Integer> frameIds = new HashMap<>();
+		private String[] frames = new String[256];
+		private int[] frameOf = new int[1024];
+		private int[] firstChild = new int[1024];
+		private int[] nextSibling = new int[1024];
+		private int[] selfCount = new int[1024];
+		private int size = 1; // Node 0 is the root and has no frame
+
+		{
+			Arrays.fill(firstChild, -1);
+			Arrays.fill(nextSibling, -1);
+		}
+
+		void add(ThreadInfo thread) {
+			var node = child(0, frameId(poolName(thread.getThreadName())));
+			var stack = thread.getStackTrace();
+			for (var i = stack.length - 1; i >= 0; i--) {
+				node = child(node, frameId(frameName(stack[i])));
+			}
+			selfCount[node]++;
+		}
+
+		private int frameId(String name) {
+			var id = frameIds.get(name);
+			if (id != null) {
+				return id;
+			}
+			id = frameIds.size();
+			if (id == frames.length) {
+				frames = Arrays.copyOf(frames, id * 2);
+			}
+			frames[id] = name;
+			frameIds.put(name, id);
+			return id;
+		}
+
+		private static String frameName(StackTraceElement element) {
+			// Hidden classes of lambdas carry an address that changes from one run to another
+			return LAMBDA_ADDRESS.matcher(element.getClassName()).replaceFirst("") + '.' + element.getMethodName();
+		}
+
+		private int child(int parent, int frame) {
+			var last = -1;
+			for (var node = firstChild[parent]; node != -1; node = nextSibling[node]) {
+				if (frameOf[node] == frame) {
+					return node;
+				}
+				last = node;
+			}
+			if (size == frameOf.length) {
+				grow();
+			}
+			var node = size++;
+			frameOf[node] = frame;
+			if (last == -1) {
+				firstChild[parent] = node;
+			} else {
+				nextSibling[last] = node;
+			}
+			return node;
+		}
+
+		private void grow() {
+			var capacity = frameOf.length * 2;
+			frameOf = Arrays.copyOf(frameOf, capacity);
+			selfCount = Arrays.copyOf(selfCount, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			Arrays.fill(firstChild, size, capacity, -1);
+			Arrays.fill(nextSibling, size, capacity, -1);
+		}
+
+		int nodeCount() {
+			return size - 1;
+		}
+
+		/**
+		 * Writes the collapsed stacks, depth first.
+		 */
+		String collapse() {
+			var sb = new StringBuilder();
+			var path = new StringBuilder();
+			for (var node = firstChild[0]; node != -1; node = nextSibling[node]) {
+				collapse(node, path, sb);
+			}
+			return sb.toString();
+		}
+
+		private void collapse(int node, StringBuilder path, StringBuilder sb) {
+			var length = path.length();
+			if (length > 0) {
+				path.append(';');
+			}
+			path.append(frames[frameOf[node]]);
+			if (selfCount[node] > 0) {
+				sb.append(path).append(' ').append(selfCount[node]).append('\n');
+			}
+			for (var child = firstChild[node]; child != -1; child = nextSibling[child]) {
+				collapse(child, path, sb);
+			}
+			path.setLength(length);
+		}
+	}
+
+	/**
+	 * The result of a profile.
+	 */
+	public static final class Profile {
+
+		private final String collapsedStacks;
+		private final int samples;
+		private final Duration elapsed;
+		private final Duration timeDumping;
+		private final int stretchedIntervals;
+
+		private Profile(String collapsedStacks, int samples, Duration elapsed, Duration timeDumping,
+				int stretchedIntervals) {
+			this.collapsedStacks = collapsedStacks;
+			this.samples = samples;
+			this.elapsed = elapsed;
+			this.timeDumping = timeDumping;
+			this.stretchedIntervals = stretchedIntervals;
+		}
+
+		/**
+		 * @return the stacks in collapsed format, one per line
+		 */
+		public String collapsedStacks() {
+			return collapsedStacks;
+		}
+
+		public int samples() {
+			return samples;
+		}
+
+		public Duration elapsed() {
+			return elapsed;
+		}
+
+		/**
+		 * @return the total time spent dumping threads, during which they were
+		 *         paused
+		 */
+		public Duration timeDumping() {
+			return timeDumping;
+		}
+
+		/**
+		 * @return the share of the elapsed time spent dumping threads, in percent
+		 */
+		public double overheadPercent() {
+			return elapsed.isZero() ? 0 : timeDumping.toNanos() * 100.0 / elapsed.toNanos();
+		}
+
+		/**
+		 * @return how many intervals were made longer to keep the overhead under
+		 *         its limit
+		 */
+		public int stretchedIntervals() {
+			return stretchedIntervals;
+		}
+	}
+}
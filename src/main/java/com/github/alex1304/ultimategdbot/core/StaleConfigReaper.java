@@ -0,0 +1,148 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static java.util.stream.Collectors.partitioningBy;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import com.github.alex1304.ultimategdbot.api.service.BotService;
+import com.github.alex1304.ultimategdbot.core.database.CoreConfigDao;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Garbage-collects the <code>core_config</code> rows of guilds the bot is no
+ * longer in. Each pass marks the rows of guilds that are absent from the
+ * gateway and unmarks the rows of guilds that are present again, then deletes
+ * the rows that have been marked for longer than the grace period. Deletions
+ * are done in batches spaced by a delay to avoid hogging the database.
+ * 
+ * <p>
+ * Only the guilds served by the shards of the current process are considered,
+ * so that several processes sharing the same database never reap each other's
+ * guilds.
+ */
+final class StaleConfigReaper {
+	
+	private static final Logger LOGGER = Loggers.getLogger(StaleConfigReaper.class);
+	
+	private final BotService bot;
+	private final DaoExecutor daoExecutor;
+	private final InvalidationBus invalidationBus;
+	private final LogSink logSink;
+	private final Duration gracePeriod;
+	private final int batchSize;
+	private final Duration batchDelay;
+	
+	StaleConfigReaper(BotService bot, DaoExecutor daoExecutor, InvalidationBus invalidationBus, LogSink logSink,
+			Duration gracePeriod, int batchSize, Duration batchDelay) {
+		this.bot = bot;
+		this.daoExecutor = daoExecutor;
+		this.invalidationBus = invalidationBus;
+		this.logSink = logSink;
+		this.gracePeriod = gracePeriod;
+		this.batchSize = batchSize;
+		this.batchDelay = batchDelay;
+	}
+	
+	/**
+	 * Runs one reaping pass and reports the result to the log channel.
+	 * 
+	 * @return a Mono completing when the pass is done
+	 */
+	Mono<Void> run() {
+		return bot.gateway().getGuilds()
+				.map(guild -> guild.getId().asLong())
+				.collect(toSet())
+				.flatMap(presentGuildIds -> mark(presentGuildIds)
+						.flatMap(markCounts -> delete(presentGuildIds)
+								.flatMap(deleted -> report(markCounts[0], markCounts[1], deleted))));
+	}
+	
+	private Mono<int[]> mark(Set<Long> presentGuildIds) {
+		var now = Timestamp.from(Instant.now());
+		var counts = new int[2]; // marked, unmarked
+		var lastGuildId = new long[] { 0 };
+		return fetchPage(lastGuildId)
+				.expand(page -> page.size() < batchSize ? Mono.empty() : fetchPage(lastGuildId))
+				.map(page -> page.stream()
+						.filter(this::isHandledByThisProcess)
+						.collect(partitioningBy(presentGuildIds::contains)))
+				.concatMap(partition -> {
+					var absent = partition.get(false);
+					var present = partition.get(true);
+					return daoExecutor.withExtension(CoreConfigDao.class, dao -> {
+						counts[0] += absent.isEmpty() ? 0 : dao.markStale(now, absent);
+						counts[1] += present.isEmpty() ? 0 : dao.unmarkStale(present);
+						return counts;
+					});
+				})
+				.then(Mono.fromCallable(() -> counts));
+	}
+	
+	private Mono<Integer> delete(Set<Long> presentGuildIds) {
+		var staleBefore = Timestamp.from(Instant.now().minus(gracePeriod));
+		var lastGuildId = new long[] { 0 };
+		return fetchStalePage(staleBefore, lastGuildId)
+				.expand(page -> page.size() < batchSize ? Mono.empty()
+						: fetchStalePage(staleBefore, lastGuildId).delaySubscription(batchDelay))
+				.map(page -> page.stream()
+						.filter(this::isHandledByThisProcess)
+						.filter(guildId -> !presentGuildIds.contains(guildId))
+						.collect(toList()))
+				.concatMap(staleIds -> staleIds.isEmpty() ? Mono.just(0) : daoExecutor
+						.withExtension(CoreConfigDao.class, dao -> dao.deleteStale(staleIds))
+						.doOnNext(deleted -> purge(staleIds)))
+				.reduce(0, Integer::sum);
+	}
+	
+	private void purge(List<Long> guildIds) {
+		for (var guildId : guildIds) {
+			bot.command().setPrefixForGuild(guildId, null);
+			bot.localization().setLocaleForGuild(guildId, null);
+			invalidationBus.publish(Invalidation.Kind.GUILD_CONFIG, guildId);
+		}
+	}
+	
+	private Mono<Void> report(int marked, int unmarked, int deleted) {
+		LOGGER.info("Stale config reaper: {} marked, {} unmarked, {} deleted", marked, unmarked, deleted);
+		if (marked == 0 && unmarked == 0 && deleted == 0) {
+			return Mono.empty();
+		}
+		return logSink.log(CoreStrings.translate(bot.localization().getLocale(), CoreStringsKey.REAPER_LOG, marked, unmarked, deleted));
+	}
+	
+	private Mono<List<Long>> fetchPage(long[] lastGuildId) {
+		return Mono.defer(() -> daoExecutor.withExtension(CoreConfigDao.class,
+						dao -> dao.getGuildIdsAfter(lastGuildId[0], batchSize)))
+				.doOnNext(page -> {
+					if (!page.isEmpty()) {
+						lastGuildId[0] = page.get(page.size() - 1);
+					}
+				});
+	}
+	
+	private Mono<List<Long>> fetchStalePage(Timestamp staleBefore, long[] lastGuildId) {
+		return Mono.defer(() -> daoExecutor.withExtension(CoreConfigDao.class,
+						dao -> dao.getStaleGuildIdsAfter(staleBefore, lastGuildId[0], batchSize)))
+				.doOnNext(page -> {
+					if (!page.isEmpty()) {
+						lastGuildId[0] = page.get(page.size() - 1);
+					}
+				});
+	}
+	
+	private boolean isHandledByThisProcess(long guildId) {
+		var group = bot.gateway().getGatewayClientGroup();
+		var shardId = (int) ((guildId >> 22) % group.getShardCount());
+		return group.find(shardId).isPresent();
+	}
+}
@@ -0,0 +1,172 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Measures the phases of the plugin setup: wall-clock time from subscription to
+ * termination, rows processed, and bytes allocated. Phases hop between
+ * threads, so allocations are only counted inside the synchronous sections a
+ * phase wraps with {@link Phase#measure(Supplier)} or
+ * {@link Phase#eachRow(Consumer)}, where the current thread is known to be
+ * doing work for that phase.
+ */
+public final class StartupProfiler {
+
+	private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+
+	private final List<Phase> phases = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Wraps a setup phase so that it gets measured when subscribed.
+	 *
+	 * @param <T>  the type of value emitted by the phase
+	 * @param name the name of the phase
+	 * @param body builds the phase, using the given {@link Phase} to report rows
+	 *             and allocations
+	 * @return a Mono running the phase and emitting its result
+	 */
+	public <T> Mono<T> phase(String name, Function<Phase, Mono<T>> body) {
+		return Mono.defer(() -> {
+			var phase = new Phase(name);
+			phases.add(phase);
+			var start = System.nanoTime();
+			Runnable stop = () -> phase.wallTimeNanos = System.nanoTime() - start;
+			// Recorded before the phase signals downstream, so that what runs next sees it as done
+			return body.apply(phase)
+					.doOnTerminate(stop)
+					.doOnCancel(stop);
+		});
+	}
+
+	/**
+	 * Gets the phases started so far, in the order they started.
+	 *
+	 * @return the phases
+	 */
+	public List<Phase> phases() {
+		return List.copyOf(phases);
+	}
+
+	/**
+	 * Tells whether allocated bytes can be measured on this JVM.
+	 *
+	 * @return true if allocations are measured
+	 */
+	public static boolean isAllocationMeasured() {
+		return THREAD_MX_BEAN != null;
+	}
+
+	private static long allocatedBytes() {
+		return THREAD_MX_BEAN == null ? 0 : THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static com.sun.management.ThreadMXBean threadMXBean() {
+		var bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		var sunBean = (com.sun.management.ThreadMXBean) bean;
+		if (!sunBean.isThreadAllocatedMemorySupported()) {
+			return null;
+		}
+		if (!sunBean.isThreadAllocatedMemoryEnabled()) {
+			sunBean.setThreadAllocatedMemoryEnabled(true);
+		}
+		return sunBean;
+	}
+
+	/**
+	 * A setup phase being measured.
+	 */
+	public static final class Phase {
+
+		private final String name;
+		private final AtomicLong rows = new AtomicLong();
+		private final AtomicLong allocated = new AtomicLong();
+		private volatile long wallTimeNanos = -1;
+
+		private Phase(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Runs a synchronous section of the phase, counting the bytes it allocates.
+		 *
+		 * @param <T>     the type of result
+		 * @param section the section to run
+		 * @return the result of the section
+		 */
+		public <T> T measure(Supplier<T> section) {
+			var before = allocatedBytes();
+			try {
+				return section.get();
+			} finally {
+				allocated.addAndGet(allocatedBytes() - before);
+			}
+		}
+
+		/**
+		 * Wraps a consumer applied on each row of the phase, counting rows and the
+		 * bytes allocated while processing them.
+		 *
+		 * @param <T>      the type of row
+		 * @param consumer the consumer to wrap
+		 * @return the wrapped consumer
+		 */
+		public <T> Consumer<T> eachRow(Consumer<T> consumer) {
+			return row -> {
+				rows.incrementAndGet();
+				measure(() -> {
+					consumer.accept(row);
+					return null;
+				});
+			};
+		}
+
+		/**
+		 * Adds rows processed outside of {@link #eachRow(Consumer)}.
+		 *
+		 * @param count the number of rows
+		 */
+		public void addRows(long count) {
+			rows.addAndGet(count);
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public long rows() {
+			return rows.get();
+		}
+
+		public long allocatedBytes() {
+			return allocated.get();
+		}
+
+		/**
+		 * @return the wall-clock time of the phase, or empty if it is still
+		 *         running
+		 */
+		public Optional<Duration> wallTime() {
+			var nanos = wallTimeNanos;
+			return nanos < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(nanos));
+		}
+
+		@Override
+		public String toString() {
+			return name + ": " + wallTime().map(d -> d.toMillis() + " ms").orElse("running") + ", " + rows.get()
+					+ " rows" + (isAllocationMeasured() ? ", " + SystemUnit.format(allocated.get()) + " allocated" : "");
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Point-in-time view of the threads of the JVM: which ones burnt CPU over a
+ * short window, how often and how long they were blocked or waiting, how many
+ * threads each pool has in each state, and which threads are deadlocked.
+ */
+public final class ThreadSnapshot {
+
+	private static final Logger LOGGER = Loggers.getLogger(ThreadSnapshot.class);
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+	private final Duration window;
+	private final List<ThreadEntry> threads;
+	private final Map<String, PoolEntry> pools;
+	private final List<ThreadInfo> deadlocked;
+
+	private ThreadSnapshot(Duration window, List<ThreadEntry> threads, Map<String, PoolEntry> pools,
+			List<ThreadInfo> deadlocked) {
+		this.window = window;
+		this.threads = threads;
+		this.pools = pools;
+		this.deadlocked = deadlocked;
+	}
+
+	/**
+	 * Turns on the accounting of blocked and waited times, which the JVM does not
+	 * do by default. The counts are always available.
+	 */
+	static void enableContentionMonitoring() {
+		if (!THREAD_MX_BEAN.isThreadContentionMonitoringSupported()) {
+			LOGGER.warn("Thread contention monitoring is not supported by this JVM, blocked and waited times will not be available");
+			return;
+		}
+		THREAD_MX_BEAN.setThreadContentionMonitoringEnabled(true);
+	}
+
+	static boolean isCpuTimeMeasured() {
+		return THREAD_MX_BEAN.isThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+	}
+
+	static boolean isContentionMeasured() {
+		return THREAD_MX_BEAN.isThreadContentionMonitoringSupported()
+				&& THREAD_MX_BEAN.isThreadContentionMonitoringEnabled();
+	}
+
+	/**
+	 * Reads the CPU time of every thread, waits for the window to elapse, then
+	 * reads them again along with the state of each thread.
+	 *
+	 * @param window how long to measure CPU time over
+	 * @return a Mono emitting the snapshot
+	 */
+	public static Mono<ThreadSnapshot> take(Duration window) {
+		return Mono.fromCallable(ThreadSnapshot::cpuTimes)
+				.delayElement(window)
+				.map(before -> {
+					var after = cpuTimes();
+					var infos = THREAD_MX_BEAN.getThreadInfo(THREAD_MX_BEAN.getAllThreadIds(), 0);
+					var threads = new ArrayList<ThreadEntry>(infos.length);
+					var pools = new TreeMap<String, PoolEntry>();
+					for (var info : infos) {
+						// Threads that died since the ids were read come back as null
+						if (info == null) {
+							continue;
+						}
+						var id = info.getThreadId();
+						var cpuBefore = before.getOrDefault(id, 0L);
+						var cpuAfter = after.getOrDefault(id, -1L);
+						threads.add(new ThreadEntry(info, cpuAfter < 0 ? 0 : cpuAfter - cpuBefore));
+						pools.computeIfAbsent(StackProfiler.poolName(info.getThreadName()), k -> new PoolEntry())
+								.add(info.getThreadState());
+					}
+					threads.sort(Comparator.comparingLong(ThreadEntry::cpuTimeDelta).reversed());
+					var deadlockedIds = THREAD_MX_BEAN.findDeadlockedThreads();
+					var deadlocked = deadlockedIds == null ? List.<ThreadInfo>of()
+							: Arrays.stream(THREAD_MX_BEAN.getThreadInfo(deadlockedIds, true, true))
+									.filter(info -> info != null)
+									.collect(Collectors.toUnmodifiableList());
+					return new ThreadSnapshot(window, threads, pools, deadlocked);
+				});
+	}
+
+	private static Map<Long, Long> cpuTimes() {
+		var times = new HashMap<Long, Long>();
+		if (!isCpuTimeMeasured()) {
+			return times;
+		}
+		for (var id : THREAD_MX_BEAN.getAllThreadIds()) {
+			var time = THREAD_MX_BEAN.getThreadCpuTime(id);
+			if (time >= 0) {
+				times.put(id, time);
+			}
+		}
+		return times;
+	}
+
+	public Duration window() {
+		return window;
+	}
+
+	/**
+	 * @return all threads, the ones that used the most CPU during the window
+	 *         first
+	 */
+	public List<ThreadEntry> threads() {
+		return threads;
+	}
+
+	/**
+	 * @return the threads grouped by pool name, sorted by name
+	 */
+	public Map<String, PoolEntry> pools() {
+		return pools;
+	}
+
+	/**
+	 * @return the deadlocked threads with the locks they hold and wait for, empty
+	 *         if there is no deadlock
+	 */
+	public List<ThreadInfo> deadlocked() {
+		return deadlocked;
+	}
+
+	public static final class ThreadEntry {
+
+		private final ThreadInfo info;
+		private final long cpuTimeDelta;
+
+		private ThreadEntry(ThreadInfo info, long cpuTimeDelta) {
+			this.info = info;
+			this.cpuTimeDelta = cpuTimeDelta;
+		}
+
+		public ThreadInfo info() {
+			return info;
+		}
+
+		/**
+		 * @return the CPU time used during the window, in nanoseconds
+		 */
+		public long cpuTimeDelta() {
+			return cpuTimeDelta;
+		}
+	}
+
+	public static final class PoolEntry {
+
+		private final Map<Thread.State, Integer> states = new TreeMap<>();
+		private int count;
+
+		private void add(Thread.State state) {
+			states.merge(state, 1, Integer::sum);
+			count++;
+		}
+
+		public int count() {
+			return count;
+		}
+
+		/**
+		 * @return how many threads of the pool are in each state
+		 */
+		public Map<Thread.State, Integer> states() {
+			return states;
+		}
+	}
+}
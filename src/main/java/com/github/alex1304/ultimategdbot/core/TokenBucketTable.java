@@ -0,0 +1,200 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token buckets keyed by a non-zero long, such as a user or guild ID.
+ *
+ * <p>
+ * Each bucket is stored as a single long using the generic cell rate
+ * algorithm: instead of a token count and a last refill time, it keeps the
+ * theoretical time at which the bucket will be full again. Taking tokens pushes
+ * that time forward and is rejected if it would go further than the capacity
+ * allows, so refill happens lazily and an acquisition is a single CAS.
+ *
+ * <p>
+ * Buckets live in open-addressing tables of primitive keys, split in stripes
+ * to spread contention. Acquiring from an existing bucket never locks; adding a
+ * key locks its stripe. Buckets that are full again hold no information, so
+ * they are dropped whenever a stripe grows.
+ */
+final class TokenBucketTable {
+
+	private static final int STRIPES = 64;
+	private static final int STRIPE_BITS = Integer.numberOfTrailingZeros(STRIPES);
+	private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+	private final long emissionIntervalNanos;
+	private final long burstToleranceNanos;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	/**
+	 * @param capacity the maximum number of tokens of a bucket
+	 * @param refill   the time it takes for one token to come back
+	 */
+	TokenBucketTable(int capacity, Duration refill) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.emissionIntervalNanos = Math.max(1, refill.toNanos());
+		this.burstToleranceNanos = emissionIntervalNanos * capacity;
+		for (var i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Takes tokens from the bucket of the given key, creating it full if it does
+	 * not exist.
+	 *
+	 * @param key  the key, must not be 0
+	 * @param cost the number of tokens to take
+	 * @param now  the current time as given by {@link System#nanoTime()}
+	 * @return true if the tokens were taken, false if the bucket does not have
+	 *         enough of them
+	 */
+	boolean tryAcquire(long key, int cost, long now) {
+		var stripe = stripes[spread(key) & (STRIPES - 1)];
+		var increment = emissionIntervalNanos * cost;
+		for (;;) {
+			var table = stripe.table;
+			var slot = table.find(key);
+			if (slot < 0) {
+				stripe.insert(key, now);
+				continue;
+			}
+			var tat = table.tats.get(slot);
+			var newTat = Math.max(tat - now, 0) + now + increment;
+			if (newTat - now > burstToleranceNanos) {
+				return false;
+			}
+			if (table.tats.compareAndSet(slot, tat, newTat)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Gets how long the caller should wait before the bucket of the given key
+	 * has enough tokens for the given cost.
+	 *
+	 * @param key  the key
+	 * @param cost the number of tokens
+	 * @param now  the current time as given by {@link System#nanoTime()}
+	 * @return the time to wait, zero if the tokens are available now
+	 */
+	Duration retryAfter(long key, int cost, long now) {
+		var table = stripes[spread(key) & (STRIPES - 1)].table;
+		var slot = table.find(key);
+		if (slot < 0) {
+			return Duration.ZERO;
+		}
+		var wait = table.tats.get(slot) + emissionIntervalNanos * cost - burstToleranceNanos - now;
+		return Duration.ofNanos(Math.max(0, wait));
+	}
+
+	int size() {
+		var size = 0;
+		for (var stripe : stripes) {
+			size += stripe.table.size;
+		}
+		return size;
+	}
+
+	private static int spread(long key) {
+		var h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * The low bits of the hash pick the stripe, so they are the same for all
+	 * the keys of a stripe. The slot is taken from the bits above them.
+	 */
+	private static int slotHash(long key) {
+		return spread(key) >>> STRIPE_BITS;
+	}
+
+	private static final class Stripe {
+
+		private volatile Table table = new Table(INITIAL_STRIPE_CAPACITY);
+
+		synchronized void insert(long key, long now) {
+			var current = table;
+			if (current.find(key) >= 0) {
+				return;
+			}
+			if ((current.size + 1) * 4 > current.keys.length() * 3) {
+				current = current.rehash(now);
+			}
+			// A theoretical arrival time in the past means a full bucket
+			current.put(key, now);
+			table = current;
+		}
+	}
+
+	private static final class Table {
+
+		/**
+		 * Read without the stripe lock. A key is stored after its theoretical
+		 * arrival time, so a reader that sees the key also sees the time.
+		 */
+		private final AtomicLongArray keys;
+		private final AtomicLongArray tats;
+		private int size;
+
+		Table(int capacity) {
+			this.keys = new AtomicLongArray(capacity);
+			this.tats = new AtomicLongArray(capacity);
+		}
+
+		int find(long key) {
+			var mask = keys.length() - 1;
+			for (var i = slotHash(key) & mask;; i = (i + 1) & mask) {
+				var k = keys.get(i);
+				if (k == key) {
+					return i;
+				}
+				if (k == 0) {
+					return -1;
+				}
+			}
+		}
+
+		void put(long key, long tat) {
+			var mask = keys.length() - 1;
+			var i = slotHash(key) & mask;
+			while (keys.get(i) != 0) {
+				i = (i + 1) & mask;
+			}
+			tats.set(i, tat);
+			keys.set(i, key);
+			size++;
+		}
+
+		/**
+		 * Copies the buckets that are not full into a new table, twice as big if
+		 * they would still fill most of the current one. Acquisitions racing with
+		 * the copy may be lost, which only ever gives tokens back.
+		 */
+		Table rehash(long now) {
+			var live = 0;
+			for (var i = 0; i < keys.length(); i++) {
+				if (keys.get(i) != 0 && tats.get(i) - now > 0) {
+					live++;
+				}
+			}
+			var capacity = keys.length();
+			while ((live + 1) * 2 > capacity) {
+				capacity *= 2;
+			}
+			var copy = new Table(capacity);
+			for (var i = 0; i < keys.length(); i++) {
+				if (keys.get(i) != 0 && tats.get(i) - now > 0) {
+					copy.put(keys.get(i), tats.get(i));
+				}
+			}
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Lightweight tracing of the command pipeline. A trace is opened when a
+ * command starts and its root span is put in the Reactor {@link
+ * reactor.util.context.Context Context}; the Monos wrapped with
+ * {@link #span(String, Mono)} down the chain find it there and record child
+ * spans. Outside of a trace, wrapped Monos only pay for a context lookup.
+ *
+ * <p>
+ * Only the traces that took longer than the threshold are kept. They go into a
+ * bounded lock-free queue, which is periodically written to a file with one
+ * OTLP JSON export request per line, the format of the OpenTelemetry file
+ * exporter. Traces are dropped when the queue is full.
+ */
+public final class Tracer {
+
+	private static final Logger LOGGER = Loggers.getLogger(Tracer.class);
+	private static final String SERVICE_NAME = "ultimategdbot-core";
+	private static final int MAX_SPANS_PER_TRACE = 512;
+	// OTLP wants wall clock timestamps, System.nanoTime() is only good for durations
+	private static final long EPOCH_OFFSET_NANOS = System.currentTimeMillis() * 1_000_000 - System.nanoTime();
+
+	private final long thresholdNanos;
+	private final int capacity;
+	private final Path file;
+	private final Queue<Trace> finished = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final AtomicLong sampledOut = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+
+	public Tracer(Duration threshold, int capacity, Path file) {
+		this.thresholdNanos = threshold.toNanos();
+		this.capacity = capacity;
+		this.file = file;
+	}
+
+	/**
+	 * Runs the source within a new trace.
+	 *
+	 * @param <T>        the type of the source
+	 * @param name       the name of the root span
+	 * @param attributes the attributes of the root span
+	 * @param source     the Mono to trace
+	 * @return the traced Mono
+	 */
+	public <T> Mono<T> trace(String name, Map<String, Object> attributes, Mono<T> source) {
+		return Mono.defer(() -> {
+			var trace = new Trace();
+			var root = new Span(trace, null, name);
+			root.attributes.putAll(attributes);
+			return source
+					.doOnError(root::fail)
+					.doFinally(signal -> {
+						root.end(signal);
+						finish(trace);
+					})
+					.subscriberContext(ctx -> ctx.put(Span.class, root));
+		});
+	}
+
+	/**
+	 * Records the source as a child of the span found in the subscriber context,
+	 * if any.
+	 *
+	 * @param <T>    the type of the source
+	 * @param name   the name of the span
+	 * @param source the Mono to record
+	 * @return the recorded Mono
+	 */
+	public static <T> Mono<T> span(String name, Mono<T> source) {
+		return Mono.deferWithContext(ctx -> ctx.<Span>getOrEmpty(Span.class)
+				.map(parent -> {
+					var span = new Span(parent.trace, parent, name);
+					return source
+							.doOnError(span::fail)
+							.doFinally(span::end)
+							.subscriberContext(c -> c.put(Span.class, span));
+				})
+				.orElse(source));
+	}
+
+	/**
+	 * Same as {@link #span(String, Mono)}, for a Flux.
+	 */
+	public static <T> Flux<T> span(String name, Flux<T> source) {
+		return Flux.deferWithContext(ctx -> ctx.<Span>getOrEmpty(Span.class)
+				.map(parent -> {
+					var span = new Span(parent.trace, parent, name);
+					return source
+							.doOnError(span::fail)
+							.doFinally(span::end)
+							.subscriberContext(c -> c.put(Span.class, span));
+				})
+				.orElse(source));
+	}
+
+	private void finish(Trace trace) {
+		if (trace.root.durationNanos() < thresholdNanos) {
+			sampledOut.incrementAndGet();
+			return;
+		}
+		if (size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			dropped.incrementAndGet();
+			return;
+		}
+		finished.add(trace);
+	}
+
+	/**
+	 * Appends the buffered traces to the file.
+	 *
+	 * @return a Mono completing when the traces are written
+	 */
+	public Mono<Void> flush() {
+		return Mono.fromCallable(() -> {
+			var lines = new ArrayList<String>();
+			Trace trace;
+			while ((trace = finished.poll()) != null) {
+				size.decrementAndGet();
+				lines.add(toJson(trace));
+			}
+			if (!lines.isEmpty()) {
+				Files.write(file, lines, StandardCharsets.UTF_8, CREATE, APPEND);
+				written.addAndGet(lines.size());
+			}
+			return lines.size();
+		})
+				.subscribeOn(Schedulers.boundedElastic())
+				.onErrorResume(e -> {
+					LOGGER.error("Failed to write traces to " + file, e);
+					return Mono.empty();
+				})
+				.then();
+	}
+
+	/**
+	 * @return the number of traces not kept because they were faster than the
+	 *         threshold
+	 */
+	public long sampledOut() {
+		return sampledOut.get();
+	}
+
+	/**
+	 * @return the number of slow traces lost because the buffer was full
+	 */
+	public long dropped() {
+		return dropped.get();
+	}
+
+	public long written() {
+		return written.get();
+	}
+
+	static String toJson(Trace trace) {
+		var sb = new StringBuilder("{\"resourceSpans\":[{\"resource\":{\"attributes\":[");
+		appendAttribute(sb, "service.name", SERVICE_NAME);
+		sb.append("]},\"scopeSpans\":[{\"scope\":{\"name\":\"").append(SERVICE_NAME).append("\"},\"spans\":[");
+		var first = true;
+		for (var span : trace.spans) {
+			// A span still running when its trace ends, such as a fire and forget reply, is cut at the end of the root
+			var unfinished = span.end == 0;
+			var end = unfinished ? trace.root.end : span.end;
+			var error = unfinished ? "unfinished" : span.error;
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append("{\"traceId\":\"").append(trace.id)
+					.append("\",\"spanId\":\"").append(span.id).append('"');
+			if (span.parent != null) {
+				sb.append(",\"parentSpanId\":\"").append(span.parent.id).append('"');
+			}
+			sb.append(",\"name\":");
+			appendString(sb, span.name);
+			sb.append(",\"kind\":").append(span.parent == null ? 2 : 1) // SERVER for the root, INTERNAL otherwise
+					.append(",\"startTimeUnixNano\":\"").append(span.start + EPOCH_OFFSET_NANOS)
+					.append("\",\"endTimeUnixNano\":\"").append(end + EPOCH_OFFSET_NANOS)
+					.append("\",\"attributes\":[");
+			var firstAttribute = true;
+			for (var attribute : span.attributes.entrySet()) {
+				if (!firstAttribute) {
+					sb.append(',');
+				}
+				firstAttribute = false;
+				appendAttribute(sb, attribute.getKey(), attribute.getValue());
+			}
+			sb.append("],\"status\":{\"code\":").append(error == null ? 1 : 2);
+			if (error != null) {
+				sb.append(",\"message\":");
+				appendString(sb, error);
+			}
+			sb.append("}}");
+		}
+		return sb.append("]}]}]}").toString();
+	}
+
+	private static void appendAttribute(StringBuilder sb, String key, Object value) {
+		sb.append("{\"key\":");
+		appendString(sb, key);
+		if (value instanceof Long || value instanceof Integer) {
+			// OTLP JSON encodes 64-bit integers as strings
+			sb.append(",\"value\":{\"intValue\":\"").append(value).append("\"}}");
+		} else {
+			sb.append(",\"value\":{\"stringValue\":");
+			appendString(sb, String.valueOf(value));
+			sb.append("}}");
+		}
+	}
+
+	private static void appendString(StringBuilder sb, String value) {
+		sb.append('"');
+		for (var i = 0; i < value.length(); i++) {
+			var c = value.charAt(i);
+			switch (c) {
+				case '"':
+					sb.append("\\\"");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				case '\t':
+					sb.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+		sb.append('"');
+	}
+
+	private static String randomId(int longs) {
+		var sb = new StringBuilder(longs * 16);
+		for (var i = 0; i < longs; i++) {
+			sb.append(String.format("%016x", ThreadLocalRandom.current().nextLong()));
+		}
+		return sb.toString();
+	}
+
+	static final class Trace {
+
+		private final String id = randomId(2);
+		private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger spanCount = new AtomicInteger();
+		private Span root;
+
+		private void add(Span span) {
+			if (root == null) {
+				root = span;
+			}
+			// Spans beyond the limit are still timed and propagated, just not exported
+			if (spanCount.incrementAndGet() <= MAX_SPANS_PER_TRACE) {
+				spans.add(span);
+			}
+		}
+	}
+
+	static final class Span {
+
+		private final Trace trace;
+		private final Span parent;
+		private final String id = randomId(1);
+		private final String name;
+		private final Map<String, Object> attributes = new LinkedHashMap<>();
+		private final long start = System.nanoTime();
+		private volatile long end;
+		private volatile String error;
+
+		private Span(Trace trace, @Nullable Span parent, String name) {
+			this.trace = trace;
+			this.parent = parent;
+			this.name = name;
+			trace.add(this);
+		}
+
+		private void fail(Throwable t) {
+			error = t.getClass().getName();
+		}
+
+		private void end(SignalType signal) {
+			end = System.nanoTime();
+			if (signal == SignalType.CANCEL) {
+				error = "cancelled";
+			}
+		}
+
+		private long durationNanos() {
+			return end - start;
+		}
+	}
+}
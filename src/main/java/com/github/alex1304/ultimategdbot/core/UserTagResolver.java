@@ -0,0 +1,78 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import discord4j.core.GatewayDiscordClient;
+import discord4j.discordjson.json.UserData;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Resolves user IDs to user tags. The gateway cache is looked up first, and
+ * only the IDs missing from it are fetched from REST, with bounded
+ * concurrency. Resolved tags are kept for a short time so that repeated
+ * listings don't hit REST again.
+ */
+public final class UserTagResolver {
+	
+	private final GatewayDiscordClient gateway;
+	private final int restConcurrency;
+	private final long ttlMillis;
+	private final Map<Long, CachedTag> cache = new ConcurrentHashMap<>();
+	
+	public UserTagResolver(GatewayDiscordClient gateway, int restConcurrency, Duration ttl) {
+		this.gateway = gateway;
+		this.restConcurrency = restConcurrency;
+		this.ttlMillis = ttl.toMillis();
+	}
+	
+	/**
+	 * Resolves the tags of the given users. Users that cannot be found are
+	 * emitted with an empty tag.
+	 * 
+	 * @param userIds the user IDs
+	 * @return a Flux of user ID and tag pairs, in no particular order
+	 */
+	public Flux<Tuple2<Long, String>> resolve(Iterable<Long> userIds) {
+		var now = System.currentTimeMillis();
+		cache.values().removeIf(cached -> cached.expiresAt < now);
+		return Flux.fromIterable(userIds)
+				.concatMap(userId -> Mono.justOrEmpty(cache.get(userId))
+						.map(cached -> cached.tag)
+						.switchIfEmpty(gateway.getGatewayResources().getStateView().getUserStore().find(userId)
+								.map(UserTagResolver::tag)
+								.doOnNext(tag -> put(userId, tag)))
+						.map(tag -> Tuples.of(userId, tag))
+						.defaultIfEmpty(Tuples.of(userId, "")))
+				.flatMap(resolved -> resolved.getT2().isEmpty()
+						? gateway.rest().getUserService().getUser(resolved.getT1())
+								.map(UserTagResolver::tag)
+								.doOnNext(tag -> put(resolved.getT1(), tag))
+								.map(tag -> Tuples.of(resolved.getT1(), tag))
+								.onErrorResume(e -> Mono.empty())
+								.defaultIfEmpty(resolved)
+						: Mono.just(resolved), restConcurrency);
+	}
+	
+	private void put(long userId, String tag) {
+		cache.put(userId, new CachedTag(tag, System.currentTimeMillis() + ttlMillis));
+	}
+	
+	private static String tag(UserData user) {
+		return user.username() + '#' + user.discriminator();
+	}
+	
+	private static final class CachedTag {
+		private final String tag;
+		private final long expiresAt;
+		
+		private CachedTag(String tag, long expiresAt) {
+			this.tag = tag;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package com.github.alex1304.ultimategdbot.core.database;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+public interface ChangeLogDao {
+	String TABLE = "core_change_log";
+	
+	@SqlBatch("INSERT INTO " + TABLE + "(origin, kind, target_id) VALUES (?, ?, ?)")
+	int[] insertAll(String origin, List<String> kinds, List<Long> targetIds);
+	
+	@SqlQuery("SELECT COALESCE(MAX(seq), 0) FROM " + TABLE)
+	long getLastSeq();
+	
+	@SqlQuery("SELECT seq, origin, kind, target_id FROM " + TABLE + " WHERE seq > ? ORDER BY seq LIMIT ?")
+	List<ChangeLogEntry> getAfter(long seq, int limit);
+	
+	@SqlQuery("SELECT seq, origin, kind, target_id FROM " + TABLE + " WHERE seq IN (<seqs>) ORDER BY seq")
+	List<ChangeLogEntry> getAll(@BindList("seqs") List<Long> seqs);
+	
+	@SqlUpdate("DELETE FROM " + TABLE + " WHERE created_at < ?")
+	int deleteOlderThan(Timestamp timestamp);
+}
@@ -0,0 +1,15 @@
+package com.github.alex1304.ultimategdbot.core.database;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface ChangeLogEntry {
+	
+	long seq();
+	
+	String origin();
+	
+	String kind();
+	
+	long targetId();
+}
@@ -0,0 +1,21 @@
+package com.github.alex1304.ultimategdbot.core.database;
+
+import java.time.Instant;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface ChangelogJob {
+	
+	long id();
+	
+	String payload();
+	
+	String authorName();
+	
+	String authorIconUrl();
+	
+	Instant createdAt();
+	
+	String status();
+}
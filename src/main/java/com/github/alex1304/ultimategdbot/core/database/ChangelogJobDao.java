@@ -0,0 +1,137 @@
+package com.github.alex1304.ultimategdbot.core.database;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+
+public interface ChangelogJobDao {
+	String JOB_TABLE = "core_changelog_job";
+	String DELIVERY_TABLE = "core_changelog_delivery";
+	
+	String STATUS_RUNNING = "RUNNING";
+	String STATUS_DONE = "DONE";
+	String STATUS_CANCELLED = "CANCELLED";
+	
+	String STATE_PENDING = "PENDING";
+	String STATE_SENDING = "SENDING";
+	
+	@SqlUpdate("INSERT INTO " + JOB_TABLE + "(payload, author_name, author_icon_url, created_at, status) "
+			+ "VALUES (?, ?, ?, ?, '" + STATUS_RUNNING + "')")
+	@GetGeneratedKeys("id")
+	long insertJob(String payload, String authorName, String authorIconUrl, Timestamp createdAt);
+	
+	@SqlBatch("INSERT INTO " + DELIVERY_TABLE + "(job_id, channel_id, state) VALUES (?, ?, '" + STATE_PENDING + "')")
+	int[] insertDeliveries(long jobId, List<Long> channelIds);
+	
+	@Transaction
+	default long createJob(String payload, String authorName, String authorIconUrl, Timestamp createdAt,
+			List<Long> channelIds) {
+		var jobId = insertJob(payload, authorName, authorIconUrl, createdAt);
+		insertDeliveries(jobId, channelIds);
+		return jobId;
+	}
+	
+	@SqlQuery("SELECT * FROM " + JOB_TABLE + " WHERE id = ?")
+	Optional<ChangelogJob> getJob(long jobId);
+	
+	@SqlQuery("SELECT * FROM " + JOB_TABLE + " WHERE status = ? ORDER BY id")
+	List<ChangelogJob> getJobsByStatus(String status);
+	
+	@SqlUpdate("UPDATE " + JOB_TABLE + " SET status = :status, finished_at = CURRENT_TIMESTAMP "
+			+ "WHERE id = :jobId AND status = '" + STATUS_RUNNING + "'")
+	boolean closeJob(@Bind("jobId") long jobId, @Bind("status") String status);
+	
+	/**
+	 * Deletes the jobs that finished before the given time. Their deliveries are
+	 * deleted along with them.
+	 * 
+	 * @param timestamp the time before which finished jobs are deleted
+	 * @return the number of deleted jobs
+	 */
+	@SqlUpdate("DELETE FROM " + JOB_TABLE + " WHERE status <> '" + STATUS_RUNNING + "' AND finished_at < ?")
+	int deleteFinishedBefore(Timestamp timestamp);
+	
+	@SqlQuery("SELECT state, COUNT(*) AS count FROM " + DELIVERY_TABLE + " WHERE job_id = ? GROUP BY state")
+	List<DeliveryCount> countDeliveries(long jobId);
+	
+	@SqlQuery("SELECT channel_id FROM " + DELIVERY_TABLE + " WHERE job_id = ? AND state = ?")
+	List<Long> getChannelIdsByState(long jobId, String state);
+	
+	@SqlQuery("SELECT channel_id FROM " + DELIVERY_TABLE + " WHERE job_id = ? AND state = '" + STATE_PENDING + "' "
+			+ "ORDER BY channel_id LIMIT ?")
+	List<Long> getPendingChannelIds(long jobId, int limit);
+	
+	@SqlQuery("SELECT channel_id FROM " + DELIVERY_TABLE + " WHERE job_id = ? AND state = '" + STATE_SENDING + "' "
+			+ "AND claim_token = ?")
+	List<Long> getClaimedChannelIds(long jobId, String claimToken);
+	
+	@SqlUpdate("UPDATE " + DELIVERY_TABLE + " SET state = '" + STATE_SENDING + "', claimed_by = :origin, "
+			+ "claimed_at = :now, claim_token = :claimToken "
+			+ "WHERE job_id = :jobId AND state = '" + STATE_PENDING + "' AND channel_id IN (<channelIds>)")
+	int markSending(@Bind("jobId") long jobId, @Bind("origin") String origin, @Bind("now") Timestamp now,
+			@Bind("claimToken") String claimToken, @BindList("channelIds") List<Long> channelIds);
+	
+	@SqlUpdate("UPDATE " + DELIVERY_TABLE + " SET claimed_by = :origin, claimed_at = :now, claim_token = :claimToken "
+			+ "WHERE job_id = :jobId AND state = '" + STATE_SENDING + "' AND claimed_at < :staleBefore")
+	int reclaimStale(@Bind("jobId") long jobId, @Bind("origin") String origin, @Bind("now") Timestamp now,
+			@Bind("claimToken") String claimToken, @Bind("staleBefore") Timestamp staleBefore);
+	
+	@SqlUpdate("UPDATE " + DELIVERY_TABLE + " SET state = ?, attempts = attempts + 1 WHERE job_id = ? AND channel_id = ?")
+	void setState(String state, long jobId, long channelId);
+	
+	/**
+	 * Claims a batch of pending deliveries of a running job. Each claim is
+	 * tagged with a token of its own, so only the deliveries taken by this call
+	 * are returned: neither those claimed concurrently by another process, nor
+	 * those left in sending state by an earlier batch whose outcome could not be
+	 * recorded, which are recovered once their claim times out.
+	 * 
+	 * @param jobId  the job ID
+	 * @param origin the ID of the claiming process
+	 * @param now    the claim time
+	 * @param limit  the maximum number of deliveries to claim
+	 * @return the channel IDs of the claimed deliveries, empty if the job is not
+	 *         running or has nothing left to send
+	 */
+	@Transaction
+	default List<Long> claimPending(long jobId, String origin, Timestamp now, int limit) {
+		if (!getJob(jobId).map(ChangelogJob::status).filter(STATUS_RUNNING::equals).isPresent()) {
+			return List.of();
+		}
+		var channelIds = getPendingChannelIds(jobId, limit);
+		if (channelIds.isEmpty()) {
+			return channelIds;
+		}
+		var claimToken = UUID.randomUUID().toString();
+		markSending(jobId, origin, now, claimToken, channelIds);
+		return getClaimedChannelIds(jobId, claimToken);
+	}
+	
+	/**
+	 * Claims the deliveries left in sending state for too long, typically
+	 * because the process that was sending them has crashed.
+	 * 
+	 * @param jobId       the job ID
+	 * @param origin      the ID of the claiming process
+	 * @param now         the claim time
+	 * @param staleBefore the deliveries claimed before this time are reclaimed
+	 * @return the channel IDs of the reclaimed deliveries
+	 */
+	@Transaction
+	default List<Long> claimStale(long jobId, String origin, Timestamp now, Timestamp staleBefore) {
+		var claimToken = UUID.randomUUID().toString();
+		if (reclaimStale(jobId, origin, now, claimToken, staleBefore) == 0) {
+			return List.of();
+		}
+		return getClaimedChannelIds(jobId, claimToken);
+	}
+}
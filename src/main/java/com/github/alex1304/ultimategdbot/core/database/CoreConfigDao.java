@@ -1,8 +1,11 @@
 package com.github.alex1304.ultimategdbot.core.database;
 
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Optional;
 
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.customizer.BindPojo;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
@@ -46,4 +49,24 @@ public interface CoreConfigDao extends GuildConfigDao<CoreConfigData> {
 	
 	@SqlQuery("SELECT channel_changelog_id FROM " + TABLE + " WHERE channel_changelog_id IS NOT NULL")
 	List<Snowflake> getAllChangelogChannels();
+	
+	@SqlUpdate("UPDATE " + TABLE + " SET channel_changelog_id = NULL WHERE channel_changelog_id IN (<channelIds>)")
+	int clearChangelogChannels(@BindList("channelIds") List<Long> channelIds);
+	
+	@SqlQuery("SELECT guild_id FROM " + TABLE + " WHERE guild_id > ? ORDER BY guild_id LIMIT ?")
+	List<Long> getGuildIdsAfter(long guildId, int limit);
+	
+	@SqlUpdate("UPDATE " + TABLE + " SET stale_since = :staleSince "
+			+ "WHERE stale_since IS NULL AND guild_id IN (<guildIds>)")
+	int markStale(@Bind("staleSince") Timestamp staleSince, @BindList("guildIds") List<Long> guildIds);
+	
+	@SqlUpdate("UPDATE " + TABLE + " SET stale_since = NULL "
+			+ "WHERE stale_since IS NOT NULL AND guild_id IN (<guildIds>)")
+	int unmarkStale(@BindList("guildIds") List<Long> guildIds);
+	
+	@SqlQuery("SELECT guild_id FROM " + TABLE + " WHERE stale_since < ? AND guild_id > ? ORDER BY guild_id LIMIT ?")
+	List<Long> getStaleGuildIdsAfter(Timestamp staleBefore, long guildId, int limit);
+	
+	@SqlUpdate("DELETE FROM " + TABLE + " WHERE stale_since IS NOT NULL AND guild_id IN (<guildIds>)")
+	int deleteStale(@BindList("guildIds") List<Long> guildIds);
 }
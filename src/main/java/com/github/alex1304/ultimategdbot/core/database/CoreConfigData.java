@@ -17,6 +17,10 @@ import com.github.alex1304.ultimategdbot.api.database.guildconfig.StringConfigEn
 import com.github.alex1304.ultimategdbot.api.database.guildconfig.Validator;
 import com.github.alex1304.ultimategdbot.api.localization.LocalizationService;
 import com.github.alex1304.ultimategdbot.api.service.BotService;
+import com.github.alex1304.ultimategdbot.core.CoreStrings;
+import com.github.alex1304.ultimategdbot.core.CoreStringsKey;
+import com.github.alex1304.ultimategdbot.core.Invalidation;
+import com.github.alex1304.ultimategdbot.core.InvalidationBus;
 
 import discord4j.common.util.Snowflake;
 import discord4j.core.object.entity.channel.Channel;
@@ -30,18 +34,19 @@ public interface CoreConfigData extends GuildConfigData<CoreConfigData> {
 	
 	Optional<String> locale();
 
-	static GuildConfigurator<CoreConfigData> configurator(CoreConfigData configData, Translator tr, BotService bot) {
-		return GuildConfigurator.builder(tr.translate("CoreStrings", "core_guildconfig_title"), configData, CoreConfigDao.class)
-				.setDescription(tr.translate("CoreStrings", "core_guildconfig_desc"))
+	static GuildConfigurator<CoreConfigData> configurator(CoreConfigData configData, Translator tr, BotService bot,
+			InvalidationBus invalidationBus) {
+		return GuildConfigurator.builder(CoreStrings.translate(tr, CoreStringsKey.CORE_GUILDCONFIG_TITLE), configData, CoreConfigDao.class)
+				.setDescription(CoreStrings.translate(tr, CoreStringsKey.CORE_GUILDCONFIG_DESC))
 				.addEntry(StringConfigEntry.<CoreConfigData>builder("prefix")
 						.setValueGetter(forOptionalValue(CoreConfigData::prefix))
 						.setValueSetter((data, value) -> ImmutableCoreConfigData.builder()
 								.from(data)
 								.prefix(Optional.ofNullable(value))
 								.build())
-						.setValidator(Validator.denyingIf(String::isBlank, tr.translate("CoreStrings", "validate_not_blank"))))
+						.setValidator(Validator.denyingIf(String::isBlank, CoreStrings.translate(tr, CoreStringsKey.VALIDATE_NOT_BLANK))))
 				.addEntry(GuildChannelConfigEntry.<CoreConfigData>builder("channel_changelog")
-						.setDisplayName(tr.translate("CoreStrings", "display_channel_changelog"))
+						.setDisplayName(CoreStrings.translate(tr, CoreStringsKey.DISPLAY_CHANNEL_CHANGELOG))
 						.setValueGetter(forOptionalGuildChannel(bot.gateway(), CoreConfigData::channelChangelogId))
 						.setValueSetter((data, channel) -> ImmutableCoreConfigData.builder()
 								.from(data)
@@ -49,18 +54,19 @@ public interface CoreConfigData extends GuildConfigData<CoreConfigData> {
 								.build()))
 				.addEntry(StringConfigEntry.<CoreConfigData>builder("locale")
 						.setDisplayName("language")
-						.setDescription(tr.translate("CoreStrings", "desc_locale") + '\n' + displayLocaleList(bot.localization()))
+						.setDescription(CoreStrings.translate(tr, CoreStringsKey.DESC_LOCALE) + '\n' + displayLocaleList(bot.localization()))
 						.setValueGetter(forOptionalValue(CoreConfigData::locale))
 						.setValueSetter((data, value) -> ImmutableCoreConfigData.builder()
 								.from(data)
 								.locale(Optional.ofNullable(value))
 								.build())
 						.setValidator(Validator.allowingIf(value -> isLocaleSupported(value, bot.localization()),
-								tr.translate("CoreStrings", "unrecognized_locale"))))
+								CoreStrings.translate(tr, CoreStringsKey.UNRECOGNIZED_LOCALE))))
 				.onSave(data -> {
 					bot.command().setPrefixForGuild(data.guildId().asLong(), data.prefix().orElse(null));
 					bot.localization().setLocaleForGuild(data.guildId().asLong(),
 									data.locale().map(Locale::forLanguageTag).orElse(null));
+					invalidationBus.publish(Invalidation.Kind.GUILD_CONFIG, data.guildId().asLong());
 				})
 				.build();
 	}
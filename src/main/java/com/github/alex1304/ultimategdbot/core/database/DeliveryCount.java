@@ -0,0 +1,11 @@
+package com.github.alex1304.ultimategdbot.core.database;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface DeliveryCount {
+	
+	String state();
+	
+	long count();
+}
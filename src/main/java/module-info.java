@@ -11,6 +11,8 @@ module ultimategdbot.core {
 	requires java.compiler;
 	requires java.desktop;
 	requires java.management;
+	requires java.sql;
+	requires jdk.jfr;
 	requires jdk.management;
 	requires reactor.extra;
 	requires ultimategdbot.api;
@@ -0,0 +1,22 @@
+package com.github.alex1304.ultimategdbot.core;
+
+import java.util.concurrent.Executors;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Creates the virtual thread scheduler of {@link DaoExecutor}. This source
+ * folder is only compiled by the java21 profile, the rest of the plugin still
+ * targets Java 11.
+ */
+final class VirtualThreadScheduler {
+
+	private VirtualThreadScheduler() {
+	}
+
+	static Scheduler create() {
+		var factory = Thread.ofVirtual().name("core-dao-", 0).factory();
+		return Schedulers.fromExecutorService(Executors.newThreadPerTaskExecutor(factory));
+	}
+}